@@ -0,0 +1,90 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.model.ANode;
+import HumanAnatomyViewer.model.BenchmarkAccess;
+import HumanAnatomyViewer.model.LiteralMatcher;
+import HumanAnatomyViewer.model.Ontology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compares ways of testing every name of a synthetic ontology of 100,000 names against an AI-style alternation
+ * "a|b|c|…" of many literal terms: one pattern per term (as TreeSearchHandler did), one combined pattern, and a
+ * {@link LiteralMatcher} Aho-Corasick automaton. All three must find the same concepts.
+ *
+ * Usage: AlternationSearchBenchmark [concepts]
+ */
+public class AlternationSearchBenchmark {
+
+    private static final int ROUNDS = 3;
+    private static final String[] SYLLABLES = {"ba", "cer", "fe", "mo", "ris", "tal", "va", "stu", "la", "pu",
+            "bi", "ceps", "gas", "tro", "cne", "mi", "us", "sar", "to", "ri", "ple", "xus", "co", "sta"};
+
+    public static void main(String[] args) {
+        int concepts = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        Random random = new Random(11);
+        String[] vocabulary = new String[4000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 2 + random.nextInt(3); s > 0; s--) word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            vocabulary[i] = word.toString();
+        }
+        BenchmarkSupport.OntologyFiles files = BenchmarkSupport.syntheticOntology(concepts, 0);
+        List<String> parts = new ArrayList<>(files.parts().subList(0, 1));
+        for (String line : files.parts().subList(1, files.parts().size())) {
+            parts.add(line + " " + vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        Ontology ontology = BenchmarkAccess.buildOntology(parts, files.elements(), files.relations());
+        List<ANode> nodes = ontology.root().subtree();
+
+        System.out.printf(Locale.ROOT, "%d names%n", nodes.size());
+        System.out.printf(Locale.ROOT, "%6s %8s %14s %14s %14s%n", "terms", "matches", "per term ms", "combined ms",
+                "automaton ms");
+        long sink = 0;
+        for (int terms : new int[]{1, 10, 100, 300}) {
+            List<String> literals = Arrays.asList(Arrays.copyOfRange(vocabulary, 100, 100 + terms));
+
+            List<Pattern> patterns = new ArrayList<>();
+            for (String literal : literals) {
+                patterns.add(Pattern.compile("(?i)(" + literal + ")"));
+            }
+            Predicate<String> perTerm = name -> patterns.stream().anyMatch(pattern -> pattern.matcher(name).find());
+            Predicate<String> combined = Pattern.compile("(?i)(" + String.join(")|(", literals) + ")").asPredicate();
+            Predicate<String> automaton = new LiteralMatcher(literals);
+
+            List<ANode> expected = filter(nodes, perTerm);
+            if (!expected.equals(filter(nodes, combined)) || !expected.equals(filter(nodes, automaton))) {
+                throw new IllegalStateException("Matchers disagree for " + terms + " terms");
+            }
+
+            double[] millis = new double[3];
+            List<Predicate<String>> matchers = List.of(perTerm, combined, automaton);
+            for (int m = 0; m < 3; m++) {
+                sink += filter(nodes, matchers.get(m)).size(); // warm-up
+                long start = System.nanoTime();
+                for (int i = 0; i < ROUNDS; i++) sink += filter(nodes, matchers.get(m)).size();
+                millis[m] = (System.nanoTime() - start) / 1e6 / ROUNDS;
+            }
+            System.out.printf(Locale.ROOT, "%6d %8d %14.1f %14.1f %14.1f%n", terms, expected.size(),
+                    millis[0], millis[1], millis[2]);
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    private static List<ANode> filter(List<ANode> nodes, Predicate<String> matcher) {
+        List<ANode> matches = new ArrayList<>();
+        for (ANode node : nodes) {
+            if (matcher.test(node.name())) {
+                matches.add(node);
+            }
+        }
+        return matches;
+    }
+}
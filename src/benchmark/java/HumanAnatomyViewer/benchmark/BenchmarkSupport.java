@@ -0,0 +1,174 @@
+package HumanAnatomyViewer.benchmark;
+
+import javafx.scene.shape.TriangleMesh;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Shared helpers for the benchmarks: input selection, synthetic models and allocation counters.
+ */
+final class BenchmarkSupport {
+
+    private static final String[] WORDS = {"left", "right", "superior", "inferior", "anterior", "posterior", "lobe",
+            "segment", "branch", "artery", "vein", "nerve", "of", "muscle", "bone", "ligament", "lateral", "medial",
+            "head", "tendon", "surface", "cartilage", "lymph", "node", "duct", "wall", "cavity", "part"};
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Lines of the three hierarchy files, including their header lines.
+     */
+    record OntologyFiles(List<String> parts, List<String> elements, List<String> relations) {
+    }
+
+    /**
+     * Generates hierarchy files for a random tree with FMA-like IDs and multi-word names.
+     *
+     * @param concepts    number of concepts
+     * @param elementRows number of concept to file ID rows
+     */
+    static OntologyFiles syntheticOntology(int concepts, int elementRows) {
+        Random random = new Random(42);
+        List<String> parts = new ArrayList<>(List.of("concept id\trepresentation id\ten"));
+        List<String> relations = new ArrayList<>(List.of("parent id\tparent name\tchild id\tchild name"));
+        List<String> elements = new ArrayList<>(List.of("concept id\tname\telement file id"));
+        for (int i = 0; i < concepts; i++) {
+            StringBuilder name = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+            for (int w = 2 + random.nextInt(4); w > 0; w--) name.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+            parts.add("FMA" + (10_000 + i) + "\tBP" + (20_000 + i) + "\t" + name);
+            if (i > 0) {
+                relations.add("FMA" + (10_000 + random.nextInt(i)) + "\tparent\tFMA" + (10_000 + i) + "\tchild");
+            }
+        }
+        for (int i = 0; i < elementRows; i++) {
+            elements.add("FMA" + (10_000 + random.nextInt(concepts)) + "\tname\tFJ" + random.nextInt(elementRows / 2));
+        }
+        return new OntologyFiles(parts, elements, relations);
+    }
+
+    /**
+     * Collects the OBJ files named on the command line. Directories are searched (not recursively) for *.obj.
+     * Without arguments a synthetic model is generated, so the benchmarks also run without BodyParts3D data.
+     *
+     * @param args command line arguments
+     * @return OBJ files to benchmark
+     */
+    static List<Path> objFiles(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Path.of(arg);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> list = Files.list(path)) {
+                    list.filter(p -> p.getFileName().toString().endsWith(".obj")).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        if (files.isEmpty()) {
+            Path synthetic = Files.createTempFile("synthetic", ".obj");
+            synthetic.toFile().deleteOnExit();
+            writeSyntheticObj(synthetic, 400, 400, true);
+            files.add(synthetic);
+            System.out.println("No input given, using synthetic model " + synthetic
+                    + " (" + Files.size(synthetic) / 1024 + " KB)");
+        }
+        return files;
+    }
+
+    /**
+     * Writes a UV sphere in the number format used by the BodyParts3D exports.
+     *
+     * @param file        target file
+     * @param rings       number of latitude rings
+     * @param segments    number of longitude segments
+     * @param withNormals whether to write vn records and v//n face corners
+     */
+    static void writeSyntheticObj(Path file, int rings, int segments, boolean withNormals) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("# synthetic sphere\n");
+            for (int r = 0; r <= rings; r++) {
+                double theta = Math.PI * r / rings;
+                for (int s = 0; s < segments; s++) {
+                    double phi = 2 * Math.PI * s / segments;
+                    double x = Math.sin(theta) * Math.cos(phi);
+                    double y = Math.cos(theta);
+                    double z = Math.sin(theta) * Math.sin(phi);
+                    out.write(String.format(Locale.ROOT, "v %.6f %.6f %.6f\n", 80 * x, 80 * y, 80 * z));
+                    if (withNormals) {
+                        out.write(String.format(Locale.ROOT, "vn %.6f %.6f %.6f\n", x, y, z));
+                    }
+                }
+            }
+            for (int r = 0; r < rings; r++) {
+                for (int s = 0; s < segments; s++) {
+                    int a = r * segments + s + 1;
+                    int b = r * segments + (s + 1) % segments + 1;
+                    int c = a + segments;
+                    int d = b + segments;
+                    if (withNormals) {
+                        out.write("f " + a + "//" + a + " " + c + "//" + c + " " + d + "//" + d + " " + b + "//" + b + "\n");
+                    } else {
+                        out.write("f " + a + " " + c + " " + d + " " + b + "\n");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 if the JVM does not report it.
+     * The counters come from the jdk.management module, which the benchmark profile adds for the benchmarks only.
+     */
+    static long allocatedBytes() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+                return bean.getCurrentThreadAllocatedBytes();
+            }
+        } catch (NoClassDefFoundError e) {
+            // jdk.management not resolved
+        }
+        return -1;
+    }
+
+    /**
+     * Bytes allocated so far by all threads, including threads that have ended, or -1 if the JVM does not report it.
+     * Use this for code that runs on the fork/join pool, whose allocations the current thread's counter misses.
+     */
+    static long allocatedBytesAllThreads() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+                return bean.getTotalThreadAllocatedBytes();
+            }
+        } catch (NoClassDefFoundError e) {
+            // jdk.management not resolved
+        }
+        return -1;
+    }
+
+    /**
+     * Whether two meshes have the same vertex format and identical arrays.
+     */
+    static boolean sameMesh(TriangleMesh a, TriangleMesh b) {
+        return a.getVertexFormat() == b.getVertexFormat()
+                && Arrays.equals(a.getPoints().toArray(null), b.getPoints().toArray(null))
+                && Arrays.equals(a.getTexCoords().toArray(null), b.getTexCoords().toArray(null))
+                && Arrays.equals(a.getNormals().toArray(null), b.getNormals().toArray(null))
+                && Arrays.equals(a.getFaces().toArray(null), b.getFaces().toArray(null));
+    }
+
+    static String megabytes(long bytes) {
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
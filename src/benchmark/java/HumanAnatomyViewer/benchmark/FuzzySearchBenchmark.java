@@ -0,0 +1,140 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.model.ANode;
+import HumanAnatomyViewer.model.BenchmarkAccess;
+import HumanAnatomyViewer.model.FuzzyNameIndex;
+import HumanAnatomyViewer.model.Ontology;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares fuzzy lookups in the {@link FuzzyNameIndex} BK-tree with computing the edit distance to every word of
+ * every name, for a synthetic ontology of 100,000 names (as in {@link NameSearchBenchmark}, each name ends with a
+ * specific term from a vocabulary of a few thousand words). Both ways must find the same concepts at the same
+ * distances.
+ *
+ * Usage: FuzzySearchBenchmark [concepts]
+ */
+public class FuzzySearchBenchmark {
+
+    private static final int SCAN_ROUNDS = 3;
+    private static final int INDEX_ROUNDS = 200;
+    private static final String[] SYLLABLES = {"ba", "cer", "fe", "mo", "ris", "tal", "va", "stu", "la", "pu",
+            "bi", "ceps", "gas", "tro", "cne", "mi", "us", "sar", "to", "ri", "ple", "xus", "co", "sta"};
+
+    public static void main(String[] args) {
+        int concepts = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        Random random = new Random(11);
+        String[] vocabulary = new String[4000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 2 + random.nextInt(3); s > 0; s--) word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            vocabulary[i] = word.toString();
+        }
+        BenchmarkSupport.OntologyFiles files = BenchmarkSupport.syntheticOntology(concepts, 0);
+        List<String> parts = new ArrayList<>(files.parts().subList(0, 1));
+        for (String line : files.parts().subList(1, files.parts().size())) {
+            parts.add(line + " " + vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        Ontology ontology = BenchmarkAccess.buildOntology(parts, files.elements(), files.relations());
+
+        long start = System.nanoTime();
+        FuzzyNameIndex index = new FuzzyNameIndex(ontology);
+        double buildMillis = (System.nanoTime() - start) / 1e6;
+
+        String[] queries = {
+                typo(vocabulary[17], random),      // one misspelt specific term
+                vocabulary[300] + "s",            // one extra letter
+                "arterie",                         // a misspelt common word
+                "superiour " + typo(vocabulary[5], random),
+                "lft",                             // a short word, one edit allowed
+        };
+
+        System.out.printf(Locale.ROOT, "%d names, %d distinct words, index built in %.1f ms%n",
+                ontology.size(), index.wordCount(), buildMillis);
+        System.out.printf(Locale.ROOT, "%-32s %8s %12s %12s%n", "query", "matches", "scan µs", "index µs");
+        long sink = 0;
+        for (String query : queries) {
+            Map<ANode, Integer> expected = scan(ontology, query);
+            Map<ANode, Integer> found = new HashMap<>();
+            for (FuzzyNameIndex.Match match : index.find(query)) {
+                found.put(match.node(), match.distance());
+            }
+            if (!expected.equals(found)) {
+                throw new IllegalStateException("Index finds different concepts for " + query);
+            }
+
+            sink += scan(ontology, query).size(); // warm-up
+            for (int i = 0; i < INDEX_ROUNDS; i++) sink += index.find(query).size();
+            start = System.nanoTime();
+            for (int i = 0; i < SCAN_ROUNDS; i++) sink += scan(ontology, query).size();
+            double scanMicros = (System.nanoTime() - start) / 1e3 / SCAN_ROUNDS;
+            start = System.nanoTime();
+            for (int i = 0; i < INDEX_ROUNDS; i++) sink += index.find(query).size();
+            double indexMicros = (System.nanoTime() - start) / 1e3 / INDEX_ROUNDS;
+
+            System.out.printf(Locale.ROOT, "%-32s %8d %12.0f %12.0f%n", query, expected.size(), scanMicros, indexMicros);
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    /**
+     * Replaces one character in the middle of a word.
+     */
+    private static String typo(String word, Random random) {
+        int i = 1 + random.nextInt(word.length() - 2);
+        return word.substring(0, i) + (char) ('a' + random.nextInt(26)) + word.substring(i + 1);
+    }
+
+    /**
+     * The naive way: every word of every name below the root against every query word.
+     *
+     * @return matching concepts and their summed distances
+     */
+    private static Map<ANode, Integer> scan(Ontology ontology, String query) {
+        String[] queryWords = query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        Map<ANode, Integer> matches = new HashMap<>();
+        for (ANode node : ontology.root().subtree()) {
+            String[] words = node.name().toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+            int total = 0;
+            for (String queryWord : queryWords) {
+                int best = Integer.MAX_VALUE;
+                for (String word : words) {
+                    best = Math.min(best, distance(queryWord, word));
+                }
+                if (best > FuzzyNameIndex.maxDistance(queryWord.length())) {
+                    total = -1;
+                    break;
+                }
+                total += best;
+            }
+            if (total >= 0) {
+                matches.put(node, total);
+            }
+        }
+        return matches;
+    }
+
+    private static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,108 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.model.ANode;
+import HumanAnatomyViewer.model.BenchmarkAccess;
+import HumanAnatomyViewer.model.Ontology;
+import HumanAnatomyViewer.window.LazyTreeItem;
+import HumanAnatomyViewer.window.TreeItemIndex;
+import javafx.scene.control.TreeItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares building every TreeItem up front (the original buildTreeItem) with {@link LazyTreeItem}s,
+ * for a synthetic ontology of the size of the full FMA.
+ *
+ * The lazy tree is measured for startup plus what the user typically does first: one search, and syncing the
+ * tree with a selection of models. The number of tree items created tells how much of the tree was materialized.
+ *
+ * Usage: LazyTreeBenchmark [concepts] [element rows]
+ */
+public class LazyTreeBenchmark {
+
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        int concepts = args.length > 0 ? Integer.parseInt(args[0]) : 75_000;
+        int elementRows = args.length > 1 ? Integer.parseInt(args[1]) : 300_000;
+
+        BenchmarkSupport.OntologyFiles files = BenchmarkSupport.syntheticOntology(concepts, elementRows);
+        Ontology ontology = BenchmarkAccess.buildOntology(files.parts(), files.elements(), files.relations());
+        List<String> selectedFileIds = List.of("FJ1", "FJ2", "FJ3", "FJ4", "FJ5"); // selection sync, as after a click
+
+        for (int i = 0; i < 3; i++) { // warm-up
+            buildEager(ontology.root());
+            TreeItem<ANode> lazy = new LazyTreeItem(ontology.root());
+            search(lazy);
+            new TreeItemIndex(lazy).itemsFor(selectedFileIds);
+        }
+
+        long start = System.nanoTime();
+        TreeItem<ANode> eager = null;
+        for (int i = 0; i < ROUNDS; i++) eager = buildEager(ontology.root());
+        double eagerMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+
+        double[] lazyMillis = new double[3];
+        TreeItem<ANode> lazy = null;
+        for (int i = 0; i < ROUNDS; i++) {
+            long[] phases = new long[4];
+            phases[0] = System.nanoTime();
+            lazy = new LazyTreeItem(ontology.root());
+            phases[1] = System.nanoTime();
+            search(lazy);
+            phases[2] = System.nanoTime();
+            new TreeItemIndex(lazy).itemsFor(selectedFileIds);
+            phases[3] = System.nanoTime();
+            for (int p = 0; p < 3; p++) lazyMillis[p] += (phases[p + 1] - phases[p]) / 1e6 / ROUNDS;
+        }
+
+        System.out.printf(Locale.ROOT, "%d concepts%n", ontology.size());
+        System.out.printf(Locale.ROOT, "eager build                     %8.2f ms, %d tree items%n",
+                eagerMillis, countItems(eager));
+        System.out.printf(Locale.ROOT, "lazy build                      %8.2f ms%n", lazyMillis[0]);
+        System.out.printf(Locale.ROOT, "  + first search                %8.2f ms%n", lazyMillis[1]);
+        System.out.printf(Locale.ROOT, "  + index and selection sync    %8.2f ms, %d tree items in total%n",
+                lazyMillis[2], countItems(lazy));
+    }
+
+    /**
+     * The original, recursive buildTreeItem.
+     */
+    private static TreeItem<ANode> buildEager(ANode node) {
+        TreeItem<ANode> item = new TreeItem<>(node);
+        for (ANode child : node.children()) {
+            item.getChildren().add(buildEager(child));
+        }
+        item.setExpanded(false);
+        return item;
+    }
+
+    /**
+     * Searches for a rare name, like TreeSearchHandler does.
+     */
+    private static void search(TreeItem<ANode> root) {
+        List<ANode> matches = new ArrayList<>();
+        for (ANode node : root.getValue().subtree()) {
+            if (node.name().contains("cartilage of lymph duct")) matches.add(node);
+        }
+        LazyTreeItem.materialize(root, matches);
+    }
+
+    /**
+     * Counts the items that exist, without creating children of lazy items that were never opened.
+     */
+    private static int countItems(TreeItem<ANode> root) {
+        int count = 0;
+        List<TreeItem<ANode>> stack = new ArrayList<>(List.of(root));
+        while (!stack.isEmpty()) {
+            TreeItem<ANode> item = stack.remove(stack.size() - 1);
+            count++;
+            if (!(item instanceof LazyTreeItem lazy) || lazy.isMaterialized()) {
+                stack.addAll(item.getChildren());
+            }
+        }
+        return count;
+    }
+}
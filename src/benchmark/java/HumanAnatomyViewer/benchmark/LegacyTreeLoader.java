@@ -0,0 +1,70 @@
+package HumanAnatomyViewer.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The original map and record based hierarchy loader, kept as the baseline for the ontology benchmarks.
+ * Reads the lines of the three data files instead of classpath resources; otherwise unchanged.
+ */
+class LegacyTreeLoader {
+
+    /**
+     * The original ANode record: one object per concept with its own lists.
+     */
+    record Node(String conceptId, String representationId, String name, List<Node> children, Collection<String> fileIds) {
+    }
+
+    static Node load(List<String> partsLines, List<String> elementsLines, List<String> relationsLines) {
+        Map<String, String> representationIds = new HashMap<>();
+        Map<String, String> names = new HashMap<>();
+        Map<String, List<String>> fileIdsMap = new HashMap<>();
+        Map<String, List<String>> childrenMap = new HashMap<>();
+        Map<String, String> parentMap = new HashMap<>();
+
+        for (String line : partsLines.subList(1, partsLines.size())) {
+            String[] tokens = line.trim().split("\\t");
+            if (tokens.length >= 3) {
+                representationIds.put(tokens[0], tokens[1]);
+                names.put(tokens[0], tokens[2]);
+            }
+        }
+
+        for (String line : elementsLines.subList(1, elementsLines.size())) {
+            String[] tokens = line.trim().split("\\t");
+            if (tokens.length >= 3) {
+                fileIdsMap.computeIfAbsent(tokens[0], k -> new ArrayList<>()).add(tokens[2]);
+            }
+        }
+
+        for (String line : relationsLines.subList(1, relationsLines.size())) {
+            String[] tokens = line.trim().split("\\t");
+            if (tokens.length >= 4) {
+                String parentId = tokens[0];
+                String childId = tokens[2];
+                childrenMap.computeIfAbsent(parentId, k -> new ArrayList<>()).add(childId);
+                parentMap.put(childId, parentId);
+            }
+        }
+
+        String rootId = names.keySet().stream()
+                .filter(id -> !parentMap.containsKey(id))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No root node found"));
+
+        return buildTree(rootId, representationIds, names, fileIdsMap, childrenMap);
+    }
+
+    private static Node buildTree(String conceptId, Map<String, String> representationIds, Map<String, String> names,
+                                  Map<String, List<String>> fileIdsMap, Map<String, List<String>> childrenMap) {
+        List<Node> children = new ArrayList<>();
+        for (String childId : childrenMap.getOrDefault(conceptId, List.of())) {
+            children.add(buildTree(childId, representationIds, names, fileIdsMap, childrenMap));
+        }
+        return new Node(conceptId, representationIds.getOrDefault(conceptId, ""), names.getOrDefault(conceptId, ""),
+                children, fileIdsMap.getOrDefault(conceptId, List.of()));
+    }
+}
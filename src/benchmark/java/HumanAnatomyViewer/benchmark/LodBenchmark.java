@@ -0,0 +1,225 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.model.MeshSimplifier;
+import HumanAnatomyViewer.model.MeshWelder;
+import HumanAnatomyViewer.model.ObjParser;
+import HumanAnatomyViewer.window.LevelOfDetailManager;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.scene.Group;
+import javafx.scene.PerspectiveCamera;
+import javafx.scene.Scene;
+import javafx.scene.SceneAntialiasing;
+import javafx.scene.SubScene;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.transform.Rotate;
+import javafx.stage.Stage;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures level-of-detail generation and its effect on a whole-body scene.
+ *
+ * Given a BodyParts directory, all models are placed at their original coordinates (they share one coordinate system);
+ * without arguments a grid of synthetic spheres stands in for the body. The benchmark reports the time to generate
+ * the levels, the triangle counts per level and the triangles displayed with the camera framing the whole scene.
+ * If a display is available it also renders the scene while rotating it and reports frame times with and without
+ * level-of-detail switching.
+ *
+ * Usage: LodBenchmark [obj file or directory ...]
+ */
+public class LodBenchmark {
+
+    private static final int GRID = 10;
+    private static final double SPACING = 200;
+    private static final long MEASURE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    public static void main(String[] args) throws Exception {
+        List<Path> files = BenchmarkSupport.objFiles(args);
+        boolean synthetic = args.length == 0;
+
+        List<TriangleMesh> meshes = new ArrayList<>();
+        for (Path file : files) {
+            TriangleMesh mesh = ObjParser.load(file.toString());
+            MeshWelder.weld(mesh, MeshWelder.DEFAULT_EPSILON);
+            meshes.add(mesh);
+        }
+
+        // Generate the levels once per distinct mesh
+        long start = System.nanoTime();
+        List<TriangleMesh[]> levels = new ArrayList<>();
+        for (TriangleMesh mesh : meshes) levels.add(MeshSimplifier.buildLevelsOfDetail(mesh));
+        double generateMillis = (System.nanoTime() - start) / 1e6;
+
+        long[] perLevel = new long[MeshSimplifier.LOD_RATIOS.length];
+        for (TriangleMesh[] lods : levels) {
+            for (int i = 0; i < perLevel.length; i++) perLevel[i] += MeshSimplifier.triangleCount(lods[Math.min(i, lods.length - 1)]);
+        }
+        System.out.printf(Locale.ROOT, "Generated levels for %d mesh(es) in %.1f ms, triangles per level: %s%n",
+                meshes.size(), generateMillis, Arrays.toString(perLevel));
+
+        // The scene: synthetic meshes are instanced on a grid, real models stay where they are
+        List<Placed> scene = new ArrayList<>();
+        if (synthetic) {
+            for (int i = 0; i < GRID * GRID; i++) {
+                scene.add(new Placed(levels.get(i % levels.size()), (i % GRID - GRID / 2.0) * SPACING, (i / GRID - GRID / 2.0) * SPACING));
+            }
+        } else {
+            for (TriangleMesh[] lods : levels) scene.add(new Placed(lods, 0, 0));
+        }
+
+        reportFramedTriangles(scene);
+        renderFrameTimes(scene);
+    }
+
+    private record Placed(TriangleMesh[] levels, double x, double y) {
+    }
+
+    /**
+     * Computes which level each model uses when the camera frames the whole scene (as after pressing Show).
+     */
+    private static void reportFramedTriangles(List<Placed> scene) {
+        double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        List<double[]> spheres = new ArrayList<>(); // center x, y, z, radius
+        for (Placed placed : scene) {
+            double[] sphere = boundingSphere(placed.levels()[0]);
+            sphere[0] += placed.x();
+            sphere[1] += placed.y();
+            spheres.add(sphere);
+            for (int c = 0; c < 3; c++) {
+                min[c] = Math.min(min[c], sphere[c] - sphere[3]);
+                max[c] = Math.max(max[c], sphere[c] + sphere[3]);
+            }
+        }
+        // Same framing as WindowPresenter.autoAdjustCamera: centered, at 2.2 times the largest extent
+        double maxDim = Math.max(Math.max(max[0] - min[0], max[1] - min[1]), max[2] - min[2]);
+        double[] eye = {(min[0] + max[0]) / 2, (min[1] + max[1]) / 2, (min[2] + max[2]) / 2 - maxDim * 2.2};
+        double tanHalfFov = Math.tan(Math.toRadians(new PerspectiveCamera(true).getFieldOfView() / 2));
+
+        long full = 0;
+        long displayed = 0;
+        int[] modelsPerLevel = new int[MeshSimplifier.LOD_RATIOS.length];
+        for (int i = 0; i < scene.size(); i++) {
+            TriangleMesh[] lods = scene.get(i).levels();
+            double[] s = spheres.get(i);
+            double distance = Math.sqrt(Math.pow(s[0] - eye[0], 2) + Math.pow(s[1] - eye[1], 2) + Math.pow(s[2] - eye[2], 2));
+            int level = LevelOfDetailManager.levelFor(s[3], distance, tanHalfFov, lods.length);
+            modelsPerLevel[level]++;
+            full += MeshSimplifier.triangleCount(lods[0]);
+            displayed += MeshSimplifier.triangleCount(lods[level]);
+        }
+        System.out.printf(Locale.ROOT, "Whole scene framed: %d models, models per level %s, triangles %d -> %d (%.1f%%)%n",
+                scene.size(), Arrays.toString(modelsPerLevel), full, displayed, 100.0 * displayed / full);
+    }
+
+    private static double[] boundingSphere(TriangleMesh mesh) {
+        float[] points = mesh.getPoints().toArray(null);
+        double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = 0; i < points.length; i++) {
+            min[i % 3] = Math.min(min[i % 3], points[i]);
+            max[i % 3] = Math.max(max[i % 3], points[i]);
+        }
+        double dx = max[0] - min[0], dy = max[1] - min[1], dz = max[2] - min[2];
+        return new double[]{(min[0] + max[0]) / 2, (min[1] + max[1]) / 2, (min[2] + max[2]) / 2,
+                Math.sqrt(dx * dx + dy * dy + dz * dz) / 2};
+    }
+
+    /**
+     * Renders the scene while rotating it, once with full resolution meshes and once with level-of-detail switching.
+     */
+    private static void renderFrameTimes(List<Placed> scene) throws Exception {
+        try {
+            Platform.startup(() -> {
+            });
+        } catch (UnsupportedOperationException | IllegalStateException e) {
+            System.out.println("No display available (" + e.getMessage() + "), skipping frame time measurement");
+            return;
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            Group models = new Group();
+            for (Placed placed : scene) {
+                MeshView view = new MeshView(placed.levels()[0]);
+                view.setTranslateX(placed.x());
+                view.setTranslateY(placed.y());
+                models.getChildren().add(new Group(view));
+            }
+            Rotate rotate = new Rotate(0, Rotate.Y_AXIS);
+            Group content = new Group(models);
+            content.getTransforms().add(rotate);
+
+            PerspectiveCamera camera = new PerspectiveCamera(true);
+            camera.setNearClip(0.1);
+            camera.setFarClip(100000);
+            SubScene subScene = new SubScene(new Group(content), 1000, 800, true, SceneAntialiasing.BALANCED);
+            subScene.setCamera(camera);
+            Stage stage = new Stage();
+            stage.setScene(new Scene(new Group(subScene)));
+            stage.show();
+
+            Bounds bounds = models.getBoundsInParent();
+            double cx = (bounds.getMinX() + bounds.getMaxX()) / 2, cy = (bounds.getMinY() + bounds.getMaxY()) / 2;
+            models.setTranslateX(-cx);
+            models.setTranslateY(-cy);
+            camera.setTranslateZ(-2.2 * Math.max(Math.max(bounds.getWidth(), bounds.getHeight()), bounds.getDepth()));
+
+            LevelOfDetailManager manager = new LevelOfDetailManager(camera, subScene, models);
+            for (int i = 0; i < models.getChildren().size(); i++) {
+                // Levels were generated above already, so hand them over instead of generating them again
+                MeshView view = (MeshView) ((Group) models.getChildren().get(i)).getChildren().get(0);
+                manager.setLevels(view, scene.get(i).levels());
+            }
+
+            new AnimationTimer() {
+                private final List<Long> frames = new ArrayList<>();
+                private long phaseStart = -1;
+                private long previous = -1;
+                private boolean lod = false;
+
+                @Override
+                public void handle(long now) {
+                    rotate.setAngle(rotate.getAngle() + 1);
+                    if (phaseStart < 0) {
+                        manager.setEnabled(lod);
+                        manager.update();
+                        phaseStart = now;
+                        previous = now;
+                        frames.clear();
+                        return;
+                    }
+                    frames.add(now - previous);
+                    previous = now;
+                    if (now - phaseStart < MEASURE_NANOS) return;
+
+                    long[] sorted = frames.stream().mapToLong(Long::longValue).sorted().toArray();
+                    double average = Arrays.stream(sorted).average().orElse(0) / 1e6;
+                    double p95 = sorted.length == 0 ? 0 : sorted[(int) (0.95 * (sorted.length - 1))] / 1e6;
+                    System.out.printf(Locale.ROOT, "%-22s %9d triangles  avg frame %6.2f ms  p95 %6.2f ms  (%d frames)%n",
+                            lod ? "level of detail" : "full resolution", manager.displayedTriangles(), average, p95, sorted.length);
+
+                    if (lod) {
+                        stop();
+                        stage.close();
+                        done.countDown();
+                    } else {
+                        lod = true;
+                        phaseStart = -1;
+                    }
+                }
+            }.start();
+        });
+        done.await();
+        Platform.exit();
+    }
+}
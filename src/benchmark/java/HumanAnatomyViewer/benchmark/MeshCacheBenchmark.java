@@ -0,0 +1,77 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.model.MeshCache;
+import HumanAnatomyViewer.model.ObjParser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the startup effect of the compiled mesh cache.
+ * The input files are copied to a temporary directory, then loaded three ways:
+ * parsing only (cache disabled), cold (parse and write the cache) and warm (read the cache).
+ *
+ * Usage: MeshCacheBenchmark [obj file or directory ...]
+ */
+public class MeshCacheBenchmark {
+
+    private static final int WARM_ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        List<Path> sources = BenchmarkSupport.objFiles(args);
+
+        Path directory = Files.createTempDirectory("meshcache");
+        List<Path> files = new ArrayList<>();
+        for (Path source : sources) {
+            files.add(Files.copy(source, directory.resolve(source.getFileName())));
+        }
+
+        // Warm up the parser so the comparison is not dominated by JIT compilation
+        for (int i = 0; i < 3; i++) {
+            for (Path file : files) ObjParser.load(file.toString());
+        }
+
+        MeshCache.setEnabled(false);
+        double parseOnly = time(files, 1);
+
+        MeshCache.setEnabled(true);
+        double cold = time(files, 1);
+        long cacheBytes = 0;
+        for (Path file : files) cacheBytes += Files.size(MeshCache.cacheFileFor(file));
+
+        double warm = time(files, WARM_ROUNDS);
+
+        // The cache must give back exactly what the parser produces
+        for (Path file : files) {
+            if (!BenchmarkSupport.sameMesh(ObjParser.load(file.toString()), MeshCache.load(file))) {
+                throw new IllegalStateException("Cached mesh differs from parsed mesh for " + file);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%d file(s), cache size %s%n", files.size(), BenchmarkSupport.megabytes(cacheBytes));
+        System.out.printf(Locale.ROOT, "parse only        %9.1f ms%n", parseOnly);
+        System.out.printf(Locale.ROOT, "cold (parse+write)%9.1f ms%n", cold);
+        System.out.printf(Locale.ROOT, "warm (cache hit)  %9.1f ms%n", warm);
+        System.out.printf(Locale.ROOT, "warm speedup over parsing: %.2fx%n", parseOnly / warm);
+
+        for (Path file : files) {
+            Files.deleteIfExists(MeshCache.cacheFileFor(file));
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * @return average time in milliseconds to load all files once
+     */
+    private static double time(List<Path> files, int rounds) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (Path file : files) MeshCache.load(file);
+        }
+        return (System.nanoTime() - start) / 1e6 / rounds;
+    }
+}
@@ -0,0 +1,105 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.model.BinaryMesh;
+import HumanAnatomyViewer.model.MeshCodec;
+import HumanAnatomyViewer.model.ObjParser;
+import javafx.scene.shape.TriangleMesh;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares the lossy {@link MeshCodec} with the exact {@link BinaryMesh} encoding.
+ * Reports the encoded size relative to the exact encoding, the decode throughput and the maximum
+ * positional error, both absolute and relative to the bounding box of the mesh it occurs in.
+ *
+ * Usage: MeshCodecBenchmark [obj file or directory ...]
+ */
+public class MeshCodecBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        List<TriangleMesh> meshes = new ArrayList<>();
+        for (Path file : BenchmarkSupport.objFiles(args)) {
+            meshes.add(ObjParser.load(file.toString()));
+        }
+
+        List<ByteBuffer> exact = new ArrayList<>();
+        List<ByteBuffer> quantized = new ArrayList<>();
+        List<ByteBuffer> deflated = new ArrayList<>();
+        for (TriangleMesh mesh : meshes) {
+            exact.add(BinaryMesh.encode(mesh));
+            quantized.add(MeshCodec.encode(mesh, false));
+            deflated.add(MeshCodec.encode(mesh, true));
+        }
+
+        // Faces must survive exactly, points within half a quantization step
+        double maxError = 0;
+        double maxRelativeError = 0;
+        for (int i = 0; i < meshes.size(); i++) {
+            TriangleMesh original = meshes.get(i);
+            TriangleMesh decoded = MeshCodec.decode(deflated.get(i).duplicate());
+            if (!Arrays.equals(original.getFaces().toArray(null), decoded.getFaces().toArray(null))) {
+                throw new IllegalStateException("Faces differ after decoding mesh " + i);
+            }
+            float[] expected = original.getPoints().toArray(null);
+            float[] actual = decoded.getPoints().toArray(null);
+            double meshError = 0;
+            for (int j = 0; j < expected.length; j++) {
+                meshError = Math.max(meshError, Math.abs(expected[j] - actual[j]));
+            }
+            maxError = Math.max(maxError, meshError);
+            maxRelativeError = Math.max(maxRelativeError, meshError / boundingBoxDiagonal(expected));
+        }
+
+        long exactBytes = totalSize(exact);
+        System.out.printf(Locale.ROOT, "%d mesh(es), max positional error %.6f (%.5f%% of the bounding box diagonal)%n",
+                meshes.size(), maxError, 100 * maxRelativeError);
+        report("exact (BinaryMesh)", exact, exactBytes, false);
+        report("quantized + varint faces", quantized, exactBytes, true);
+        report("quantized + varint + deflate", deflated, exactBytes, true);
+    }
+
+    private static void report(String label, List<ByteBuffer> encoded, long exactBytes, boolean codec) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) decodeAll(encoded, codec);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) decodeAll(encoded, codec);
+        double seconds = (System.nanoTime() - start) / 1e9 / MEASURED_ROUNDS;
+
+        long bytes = totalSize(encoded);
+        System.out.printf(Locale.ROOT, "%-30s %12s  ratio %5.2fx  decode %8.1f ms (%7.1f MB/s of exact mesh data)%n",
+                label, BenchmarkSupport.megabytes(bytes), (double) exactBytes / bytes,
+                1000 * seconds, exactBytes / seconds / (1 << 20));
+    }
+
+    private static void decodeAll(List<ByteBuffer> encoded, boolean codec) throws Exception {
+        for (ByteBuffer buffer : encoded) {
+            if (codec) MeshCodec.decode(buffer.duplicate());
+            else BinaryMesh.decode(buffer.duplicate());
+        }
+    }
+
+    private static long totalSize(List<ByteBuffer> buffers) {
+        long size = 0;
+        for (ByteBuffer buffer : buffers) size += buffer.remaining();
+        return size;
+    }
+
+    private static double boundingBoxDiagonal(float[] points) {
+        double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = 0; i < points.length; i++) {
+            min[i % 3] = Math.min(min[i % 3], points[i]);
+            max[i % 3] = Math.max(max[i % 3], points[i]);
+        }
+        double dx = max[0] - min[0], dy = max[1] - min[1], dz = max[2] - min[2];
+        return Math.max(Math.sqrt(dx * dx + dy * dy + dz * dz), Double.MIN_VALUE);
+    }
+}
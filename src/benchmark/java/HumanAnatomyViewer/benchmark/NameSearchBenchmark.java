@@ -0,0 +1,112 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.model.ANode;
+import HumanAnatomyViewer.model.BenchmarkAccess;
+import HumanAnatomyViewer.model.NameIndex;
+import HumanAnatomyViewer.model.Ontology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Compares query latency of the tree search testing every name with "(?i).*(x).*" (as TreeSearchHandler did) with
+ * the {@link NameIndex} trigram index plus "(?i)(x)", for a synthetic ontology of 100,000 names.
+ * Queries are split like TreeSearchHandler.search splits them, and both ways must find the same concepts.
+ *
+ * The synthetic names are the usual modifiers plus one specific term from a larger vocabulary, like
+ * "left anterior branch of vastula"; a name search usually targets such a term.
+ *
+ * Usage: NameSearchBenchmark [concepts]
+ */
+public class NameSearchBenchmark {
+
+    private static final int SCAN_ROUNDS = 3;
+    private static final int INDEX_ROUNDS = 50;
+    private static final String[] SYLLABLES = {"ba", "cer", "fe", "mo", "ris", "tal", "va", "stu", "la", "pu",
+            "bi", "ceps", "gas", "tro", "cne", "mi", "us", "sar", "to", "ri", "ple", "xus", "co", "sta"};
+
+    public static void main(String[] args) {
+        int concepts = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        // Each name gets a specific term from a vocabulary of a few thousand words
+        Random random = new Random(11);
+        String[] vocabulary = new String[4000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 2 + random.nextInt(3); s > 0; s--) word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            vocabulary[i] = word.toString();
+        }
+        BenchmarkSupport.OntologyFiles files = BenchmarkSupport.syntheticOntology(concepts, 0);
+        List<String> parts = new ArrayList<>(files.parts().subList(0, 1));
+        for (String line : files.parts().subList(1, files.parts().size())) {
+            parts.add(line + " " + vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        Ontology ontology = BenchmarkAccess.buildOntology(parts, files.elements(), files.relations());
+
+        long start = System.nanoTime();
+        NameIndex index = ontology.nameIndex();
+        double buildMillis = (System.nanoTime() - start) / 1e6;
+
+        String[] queries = {
+                vocabulary[17],                                 // one specific term
+                "artery",                                       // a common word
+                "left.*" + vocabulary[5],                       // regex with two literals
+                "^superior " + vocabulary[99].substring(0, 4), // anchored prefix
+                String.join("|", Arrays.copyOfRange(vocabulary, 200, 208)), // AI-style alternation
+                "[0-9]",                                        // no literal, tests every name
+        };
+
+        System.out.printf(Locale.ROOT, "%d names, %d trigrams, index built in %.1f ms, %s%n",
+                index.size(), index.trigramCount(), buildMillis, BenchmarkSupport.megabytes(index.heapBytes()));
+        System.out.printf(Locale.ROOT, "%-40s %8s %12s %12s%n", "query", "matches", "scan µs", "index µs");
+        long sink = 0;
+        for (String query : queries) {
+            // As TreeSearchHandler.search splits the query, compiled the old and the new way
+            List<String> regexes = Arrays.asList(query.trim().split("\\s*[,;|]\\s*"));
+            List<Pattern> wrapped = new ArrayList<>();
+            List<Pattern> patterns = new ArrayList<>();
+            for (String regex : regexes) {
+                wrapped.add(Pattern.compile("(?i).*(" + regex + ").*"));
+                patterns.add(Pattern.compile("(?i)(" + regex + ")"));
+            }
+
+            List<ANode> expected = scan(ontology.root(), wrapped);
+            if (!expected.equals(index.find(regexes, patterns))) {
+                throw new IllegalStateException("Index finds different concepts for " + query);
+            }
+
+            sink += scan(ontology.root(), wrapped).size(); // warm-up
+            for (int i = 0; i < 5; i++) sink += index.find(regexes, patterns).size();
+            start = System.nanoTime();
+            for (int i = 0; i < SCAN_ROUNDS; i++) sink += scan(ontology.root(), wrapped).size();
+            double scanMicros = (System.nanoTime() - start) / 1e3 / SCAN_ROUNDS;
+            start = System.nanoTime();
+            for (int i = 0; i < INDEX_ROUNDS; i++) sink += index.find(regexes, patterns).size();
+            double indexMicros = (System.nanoTime() - start) / 1e3 / INDEX_ROUNDS;
+
+            String label = query.length() > 40 ? query.substring(0, 37) + "..." : query;
+            System.out.printf(Locale.ROOT, "%-40s %8d %12.0f %12.0f%n", label, expected.size(), scanMicros, indexMicros);
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    /**
+     * The original way: every name below the root is tested against every pattern.
+     */
+    private static List<ANode> scan(ANode root, List<Pattern> patterns) {
+        List<ANode> matches = new ArrayList<>();
+        for (ANode node : root.subtree()) {
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(node.name()).find()) {
+                    matches.add(node);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,141 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.model.ObjParser;
+import javafx.scene.shape.TriangleMesh;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares the byte-scanning {@link ObjParser} with the original line/regex parser.
+ * Reports the average parse time and the bytes allocated per parse for each implementation. Files above
+ * {@link ObjParser#PARALLEL_THRESHOLD} are parsed on the fork/join pool, so allocations are counted over all threads.
+ *
+ * Also checks that coordinates with many significant digits close to halfway between two floats are read like
+ * {@link Float#parseFloat(String)} reads them, and that a malformed line in a later chunk of a parallel parse is
+ * reported with its line in the file.
+ *
+ * Usage: ObjParserBenchmark [obj file or directory ...]
+ */
+public class ObjParserBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        List<Path> files = BenchmarkSupport.objFiles(args);
+        long totalBytes = 0;
+        for (Path file : files) totalBytes += Files.size(file);
+        System.out.println(files.size() + " file(s), " + BenchmarkSupport.megabytes(totalBytes));
+
+        // Both parsers must produce the same mesh
+        for (Path file : files) {
+            TriangleMesh expected = LegacyObjParser.load(file.toString());
+            TriangleMesh actual = ObjParser.load(file.toString());
+            if (!BenchmarkSupport.sameMesh(expected, actual)) {
+                throw new IllegalStateException("Parsers disagree on " + file);
+            }
+        }
+
+        checkFloatRounding();
+        checkErrorLine();
+
+        Result legacy = run("legacy (split + boxed lists)", files, true);
+        Result scanner = run("byte scanner (primitive arrays)", files, false);
+
+        System.out.printf(Locale.ROOT, "Speedup: %.2fx, allocation reduced by %.1f%%%n",
+                legacy.millis / scanner.millis,
+                100.0 * (legacy.allocated - scanner.allocated) / legacy.allocated);
+    }
+
+    private static Result run(String label, List<Path> files, boolean legacy) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) parseAll(files, legacy);
+
+        long allocatedBefore = BenchmarkSupport.allocatedBytesAllThreads();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) parseAll(files, legacy);
+        double millis = (System.nanoTime() - start) / 1e6 / MEASURED_ROUNDS;
+        long allocated = (BenchmarkSupport.allocatedBytesAllThreads() - allocatedBefore) / MEASURED_ROUNDS;
+
+        System.out.printf(Locale.ROOT, "%-34s %9.1f ms/round %12s allocated/round%n",
+                label, millis, BenchmarkSupport.megabytes(allocated));
+        return new Result(millis, allocated);
+    }
+
+    /**
+     * Parses decimals of 9 to 18 significant digits next to the midpoints between adjacent floats, where rounding
+     * through a double can round the wrong way, and compares each coordinate with {@link Float#parseFloat(String)}.
+     */
+    private static void checkFloatRounding() throws IOException {
+        Random random = new Random(5);
+        List<String> tokens = new ArrayList<>(List.of("46.17563056945801", "0.000000", "-0.0"));
+        while (tokens.size() < 30_000) {
+            float f = (float) ((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 4));
+            BigDecimal midpoint = new BigDecimal(f).add(new BigDecimal(Math.ulp(f) / 2));
+            tokens.add(midpoint.round(new MathContext(9 + random.nextInt(10))).toPlainString());
+        }
+        StringBuilder obj = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i += 3) {
+            obj.append("v ").append(tokens.get(i)).append(' ').append(tokens.get(i + 1)).append(' ')
+                    .append(tokens.get(i + 2)).append('\n');
+        }
+        obj.append("f 1 2 3\n");
+        Path file = Files.createTempFile("rounding", ".obj");
+        file.toFile().deleteOnExit();
+        Files.writeString(file, obj);
+
+        float[] points = ObjParser.load(file.toString()).getPoints().toArray(null);
+        for (int i = 0; i < tokens.size(); i++) {
+            if (Float.floatToIntBits(points[i]) != Float.floatToIntBits(Float.parseFloat(tokens.get(i)))) {
+                throw new IllegalStateException("Read " + tokens.get(i) + " as " + points[i]
+                        + ", Float.parseFloat gives " + Float.parseFloat(tokens.get(i)));
+            }
+        }
+        System.out.println(tokens.size() + " coordinates near float midpoints read like Float.parseFloat");
+    }
+
+    /**
+     * Inserts a malformed vertex three quarters into a file large enough for the parallel path, and checks that the
+     * error names that line of the file rather than a line within its chunk.
+     */
+    private static void checkErrorLine() throws IOException {
+        Path file = Files.createTempFile("malformed", ".obj");
+        file.toFile().deleteOnExit();
+        BenchmarkSupport.writeSyntheticObj(file, 400, 400, true);
+        List<String> lines = new ArrayList<>(Files.readAllLines(file));
+        int badLine = lines.size() * 3 / 4; // index of the inserted line, i.e. file line badLine + 1
+        lines.add(badLine, "v 1.0 oops 2.0");
+        Files.write(file, lines);
+        if (Files.size(file) <= ObjParser.PARALLEL_THRESHOLD) {
+            throw new IllegalStateException("Malformed test file is too small for the parallel path");
+        }
+
+        try {
+            ObjParser.load(file.toString());
+        } catch (IOException e) {
+            if (!e.getMessage().contains(": line " + (badLine + 1) + ":")) {
+                throw new IllegalStateException("Expected an error at line " + (badLine + 1) + ", got: " + e.getMessage());
+            }
+            System.out.println("Malformed line in a later chunk reported at line " + (badLine + 1));
+            return;
+        }
+        throw new IllegalStateException("Malformed line " + (badLine + 1) + " was not reported");
+    }
+
+    private static void parseAll(List<Path> files, boolean legacy) throws Exception {
+        for (Path file : files) {
+            if (legacy) LegacyObjParser.load(file.toString());
+            else ObjParser.load(file.toString());
+        }
+    }
+
+    private record Result(double millis, long allocated) {
+    }
+}
@@ -0,0 +1,75 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.model.ANode;
+import HumanAnatomyViewer.model.BenchmarkAccess;
+import HumanAnatomyViewer.model.Ontology;
+import HumanAnatomyViewer.model.TreeLoader;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares the retained heap of the original ANode object tree with the compact {@link Ontology} store,
+ * for a synthetic ontology of the size of the full FMA.
+ *
+ * The retained size is the growth of the used heap, after garbage collection, while the result is still referenced.
+ * The ontology is measured twice: the store alone, and with a view created for every concept (as when
+ * the whole tree is shown in a TreeView).
+ *
+ * Usage: OntologyMemoryBenchmark [concepts] [element rows]
+ */
+public class OntologyMemoryBenchmark {
+
+    public static void main(String[] args) {
+        int concepts = args.length > 0 ? Integer.parseInt(args[0]) : 75_000;
+        int elementRows = args.length > 1 ? Integer.parseInt(args[1]) : 300_000;
+
+        BenchmarkSupport.OntologyFiles files = BenchmarkSupport.syntheticOntology(concepts, elementRows);
+        List<String> parts = files.parts();
+        List<String> elements = files.elements();
+        List<String> relations = files.relations();
+
+        long legacyBytes = retained(() -> LegacyTreeLoader.load(parts, elements, relations));
+        long storeBytes = retained(() -> BenchmarkAccess.buildOntology(parts, elements, relations));
+        long viewBytes = retained(() -> {
+            Ontology ontology = BenchmarkAccess.buildOntology(parts, elements, relations);
+            for (int i = 0; i < ontology.size(); i++) ontology.node(i);
+            return ontology;
+        });
+        Ontology ontology = BenchmarkAccess.buildOntology(parts, elements, relations);
+
+        System.out.printf(Locale.ROOT, "%d concepts, %d element rows, %d distinct file IDs%n",
+                ontology.size(), elementRows, ontology.distinctFileIds());
+        System.out.printf(Locale.ROOT, "ANode object tree   %s%n", BenchmarkSupport.megabytes(legacyBytes));
+        System.out.printf(Locale.ROOT, "ontology store      %s (estimated %s)%n",
+                BenchmarkSupport.megabytes(storeBytes), BenchmarkSupport.megabytes(ontology.heapBytes()));
+        System.out.printf(Locale.ROOT, "store + all views   %s%n", BenchmarkSupport.megabytes(viewBytes));
+        System.out.printf(Locale.ROOT, "savings: %.1fx (store), %.1fx (with views)%n",
+                (double) legacyBytes / storeBytes, (double) legacyBytes / viewBytes);
+
+        // Same answers as the original tree
+        ANode root = ontology.root();
+        LegacyTreeLoader.Node legacyRoot = LegacyTreeLoader.load(parts, elements, relations);
+        if (!root.conceptId().equals(legacyRoot.conceptId()) || root.children().size() != legacyRoot.children().size()) {
+            throw new IllegalStateException("Ontology differs from the original tree");
+        }
+    }
+
+    private interface Loader {
+        Object load();
+    }
+
+    private static long retained(Loader loader) {
+        long before = usedHeap();
+        Object result = loader.load();
+        long after = usedHeap();
+        if (result == null) throw new IllegalStateException();
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
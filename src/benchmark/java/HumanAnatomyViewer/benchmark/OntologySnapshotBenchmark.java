@@ -0,0 +1,59 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.model.Ontology;
+import HumanAnatomyViewer.model.OntologySnapshot;
+import HumanAnatomyViewer.model.TreeLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Compares loading a hierarchy from its TSV files with reading it back from an {@link OntologySnapshot}.
+ * The TSV time covers reading the lines and building the ontology, like the application does at startup.
+ *
+ * Usage: OntologySnapshotBenchmark parts-file elements-file relations-file
+ *        (defaults to the part-of files in src/main/resources)
+ */
+public class OntologySnapshotBenchmark {
+
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        Path resources = Path.of("src/main/resources");
+        Path parts = args.length == 3 ? Path.of(args[0]) : resources.resolve("partof_parts_list_e.txt");
+        Path elements = args.length == 3 ? Path.of(args[1]) : resources.resolve("partof_element_parts.txt");
+        Path relations = args.length == 3 ? Path.of(args[2]) : resources.resolve("partof_inclusion_relation_list.txt");
+
+        Path snapshot = Files.createTempFile("ontology", ".snapshot");
+        OntologySnapshot.write(snapshot, 1, loadTsv(parts, elements, relations));
+
+        // Warm up both paths so the comparison is not dominated by JIT compilation
+        for (int i = 0; i < 5; i++) {
+            loadTsv(parts, elements, relations);
+            OntologySnapshot.readIfFresh(snapshot, 1, 1);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) loadTsv(parts, elements, relations);
+        double tsv = (System.nanoTime() - start) / 1e6 / ROUNDS;
+
+        start = System.nanoTime();
+        Ontology ontology = null;
+        for (int i = 0; i < ROUNDS; i++) ontology = OntologySnapshot.readIfFresh(snapshot, 1, 1)[0];
+        double binary = (System.nanoTime() - start) / 1e6 / ROUNDS;
+
+        System.out.printf(Locale.ROOT, "%d concepts, snapshot %s%n", ontology.size(), BenchmarkSupport.megabytes(Files.size(snapshot)));
+        System.out.printf(Locale.ROOT, "TSV files  %8.2f ms%n", tsv);
+        System.out.printf(Locale.ROOT, "snapshot   %8.2f ms%n", binary);
+        System.out.printf(Locale.ROOT, "speedup: %.1fx%n", tsv / binary);
+        if (OntologySnapshot.readIfFresh(snapshot, 2, 1) != null) {
+            throw new IllegalStateException("stale snapshot was accepted");
+        }
+        Files.delete(snapshot);
+    }
+
+    private static Ontology loadTsv(Path parts, Path elements, Path relations) throws Exception {
+        return TreeLoader.loadOntology(parts, elements, relations);
+    }
+}
@@ -0,0 +1,95 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.window.SceneReconciler;
+import javafx.scene.Group;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Measures hiding one model out of many: rebuilding the scene from scratch (clear, then re-add every model with a
+ * contains check, as show and hide used to do) against reconciling the scene with the new set of file IDs.
+ *
+ * Usage: SceneReconcileBenchmark [number of models]
+ */
+public class SceneReconcileBenchmark {
+
+    private static final int ROUNDS = 50;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        Map<String, Group> models = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            models.put("FJ" + i, new Group(new Group()));
+        }
+        Set<String> all = new LinkedHashSet<>(models.keySet());
+        List<Set<String>> hideOne = new ArrayList<>();
+        for (int r = 0; r < ROUNDS; r++) {
+            Set<String> target = new LinkedHashSet<>(all);
+            target.remove("FJ" + (r * 7919 % count));
+            hideOne.add(target);
+        }
+
+        // Warm up both variants so the comparison is not dominated by JIT compilation
+        for (int i = 0; i < 3; i++) {
+            rebuild(models, all, hideOne);
+            reconcile(models, all, hideOne);
+        }
+        double rebuild = rebuild(models, all, hideOne);
+        double reconcile = reconcile(models, all, hideOne);
+
+        System.out.printf(Locale.ROOT, "Hide 1 of %d models, average of %d rounds%n", count, ROUNDS);
+        System.out.printf(Locale.ROOT, "clear and rebuild %9.3f ms%n", rebuild);
+        System.out.printf(Locale.ROOT, "reconcile         %9.3f ms%n", reconcile);
+        System.out.printf(Locale.ROOT, "speedup: %.1fx%n", rebuild / reconcile);
+    }
+
+    private static double rebuild(Map<String, Group> models, Set<String> all, List<Set<String>> targets) {
+        Group scene = new Group();
+        show(scene, models, all);
+        long nanos = 0;
+        for (Set<String> target : targets) {
+            long start = System.nanoTime();
+            show(scene, models, target);
+            nanos += System.nanoTime() - start;
+            show(scene, models, all);
+        }
+        return nanos / 1e6 / targets.size();
+    }
+
+    private static void show(Group scene, Map<String, Group> models, Set<String> target) {
+        scene.getChildren().clear();
+        for (String fileId : target) {
+            Group model = models.get(fileId);
+            if (!scene.getChildren().contains(model)) {
+                scene.getChildren().add(model);
+            }
+        }
+    }
+
+    private static double reconcile(Map<String, Group> models, Set<String> all, List<Set<String>> targets) {
+        Group scene = new Group();
+        SceneReconciler reconciler = new SceneReconciler(scene);
+        show(reconciler, models, all);
+        long nanos = 0;
+        for (Set<String> target : targets) {
+            long start = System.nanoTime();
+            show(reconciler, models, target);
+            nanos += System.nanoTime() - start;
+            show(reconciler, models, all);
+        }
+        return nanos / 1e6 / targets.size();
+    }
+
+    private static void show(SceneReconciler reconciler, Map<String, Group> models, Set<String> target) {
+        for (String fileId : reconciler.reconcile(target).missing()) {
+            reconciler.add(fileId, models.get(fileId));
+        }
+    }
+}
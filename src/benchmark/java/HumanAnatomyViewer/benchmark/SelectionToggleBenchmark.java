@@ -0,0 +1,95 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.window.FileIdSelection;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.shape.DrawMode;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.Shape3D;
+import javafx.scene.shape.TriangleMesh;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Measures toggling the selection of one model while many models are loaded: re-applying the draw mode
+ * to every loaded model (as selection changes used to do) against applying it to the changed models only.
+ *
+ * Usage: SelectionToggleBenchmark [number of models ...]
+ */
+public class SelectionToggleBenchmark {
+
+    private static final int ROUNDS = 200;
+
+    public static void main(String[] args) {
+        int[] counts = args.length == 0 ? new int[]{500, 2000, 8000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) counts[i] = Integer.parseInt(args[i]);
+
+        System.out.printf(Locale.ROOT, "%8s %14s %14s%n", "models", "full walk", "delta only");
+        for (int count : counts) {
+            Map<String, Group> models = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                // Two shapes per model, as a model group may hold several meshes
+                models.put("FJ" + i, new Group(new MeshView(new TriangleMesh()), new Group(new MeshView(new TriangleMesh()))));
+            }
+
+            // Warm up both variants so the comparison is not dominated by JIT compilation
+            for (int i = 0; i < 3; i++) {
+                fullWalk(models);
+                deltaOnly(models);
+            }
+            System.out.printf(Locale.ROOT, "%8d %11.3f ms %11.3f ms%n", count, fullWalk(models), deltaOnly(models));
+        }
+    }
+
+    /**
+     * Toggles one model at a time, then walks all models like the former applyDrawModeBasedOnSelection.
+     */
+    private static double fullWalk(Map<String, Group> models) {
+        FileIdSelection selection = new FileIdSelection();
+        selection.set(models.keySet());
+        List<String> ids = List.copyOf(models.keySet());
+        long nanos = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            selection.toggle(ids.get(r * 7919 % ids.size()));
+            for (Map.Entry<String, Group> entry : models.entrySet()) {
+                setDrawMode(entry.getValue(), selection.contains(entry.getKey()) ? DrawMode.FILL : DrawMode.LINE);
+            }
+            nanos += System.nanoTime() - start;
+        }
+        return nanos / 1e6 / ROUNDS;
+    }
+
+    /**
+     * Toggles one model at a time; a selection listener redraws only the models in the change.
+     */
+    private static double deltaOnly(Map<String, Group> models) {
+        FileIdSelection selection = new FileIdSelection();
+        selection.set(models.keySet());
+        selection.addListener(change -> {
+            for (String fileId : change.added()) setDrawMode(models.get(fileId), DrawMode.FILL);
+            for (String fileId : change.removed()) setDrawMode(models.get(fileId), DrawMode.LINE);
+        });
+        List<String> ids = List.copyOf(models.keySet());
+        long nanos = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            selection.toggle(ids.get(r * 7919 % ids.size()));
+            nanos += System.nanoTime() - start;
+        }
+        return nanos / 1e6 / ROUNDS;
+    }
+
+    private static void setDrawMode(Group group, DrawMode mode) {
+        for (Node node : group.getChildren()) {
+            if (node instanceof Shape3D shape) {
+                shape.setDrawMode(mode);
+            } else if (node instanceof Group subGroup) {
+                setDrawMode(subGroup, mode);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.model.ANode;
+import HumanAnatomyViewer.model.BenchmarkAccess;
+import HumanAnatomyViewer.model.FileIdSet;
+import HumanAnatomyViewer.model.Ontology;
+import HumanAnatomyViewer.model.SubtreeFileIds;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares collecting the file IDs under selected nodes by walking their subtrees (collectDescendants, then
+ * flat-mapping fileIds) with a union of the precomputed {@link SubtreeFileIds} sets,
+ * for a synthetic ontology of the size of the full FMA.
+ *
+ * Usage: SubtreeFileIdsBenchmark [concepts] [element rows]
+ */
+public class SubtreeFileIdsBenchmark {
+
+    private static final int ROUNDS = 200;
+
+    public static void main(String[] args) {
+        int concepts = args.length > 0 ? Integer.parseInt(args[0]) : 75_000;
+        int elementRows = args.length > 1 ? Integer.parseInt(args[1]) : 300_000;
+
+        BenchmarkSupport.OntologyFiles files = BenchmarkSupport.syntheticOntology(concepts, elementRows);
+        Ontology ontology = BenchmarkAccess.buildOntology(files.parts(), files.elements(), files.relations());
+
+        long start = System.nanoTime();
+        SubtreeFileIds subtrees = new SubtreeFileIds(ontology);
+        double precompute = (System.nanoTime() - start) / 1e6; // cold, as at startup
+        for (int i = 0; i < 5; i++) new SubtreeFileIds(ontology);
+        start = System.nanoTime();
+        new SubtreeFileIds(ontology);
+        double precomputeWarm = (System.nanoTime() - start) / 1e6;
+
+        // Selections of a few nodes near the top, where walking is most expensive
+        Random random = new Random(7);
+        List<List<ANode>> selections = new ArrayList<>();
+        for (int i = 0; i < ROUNDS; i++) {
+            List<ANode> selection = new ArrayList<>();
+            for (int n = 0; n < 3; n++) selection.add(ontology.node(random.nextInt(Math.min(200, ontology.size()))));
+            selections.add(selection);
+        }
+
+        // Same answers
+        for (List<ANode> selection : selections) {
+            if (!walk(selection).equals(subtrees.toFileIds(subtrees.subtrees(selection)))) {
+                throw new IllegalStateException("Subtree sets differ from walking the subtrees");
+            }
+        }
+
+        for (int i = 0; i < 3; i++) { // warm-up
+            for (List<ANode> selection : selections) {
+                walk(selection);
+                subtrees.subtrees(selection);
+            }
+        }
+        start = System.nanoTime();
+        long sink = 0;
+        for (List<ANode> selection : selections) sink += walk(selection).size();
+        double walkMicros = (System.nanoTime() - start) / 1e3 / ROUNDS;
+
+        start = System.nanoTime();
+        for (List<ANode> selection : selections) sink += subtrees.subtrees(selection).cardinality();
+        double setMicros = (System.nanoTime() - start) / 1e3 / ROUNDS;
+
+        start = System.nanoTime();
+        for (List<ANode> selection : selections) sink += subtrees.toFileIds(subtrees.subtrees(selection)).size();
+        double setNamesMicros = (System.nanoTime() - start) / 1e3 / ROUNDS;
+
+        System.out.printf(Locale.ROOT, "%d concepts, %d distinct file IDs%n", ontology.size(), subtrees.size());
+        System.out.printf(Locale.ROOT, "precompute             %8.1f ms (%.1f ms warm), %s%n",
+                precompute, precomputeWarm, BenchmarkSupport.megabytes(subtrees.heapBytes()));
+        System.out.printf(Locale.ROOT, "walk subtrees          %8.1f µs per selection%n", walkMicros);
+        System.out.printf(Locale.ROOT, "union of sets          %8.1f µs per selection%n", setMicros);
+        System.out.printf(Locale.ROOT, "  + file ID strings    %8.1f µs per selection%n", setNamesMicros);
+        if (sink == 42) System.out.println();
+    }
+
+    /**
+     * The selected nodes and all their descendants, flat-mapped to file IDs.
+     */
+    private static Set<String> walk(List<ANode> selection) {
+        Set<String> fileIds = new HashSet<>();
+        List<ANode> stack = new ArrayList<>(selection);
+        while (!stack.isEmpty()) {
+            ANode node = stack.remove(stack.size() - 1);
+            fileIds.addAll(node.fileIds());
+            stack.addAll(node.children());
+        }
+        return fileIds;
+    }
+}
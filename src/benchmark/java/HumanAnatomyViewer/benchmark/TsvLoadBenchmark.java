@@ -0,0 +1,96 @@
+package HumanAnatomyViewer.benchmark;
+
+import HumanAnatomyViewer.model.BenchmarkAccess;
+import HumanAnatomyViewer.model.Ontology;
+import HumanAnatomyViewer.model.TreeLoader;
+
+import java.io.BufferedReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares loading the hierarchy files line by line (a String per line, trimmed and regex-split on tabs)
+ * with the byte-level reader TreeLoader uses now, for a synthetic ontology of the size of the full FMA.
+ * Reports time and bytes allocated per load, and checks that both give the same ontology.
+ *
+ * Usage: TsvLoadBenchmark [concepts] [element rows]
+ */
+public class TsvLoadBenchmark {
+
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        int concepts = args.length > 0 ? Integer.parseInt(args[0]) : 75_000;
+        int elementRows = args.length > 1 ? Integer.parseInt(args[1]) : 300_000;
+
+        BenchmarkSupport.OntologyFiles files = BenchmarkSupport.syntheticOntology(concepts, elementRows);
+        Path directory = Files.createTempDirectory("tsv");
+        Path parts = Files.write(directory.resolve("parts.txt"), files.parts());
+        Path elements = Files.write(directory.resolve("elements.txt"), files.elements());
+        Path relations = Files.write(directory.resolve("relations.txt"), files.relations());
+
+        Ontology expected = loadLines(parts, elements, relations);
+        Ontology actual = TreeLoader.loadOntology(parts, elements, relations);
+        if (!sameOntology(expected, actual)) {
+            throw new IllegalStateException("Byte-level reader gives a different ontology");
+        }
+
+        for (int i = 0; i < 3; i++) { // warm-up
+            loadLines(parts, elements, relations);
+            TreeLoader.loadOntology(parts, elements, relations);
+        }
+
+        long allocated = BenchmarkSupport.allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) loadLines(parts, elements, relations);
+        double linesMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+        long linesBytes = (BenchmarkSupport.allocatedBytes() - allocated) / ROUNDS;
+
+        allocated = BenchmarkSupport.allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) TreeLoader.loadOntology(parts, elements, relations);
+        double bytesMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+        long bytesBytes = (BenchmarkSupport.allocatedBytes() - allocated) / ROUNDS;
+
+        long fileBytes = Files.size(parts) + Files.size(elements) + Files.size(relations);
+        System.out.printf(Locale.ROOT, "%d concepts, %d element rows, %s of TSV%n",
+                expected.size(), elementRows, BenchmarkSupport.megabytes(fileBytes));
+        System.out.printf(Locale.ROOT, "lines + split    %8.1f ms, %s allocated%n",
+                linesMillis, BenchmarkSupport.megabytes(linesBytes));
+        System.out.printf(Locale.ROOT, "byte-level       %8.1f ms, %s allocated%n",
+                bytesMillis, BenchmarkSupport.megabytes(bytesBytes));
+
+        for (Path file : List.of(parts, elements, relations)) Files.delete(file);
+        Files.delete(directory);
+    }
+
+    /**
+     * The original way: read every line into a String, then trim and split it.
+     */
+    private static Ontology loadLines(Path parts, Path elements, Path relations) throws Exception {
+        return BenchmarkAccess.buildOntology(readLines(parts), readLines(elements), readLines(relations));
+    }
+
+    private static List<String> readLines(Path file) throws Exception {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            return reader.lines().toList();
+        }
+    }
+
+    private static boolean sameOntology(Ontology a, Ontology b) {
+        if (a.size() != b.size() || a.root().id() != b.root().id() || a.distinctFileIds() != b.distinctFileIds()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.conceptId(i).equals(b.conceptId(i)) || !a.name(i).equals(b.name(i))
+                    || !a.representationId(i).equals(b.representationId(i))
+                    || !a.children(i).equals(b.children(i).stream().map(n -> a.node(n.id())).toList())
+                    || !a.fileIds(i).equals(b.fileIds(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,23 @@
+package HumanAnatomyViewer.model;
+
+import java.util.List;
+
+/**
+ * Opens the package-private parts of the model that the benchmarks need, so that the application keeps them hidden.
+ * Only compiled with the benchmarks.
+ */
+public final class BenchmarkAccess {
+
+    private BenchmarkAccess() {
+    }
+
+    /**
+     * Builds an {@link Ontology} from the lines of the three data files, each starting with a header line.
+     *
+     * @see TreeLoader#buildOntology(List, List, List)
+     */
+    public static Ontology buildOntology(List<String> partsLines, List<String> elementsLines,
+                                         List<String> relationsLines) {
+        return TreeLoader.buildOntology(partsLines, elementsLines, relationsLines);
+    }
+}
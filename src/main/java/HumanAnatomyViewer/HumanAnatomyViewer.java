@@ -13,7 +13,7 @@ public class HumanAnatomyViewer  extends Application {
     @Override
     public void start(Stage stage) throws Exception {
         var view = new WindowView(); // loads Window.fxml
-        var model = new Model();     // loads ANode tree
+        var model = new Model();     // starts loading the ANode trees in the background
         var controller = view.getController();
 
         Scene scene = new Scene(view.getRoot(), 800, 600);
@@ -27,6 +27,17 @@ public class HumanAnatomyViewer  extends Application {
         stage.setScene(scene);
         stage.setTitle("Human Anatomy Viewer");
         stage.show();
+
+        // With -Danatomy.timing=true, reports time-to-window and time-to-tree from process start;
+        // add -Danatomy.snapshot=false to compare with loading the TSV files
+        if (Boolean.getBoolean("anatomy.timing")) {
+            ProcessHandle.current().info().startInstant().ifPresent(start -> {
+                long startTime = start.toEpochMilli();
+                System.out.println("✔ Window shown " + (System.currentTimeMillis() - startTime) + " ms after start");
+                model.getPartOfHierarchy().thenAccept(hierarchy -> System.out.println("✔ Part-of tree ready "
+                        + (System.currentTimeMillis() - startTime) + " ms after start"));
+            });
+        }
     }
 
 
@@ -1,31 +1,76 @@
 package HumanAnatomyViewer.model;
 
-// Importing the Collection interface from the Java standard library
-import java.util.Collection;
+import java.util.List;
 
 /**
- * ANode is a record representing a node in a conceptual or hierarchical structure.
+ * ANode is a lightweight view of one concept of an {@link Ontology}, representing a node in a conceptual
+ * or hierarchical structure. It holds no data of its own; everything is looked up in the ontology's arrays.
  *
  * Fields:
+ * - ontology: The ontology the concept belongs to.
+ * - id: The number of the concept within the ontology.
+ *
+ * Accessors:
  * - conceptId: A unique identifier for the concept this node represents.
  * - representationId: An ID indicating how this node might be visualized or represented.
  * - name: A human-readable name for the node.
- * - children: A collection of child ANode objects, representing the tree or graph structure.
- * - fileIds: A collection of file identifiers that may be associated with this node.
+ * - children: The child ANode objects, representing the tree or graph structure.
+ * - parents: The parent ANode objects; the structure is a DAG, a shared concept has one view for all its parents.
+ * - fileIds: The file identifiers that may be associated with this node.
  */
-public record ANode(
-        String conceptId,
-        String representationId,
-        String name,
-        java.util.List<ANode> children,
-        Collection<String> fileIds
-) {
+public record ANode(Ontology ontology, int id) {
+
+    public String conceptId() {
+        return ontology.conceptId(id);
+    }
+
+    public String representationId() {
+        return ontology.representationId(id);
+    }
+
+    public String name() {
+        return ontology.name(id);
+    }
+
+    /**
+     * @return read-only view of the children
+     */
+    public List<ANode> children() {
+        return ontology.children(id);
+    }
+
+    /**
+     * @return this node and all nodes below it, each once, in the order a fully expanded tree shows them
+     */
+    public List<ANode> subtree() {
+        int[] concepts = ontology.subtree(id);
+        ANode[] nodes = new ANode[concepts.length];
+        for (int i = 0; i < concepts.length; i++) {
+            nodes[i] = ontology.node(concepts[i]);
+        }
+        return List.of(nodes);
+    }
+
+    /**
+     * @return read-only view of all parents; a concept with several parents appears under each of them
+     */
+    public List<ANode> parents() {
+        return ontology.parents(id);
+    }
+
+    /**
+     * @return read-only view of the file IDs
+     */
+    public List<String> fileIds() {
+        return ontology.fileIds(id);
+    }
+
     /**
      * Overrides the default toString method to return the node's name
      * along with its conceptId for easy identification in logs or UI.
      */
     @Override
     public String toString() {
-        return name + " (" + conceptId + ")";
+        return name() + " (" + conceptId() + ")";
     }
 }
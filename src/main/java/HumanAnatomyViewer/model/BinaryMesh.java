@@ -0,0 +1,140 @@
+package HumanAnatomyViewer.model;
+
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Compiled binary representation of a TriangleMesh.
+ * Holds the points, texCoords, normals and faces arrays plus the vertex format, so that a mesh
+ * can be restored with a few bulk buffer reads instead of parsing OBJ text.
+ *
+ * Layout (little-endian):
+ * - int magic "HAVM", byte version, byte vertex format, 2 reserved bytes
+ * - int number of points, texCoords, normals and faces entries
+ * - the four arrays, floats and ints respectively
+ */
+public final class BinaryMesh {
+
+    private static final int MAGIC = 0x4D564148; // "HAVM" in little-endian order
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    private static final byte FORMAT_POINT_TEXCOORD = 0;
+    private static final byte FORMAT_POINT_NORMAL_TEXCOORD = 1;
+
+    private BinaryMesh() {
+    }
+
+    /**
+     * Number of bytes {@link #encode(TriangleMesh, ByteBuffer)} will write for the given mesh.
+     */
+    public static int encodedSize(TriangleMesh mesh) {
+        long size = HEADER_SIZE + 4L * ((long) mesh.getPoints().size() + mesh.getTexCoords().size()
+                + mesh.getNormals().size() + mesh.getFaces().size());
+        if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("mesh too large to encode");
+        return (int) size;
+    }
+
+    /**
+     * Encodes a mesh into a new heap buffer, positioned at 0.
+     */
+    public static ByteBuffer encode(TriangleMesh mesh) {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(mesh));
+        encode(mesh, buffer);
+        return buffer.flip();
+    }
+
+    /**
+     * Writes a mesh at the current position of the target buffer and advances the position.
+     *
+     * @param mesh   the mesh to encode
+     * @param target buffer with at least {@link #encodedSize(TriangleMesh)} bytes remaining
+     */
+    public static void encode(TriangleMesh mesh, ByteBuffer target) {
+        ByteBuffer out = target.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        float[] points = mesh.getPoints().toArray(null);
+        float[] texCoords = mesh.getTexCoords().toArray(null);
+        float[] normals = mesh.getNormals().toArray(null);
+        int[] faces = mesh.getFaces().toArray(null);
+
+        out.putInt(MAGIC);
+        out.put(VERSION);
+        out.put(mesh.getVertexFormat() == VertexFormat.POINT_NORMAL_TEXCOORD
+                ? FORMAT_POINT_NORMAL_TEXCOORD : FORMAT_POINT_TEXCOORD);
+        out.putShort((short) 0);
+        out.putInt(points.length);
+        out.putInt(texCoords.length);
+        out.putInt(normals.length);
+        out.putInt(faces.length);
+
+        // Bulk copies through typed views instead of one put per value
+        out.asFloatBuffer().put(points);
+        out.position(out.position() + 4 * points.length);
+        out.asFloatBuffer().put(texCoords);
+        out.position(out.position() + 4 * texCoords.length);
+        out.asFloatBuffer().put(normals);
+        out.position(out.position() + 4 * normals.length);
+        out.asIntBuffer().put(faces);
+        out.position(out.position() + 4 * faces.length);
+
+        target.position(target.position() + out.position());
+    }
+
+    /**
+     * Reads a mesh from the current position of the source buffer and advances the position.
+     *
+     * @param source buffer holding an encoded mesh
+     * @return the decoded mesh
+     * @throws IOException if the data is not an encoded mesh of a supported version
+     */
+    public static TriangleMesh decode(ByteBuffer source) throws IOException {
+        ByteBuffer in = source.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) {
+            throw new IOException("not a compiled mesh");
+        }
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IOException("unsupported compiled mesh version: " + version);
+        }
+        byte format = in.get();
+        in.getShort();
+
+        int pointCount = in.getInt();
+        int texCoordCount = in.getInt();
+        int normalCount = in.getInt();
+        int faceCount = in.getInt();
+        if (pointCount < 0 || texCoordCount < 0 || normalCount < 0 || faceCount < 0
+                || in.remaining() < 4L * ((long) pointCount + texCoordCount + normalCount + faceCount)) {
+            throw new IOException("truncated compiled mesh");
+        }
+
+        float[] points = new float[pointCount];
+        float[] texCoords = new float[texCoordCount];
+        float[] normals = new float[normalCount];
+        int[] faces = new int[faceCount];
+
+        in.asFloatBuffer().get(points);
+        in.position(in.position() + 4 * pointCount);
+        in.asFloatBuffer().get(texCoords);
+        in.position(in.position() + 4 * texCoordCount);
+        in.asFloatBuffer().get(normals);
+        in.position(in.position() + 4 * normalCount);
+        in.asIntBuffer().get(faces);
+        in.position(in.position() + 4 * faceCount);
+
+        source.position(source.position() + in.position());
+
+        TriangleMesh mesh = new TriangleMesh(format == FORMAT_POINT_NORMAL_TEXCOORD
+                ? VertexFormat.POINT_NORMAL_TEXCOORD : VertexFormat.POINT_TEXCOORD);
+        mesh.getPoints().setAll(points);
+        mesh.getTexCoords().setAll(texCoords);
+        mesh.getNormals().setAll(normals);
+        mesh.getFaces().setAll(faces);
+        return mesh;
+    }
+}
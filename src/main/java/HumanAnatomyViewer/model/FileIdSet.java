@@ -0,0 +1,209 @@
+package HumanAnatomyViewer.model;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable, compressed set of interned file ID indices (see {@link SubtreeFileIds}).
+ *
+ * Stored as a bitset without its zero words: the sorted numbers of the non-zero 64-bit words plus the words
+ * themselves. A small subtree deep in the hierarchy costs a few words, however many file IDs exist in total,
+ * while unions, intersections and differences still combine 64 file IDs per operation.
+ */
+public final class FileIdSet {
+
+    public static final FileIdSet EMPTY = new FileIdSet(new int[0], new long[0]);
+
+    private final int[] keys;   // word numbers, ascending; word k holds indices 64k .. 64k + 63
+    private final long[] words; // never zero
+
+    private FileIdSet(int[] keys, long[] words) {
+        this.keys = keys;
+        this.words = words;
+    }
+
+    /**
+     * @param indices file ID indices, in any order, duplicates allowed
+     * @return the set of the indices
+     */
+    public static FileIdSet of(int... indices) {
+        Builder builder = new Builder();
+        for (int index : indices) {
+            builder.add(index);
+        }
+        return builder.build();
+    }
+
+    public boolean contains(int index) {
+        int position = Arrays.binarySearch(keys, index >>> 6);
+        return position >= 0 && (words[position] & (1L << index)) != 0;
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    /**
+     * @return the number of indices in the set
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return the indices in this set, the other set, or both
+     */
+    public FileIdSet or(FileIdSet other) {
+        if (other.isEmpty() || other == this) return this;
+        if (isEmpty()) return other;
+        int[] resultKeys = new int[keys.length + other.keys.length];
+        long[] resultWords = new long[resultKeys.length];
+        int i = 0, j = 0, n = 0;
+        while (i < keys.length || j < other.keys.length) {
+            int a = i < keys.length ? keys[i] : Integer.MAX_VALUE;
+            int b = j < other.keys.length ? other.keys[j] : Integer.MAX_VALUE;
+            resultKeys[n] = Math.min(a, b);
+            resultWords[n++] = (a <= b ? words[i++] : 0) | (b <= a ? other.words[j++] : 0);
+        }
+        return trimmed(resultKeys, resultWords, n);
+    }
+
+    /**
+     * @return the indices in both sets
+     */
+    public FileIdSet and(FileIdSet other) {
+        int[] resultKeys = new int[Math.min(keys.length, other.keys.length)];
+        long[] resultWords = new long[resultKeys.length];
+        int i = 0, j = 0, n = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                long word = words[i++] & other.words[j++];
+                if (word != 0) {
+                    resultKeys[n] = keys[i - 1];
+                    resultWords[n++] = word;
+                }
+            }
+        }
+        return trimmed(resultKeys, resultWords, n);
+    }
+
+    /**
+     * @return the indices in this set but not in the other one
+     */
+    public FileIdSet andNot(FileIdSet other) {
+        int[] resultKeys = new int[keys.length];
+        long[] resultWords = new long[keys.length];
+        int j = 0, n = 0;
+        boolean changed = false;
+        for (int i = 0; i < keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < keys[i]) j++;
+            long word = j < other.keys.length && other.keys[j] == keys[i] ? words[i] & ~other.words[j] : words[i];
+            changed |= word != words[i];
+            if (word != 0) {
+                resultKeys[n] = keys[i];
+                resultWords[n++] = word;
+            }
+        }
+        return changed ? trimmed(resultKeys, resultWords, n) : this;
+    }
+
+    /**
+     * Calls the action for every index, in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                action.accept((keys[i] << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     * @return approximate heap size in bytes
+     */
+    public long heapBytes() {
+        return 16 + 16 + 4L * keys.length + 16 + 8L * words.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FileIdSet other && Arrays.equals(keys, other.keys) && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(keys) + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        forEach(index -> builder.append(builder.length() > 1 ? ", " : "").append(index));
+        return builder.append(']').toString();
+    }
+
+    private static FileIdSet trimmed(int[] keys, long[] words, int length) {
+        if (length == 0) return EMPTY;
+        return length == keys.length ? new FileIdSet(keys, words)
+                : new FileIdSet(Arrays.copyOf(keys, length), Arrays.copyOf(words, length));
+    }
+
+    /**
+     * Collects indices and whole sets into one set. Uses an uncompressed scratch bitset, so combining many sets
+     * costs time proportional to their sizes only; the builder can be reused after {@link #build()}.
+     */
+    public static final class Builder {
+
+        private long[] scratch = new long[16];
+        private final GrowableIntArray touched = new GrowableIntArray(16); // non-zero words of scratch
+
+        public Builder add(int index) {
+            int key = index >>> 6;
+            ensureCapacity(key);
+            if (scratch[key] == 0) touched.add(key);
+            scratch[key] |= 1L << index;
+            return this;
+        }
+
+        public Builder or(FileIdSet set) {
+            if (set.keys.length > 0) ensureCapacity(set.keys[set.keys.length - 1]);
+            for (int i = 0; i < set.keys.length; i++) {
+                int key = set.keys[i];
+                if (scratch[key] == 0) touched.add(key);
+                scratch[key] |= set.words[i];
+            }
+            return this;
+        }
+
+        /**
+         * @return the collected set; the builder is empty afterwards
+         */
+        public FileIdSet build() {
+            int[] keys = Arrays.copyOf(touched.array(), touched.size());
+            Arrays.sort(keys);
+            long[] words = new long[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                words[i] = scratch[keys[i]];
+                scratch[keys[i]] = 0;
+            }
+            touched.clear();
+            return keys.length == 0 ? EMPTY : new FileIdSet(keys, words);
+        }
+
+        private void ensureCapacity(int key) {
+            if (key >= scratch.length) {
+                scratch = Arrays.copyOf(scratch, Math.max(key + 1, 2 * scratch.length));
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package HumanAnatomyViewer.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Typo-tolerant search over the concept names of the registered hierarchies, e.g. "illiac" finds "iliac".
+ *
+ * Names are split into lowercase words. The distinct words of all hierarchies are kept in a BK-tree: every word below
+ * a tree word hangs on the edge labelled with its Levenshtein distance to it. By the triangle inequality, the words
+ * within k edits of a query word can only be below edges d - k .. d + k of a word at distance d, so a lookup computes
+ * the distance to a small part of the vocabulary instead of to every name. Each distance is only computed as far as
+ * the walk needs it: up to the largest edge below the word plus k.
+ *
+ * A query word of n characters matches the words within {@link #maxDistance(int)} edits. A concept matches a query
+ * if each query word matches one of its words; its distance is the sum of the smallest distances. Matches are ranked
+ * by distance, then by depth (fewest steps from the root first), then by name.
+ *
+ * Only the root and the concepts below it are indexed, the concepts a tree can show.
+ */
+public final class FuzzyNameIndex {
+
+    /**
+     * A concept found by a fuzzy search.
+     *
+     * @param node     the concept
+     * @param distance edits between the query and the concept's name words
+     * @param depth    fewest steps from the root of its hierarchy
+     */
+    public record Match(ANode node, int distance, int depth) {
+    }
+
+    private static final Comparator<Match> RANKING = Comparator.comparingInt(Match::distance)
+            .thenComparingInt(Match::depth)
+            .thenComparing(match -> match.node().name());
+
+    // Concepts of all hierarchies, numbered globally: offset of the hierarchy + concept
+    private final Map<Ontology, Integer> offsets = new IdentityHashMap<>();
+    private final List<Ontology> ontologies = new ArrayList<>();
+    private final GrowableIntArray depths = new GrowableIntArray(1024); // global concept -> depth, -1 if not indexed
+
+    // Word number -> word and the global concepts whose names contain it
+    private final Map<String, Integer> wordNumbers = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final List<GrowableIntArray> wordConcepts = new ArrayList<>();
+
+    // BK-tree over word numbers; word 0 is the root, the children of a word form a linked list
+    private final GrowableIntArray firstChild = new GrowableIntArray(1024);
+    private final GrowableIntArray nextSibling = new GrowableIntArray(1024);
+    private final GrowableIntArray edgeDistance = new GrowableIntArray(1024);
+    private final GrowableIntArray maxChildDistance = new GrowableIntArray(1024);
+
+    /**
+     * @param ontologies hierarchies to register right away
+     */
+    public FuzzyNameIndex(Ontology... ontologies) {
+        for (Ontology ontology : ontologies) {
+            register(ontology);
+        }
+    }
+
+    /**
+     * Adds the words of the names of a hierarchy.
+     *
+     * @param ontology the hierarchy
+     */
+    public synchronized void register(Ontology ontology) {
+        if (offsets.containsKey(ontology)) {
+            return;
+        }
+        int offset = depths.size();
+        offsets.put(ontology, offset);
+        ontologies.add(ontology);
+
+        // Breadth first from the root, so each concept gets its shortest depth
+        int size = ontology.size();
+        for (int i = 0; i < size; i++) {
+            depths.add(-1);
+        }
+        int root = ontology.root().id();
+        GrowableIntArray queue = new GrowableIntArray(size);
+        queue.add(root);
+        depths.set(offset + root, 0);
+        for (int head = 0; head < queue.size(); head++) {
+            int concept = queue.get(head);
+            int depth = depths.get(offset + concept);
+            for (int i = 0; i < ontology.childCount(concept); i++) {
+                int child = ontology.child(concept, i);
+                if (depths.get(offset + child) < 0) {
+                    depths.set(offset + child, depth + 1);
+                    queue.add(child);
+                }
+            }
+            addWords(ontology.name(concept), offset + concept);
+        }
+    }
+
+    private void addWords(String name, int concept) {
+        for (String word : words(name)) {
+            Integer number = wordNumbers.get(word);
+            if (number == null) {
+                number = words.size();
+                wordNumbers.put(word, number);
+                words.add(word);
+                wordConcepts.add(new GrowableIntArray(4));
+                insert(number);
+            }
+            GrowableIntArray concepts = wordConcepts.get(number);
+            if (concepts.isEmpty() || concepts.get(concepts.size() - 1) != concept) { // a word twice in one name
+                concepts.add(concept);
+            }
+        }
+    }
+
+    /**
+     * Hangs a new word into the BK-tree.
+     */
+    private void insert(int word) {
+        firstChild.add(-1);
+        nextSibling.add(-1);
+        edgeDistance.add(0);
+        maxChildDistance.add(0);
+        if (word == 0) {
+            return;
+        }
+        int node = 0;
+        while (true) {
+            int distance = distance(words.get(node), words.get(word), Integer.MAX_VALUE, new int[0], new int[0]);
+            int child = firstChild.get(node);
+            while (child >= 0 && edgeDistance.get(child) != distance) {
+                child = nextSibling.get(child);
+            }
+            if (child < 0) {
+                edgeDistance.set(word, distance);
+                nextSibling.set(word, firstChild.get(node));
+                firstChild.set(node, word);
+                maxChildDistance.set(node, Math.max(maxChildDistance.get(node), distance));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Finds the concepts whose names contain, for every word of the query, a word within its edit bound.
+     *
+     * @param query one or more words, in any case
+     * @return matches, best first
+     */
+    public synchronized List<Match> find(String query) {
+        List<String> queryWords = words(query);
+        if (queryWords.isEmpty() || words.isEmpty()) {
+            return List.of();
+        }
+
+        // Global concept -> summed distance, narrowed word by word
+        Map<Integer, Integer> distances = null;
+        for (String queryWord : queryWords) {
+            Map<Integer, Integer> wordDistances = new HashMap<>();
+            int bound = maxDistance(queryWord.length());
+            for (int[] found : similarWords(queryWord, bound)) {
+                GrowableIntArray concepts = wordConcepts.get(found[0]);
+                for (int i = 0; i < concepts.size(); i++) {
+                    wordDistances.merge(concepts.get(i), found[1], Math::min);
+                }
+            }
+            if (distances == null) {
+                distances = wordDistances;
+            } else {
+                Map<Integer, Integer> both = new HashMap<>();
+                for (Map.Entry<Integer, Integer> entry : distances.entrySet()) {
+                    Integer distance = wordDistances.get(entry.getKey());
+                    if (distance != null) {
+                        both.put(entry.getKey(), entry.getValue() + distance);
+                    }
+                }
+                distances = both;
+            }
+            if (distances.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<Match> matches = new ArrayList<>(distances.size());
+        for (Map.Entry<Integer, Integer> entry : distances.entrySet()) {
+            int concept = entry.getKey();
+            matches.add(new Match(node(concept), entry.getValue(), depths.get(concept)));
+        }
+        matches.sort(RANKING);
+        return matches;
+    }
+
+    /**
+     * Walks the BK-tree for the words within bound edits of a word.
+     *
+     * @return pairs of word number and distance
+     */
+    private List<int[]> similarWords(String word, int bound) {
+        List<int[]> found = new ArrayList<>();
+        int[] previousRow = new int[64];
+        int[] currentRow = new int[64];
+        GrowableIntArray stack = new GrowableIntArray(64);
+        stack.add(0);
+        while (!stack.isEmpty()) {
+            int node = stack.removeLast();
+            // Beyond this limit, neither the word nor any child edge is within bound
+            int limit = maxChildDistance.get(node) + bound + 1;
+            int distance = distance(word, words.get(node), limit, previousRow, currentRow);
+            if (distance <= bound) {
+                found.add(new int[]{node, distance});
+            }
+            for (int child = firstChild.get(node); child >= 0; child = nextSibling.get(child)) {
+                if (Math.abs(edgeDistance.get(child) - distance) <= bound) {
+                    stack.add(child);
+                }
+            }
+        }
+        return found;
+    }
+
+    private ANode node(int concept) {
+        // Hierarchies are few, a linear scan for the one holding the global number is enough
+        for (int i = ontologies.size() - 1; i >= 0; i--) {
+            Ontology ontology = ontologies.get(i);
+            int offset = offsets.get(ontology);
+            if (concept >= offset) {
+                return ontology.node(concept - offset);
+            }
+        }
+        throw new IllegalArgumentException("Unknown concept " + concept);
+    }
+
+    /**
+     * Edits allowed for a query word: none for one- and two-letter words such as "of", which would match almost
+     * anything, and up to three for long Latin terms such as "sternocleidomastoideus".
+     *
+     * @param length length of the query word
+     * @return the largest distance of a matching word
+     */
+    public static int maxDistance(int length) {
+        if (length <= 2) return 0;
+        if (length <= 5) return 1;
+        if (length <= 9) return 2;
+        return 3;
+    }
+
+    /**
+     * Levenshtein distance: the fewest insertions, deletions and substitutions that turn a into b.
+     * Stops early once the distance is known to reach the limit.
+     *
+     * @param limit    distances from here on are all reported as limit
+     * @param previous row buffer, replaced if too short
+     * @param current  row buffer, replaced if too short
+     * @return the distance, or limit if it is at least limit
+     */
+    static int distance(String a, String b, int limit, int[] previous, int[] current) {
+        if (Math.abs(a.length() - b.length()) >= limit) {
+            return limit;
+        }
+        if (previous.length <= b.length()) {
+            previous = new int[b.length() + 1];
+            current = new int[b.length() + 1];
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (rowMinimum >= limit) {
+                return limit; // the distance never decreases from one row to the next
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], limit);
+    }
+
+    /**
+     * Splits a name into lowercase words of letters and digits.
+     */
+    static List<String> words(String text) {
+        List<String> result = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean inWord = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                result.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of distinct words
+     */
+    public synchronized int wordCount() {
+        return words.size();
+    }
+}
@@ -0,0 +1,72 @@
+package HumanAnatomyViewer.model;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of primitive floats.
+ * Used instead of ArrayList&lt;Float&gt; when parsing meshes, so that no value is ever boxed.
+ * The backing array can be handed to a TriangleMesh directly together with {@link #size()}.
+ */
+public final class GrowableFloatArray {
+
+    private float[] data;
+    private int size;
+
+    /**
+     * Creates an empty array with the given initial capacity.
+     *
+     * @param initialCapacity number of floats to reserve
+     */
+    public GrowableFloatArray(int initialCapacity) {
+        data = new float[Math.max(4, initialCapacity)];
+    }
+
+    public void add(float value) {
+        if (size == data.length) grow(size + 1);
+        data[size++] = value;
+    }
+
+    public void add(float a, float b) {
+        if (size + 2 > data.length) grow(size + 2);
+        data[size++] = a;
+        data[size++] = b;
+    }
+
+    public void add(float a, float b, float c) {
+        if (size + 3 > data.length) grow(size + 3);
+        data[size++] = a;
+        data[size++] = b;
+        data[size++] = c;
+    }
+
+    public float get(int index) {
+        return data[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the backing array. Only the first {@link #size()} entries are valid.
+     */
+    public float[] array() {
+        return data;
+    }
+
+    /**
+     * Returns an exactly sized array, reusing the backing array if it is already full.
+     */
+    public float[] toArray() {
+        return size == data.length ? data : Arrays.copyOf(data, size);
+    }
+
+    private void grow(int minCapacity) {
+        int newCapacity = Math.max(minCapacity, data.length + (data.length >> 1));
+        data = Arrays.copyOf(data, newCapacity);
+    }
+}
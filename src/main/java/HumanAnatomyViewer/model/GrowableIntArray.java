@@ -0,0 +1,92 @@
+package HumanAnatomyViewer.model;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of primitive ints.
+ * Used instead of ArrayList&lt;Integer&gt; for face indices, so that no value is ever boxed.
+ * The backing array can be handed to a TriangleMesh directly together with {@link #size()}.
+ */
+public final class GrowableIntArray {
+
+    private int[] data;
+    private int size;
+
+    /**
+     * Creates an empty array with the given initial capacity.
+     *
+     * @param initialCapacity number of ints to reserve
+     */
+    public GrowableIntArray(int initialCapacity) {
+        data = new int[Math.max(4, initialCapacity)];
+    }
+
+    public void add(int value) {
+        if (size == data.length) grow(size + 1);
+        data[size++] = value;
+    }
+
+    public void add(int a, int b) {
+        if (size + 2 > data.length) grow(size + 2);
+        data[size++] = a;
+        data[size++] = b;
+    }
+
+    public void add(int a, int b, int c) {
+        if (size + 3 > data.length) grow(size + 3);
+        data[size++] = a;
+        data[size++] = b;
+        data[size++] = c;
+    }
+
+    public int get(int index) {
+        return data[index];
+    }
+
+    public void set(int index, int value) {
+        if (index >= size) throw new IndexOutOfBoundsException(index);
+        data[index] = value;
+    }
+
+    /**
+     * Removes and returns the last value, for use as a stack.
+     */
+    public int removeLast() {
+        if (size == 0) throw new IndexOutOfBoundsException(-1);
+        return data[--size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all values but keeps the allocated capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the backing array. Only the first {@link #size()} entries are valid.
+     */
+    public int[] array() {
+        return data;
+    }
+
+    /**
+     * Returns an exactly sized array, reusing the backing array if it is already full.
+     */
+    public int[] toArray() {
+        return size == data.length ? data : Arrays.copyOf(data, size);
+    }
+
+    private void grow(int minCapacity) {
+        int newCapacity = Math.max(minCapacity, data.length + (data.length >> 1));
+        data = Arrays.copyOf(data, newCapacity);
+    }
+}
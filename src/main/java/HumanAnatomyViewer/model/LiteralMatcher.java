@@ -0,0 +1,136 @@
+package HumanAnatomyViewer.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Aho-Corasick automaton that tells whether a text contains one of many literal terms, in one pass over the text
+ * however many terms there are.
+ *
+ * The terms form a trie; the automaton follows it character by character and, where the trie has no edge, falls back
+ * to the state of the longest suffix that is also a trie path. The fallbacks are resolved when the automaton is built,
+ * into a transition table over the characters that occur in the terms; any other character leads back to the start.
+ *
+ * Matching is case-insensitive like a {@link java.util.regex.Pattern} with (?i): A-Z and a-z are the same,
+ * all other characters only match themselves.
+ */
+public final class LiteralMatcher implements Predicate<String> {
+
+    private final int[] asciiClass = new int[128];                     // ASCII character -> class, 0 if not in a term
+    private final Map<Character, Integer> otherClass = new HashMap<>(); // other character -> class
+    private final int classes;
+    private final int[] transitions;                                    // state * classes + class -> next state
+    private final boolean[] accepting;                                  // state ends with a term
+    private final boolean matchesEverything;                            // an empty term matches every text
+
+    /**
+     * @param terms literal terms; an empty term matches every text
+     */
+    public LiteralMatcher(List<String> terms) {
+        // Character classes: one per distinct folded character of the terms, 0 for all others
+        int classCount = 1;
+        for (String term : terms) {
+            for (int i = 0; i < term.length(); i++) {
+                char c = fold(term.charAt(i));
+                if (c < 128) {
+                    if (asciiClass[c] == 0) asciiClass[c] = classCount++;
+                } else if (!otherClass.containsKey(c)) {
+                    otherClass.put(c, classCount++);
+                }
+            }
+        }
+        classes = classCount;
+
+        // Trie, with one row of children per state
+        List<int[]> children = new ArrayList<>();
+        List<Boolean> ends = new ArrayList<>();
+        children.add(new int[classes]);
+        ends.add(false);
+        boolean empty = false;
+        for (String term : terms) {
+            empty |= term.isEmpty();
+            int state = 0;
+            for (int i = 0; i < term.length(); i++) {
+                int c = classOf(fold(term.charAt(i)));
+                if (children.get(state)[c] == 0) {
+                    children.get(state)[c] = children.size();
+                    children.add(new int[classes]);
+                    ends.add(false);
+                }
+                state = children.get(state)[c];
+            }
+            ends.set(state, true);
+        }
+        matchesEverything = empty;
+
+        // Breadth first, so the fallback of every state is resolved before its children
+        int states = children.size();
+        transitions = new int[states * classes];
+        accepting = new boolean[states];
+        int[] fallback = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int c = 1; c < classes; c++) {
+            int child = children.get(0)[c];
+            transitions[c] = child;
+            if (child != 0) queue[tail++] = child;
+        }
+        accepting[0] = ends.get(0);
+        while (head < tail) {
+            int state = queue[head++];
+            accepting[state] = ends.get(state) || accepting[fallback[state]];
+            for (int c = 1; c < classes; c++) {
+                int child = children.get(state)[c];
+                int viaFallback = transitions[fallback[state] * classes + c];
+                if (child == 0) {
+                    transitions[state * classes + c] = viaFallback;
+                } else {
+                    transitions[state * classes + c] = child;
+                    fallback[child] = viaFallback;
+                    queue[tail++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the text contains one of the terms
+     */
+    @Override
+    public boolean test(String text) {
+        if (matchesEverything) {
+            return true;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * classes + classOf(fold(text.charAt(i)))];
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int classOf(char c) {
+        if (c < 128) {
+            return asciiClass[c];
+        }
+        Integer result = otherClass.get(c);
+        return result == null ? 0 : result;
+    }
+
+    /**
+     * @return the number of automaton states
+     */
+    public int stateCount() {
+        return accepting.length;
+    }
+
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
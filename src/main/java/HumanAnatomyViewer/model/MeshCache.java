@@ -0,0 +1,184 @@
+package HumanAnatomyViewer.model;
+
+import javafx.scene.shape.TriangleMesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary mesh cache that lives next to the OBJ sources.
+ * The first load of "FJ1234.obj" parses the text file and writes "FJ1234.obj.mcache";
+ * later loads read the compiled {@link BinaryMesh} back with bulk reads instead of parsing.
+ * A cache file is only used while the source file's size, modification time and CRC32C content hash
+ * still match the values recorded when the cache was written.
+ * The cache holds the mesh after post-processing by {@link MeshWelder}, so the welder settings are recorded as well.
+ */
+public final class MeshCache {
+
+    /**
+     * Appended to the source file name to get the cache file name.
+     */
+    public static final String SUFFIX = ".mcache";
+
+    private static final int MAGIC = 0x43564148; // "HAVC" in little-endian order
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 40;
+
+    private static volatile boolean enabled = true;
+
+    private MeshCache() {
+    }
+
+    /**
+     * Loads the mesh for an OBJ file, from its cache file if that is up to date, otherwise by parsing
+     * the OBJ file and (re)writing the cache file.
+     *
+     * @param source the .obj file
+     * @return the mesh
+     * @throws IOException if the OBJ file cannot be read or parsed
+     */
+    public static TriangleMesh load(Path source) throws IOException {
+        if (!enabled) {
+            return parse(source);
+        }
+
+        Path cacheFile = cacheFileFor(source);
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+
+        TriangleMesh cached = readIfFresh(cacheFile, source, attributes);
+        if (cached != null) {
+            return cached;
+        }
+
+        TriangleMesh mesh = parse(source);
+        write(cacheFile, source, attributes, mesh);
+        return mesh;
+    }
+
+    /**
+     * Parses the OBJ file and runs the post-processing stage on the result.
+     */
+    private static TriangleMesh parse(Path source) throws IOException {
+        TriangleMesh mesh = ObjParser.load(source.toString());
+        MeshWelder.process(mesh);
+        return mesh;
+    }
+
+    /**
+     * Enables or disables the cache. When disabled, every load parses the OBJ file and no cache files are written.
+     */
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the cache file that belongs to the given OBJ file
+     */
+    public static Path cacheFileFor(Path source) {
+        return source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Reads the cache file if it exists and was written for the current content of the source file.
+     *
+     * @return the cached mesh, or null if there is no usable cache file
+     */
+    private static TriangleMesh readIfFresh(Path cacheFile, Path source, BasicFileAttributes attributes) {
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read the whole file in bulk
+            }
+            buffer.flip();
+
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long size = buffer.getLong();
+            long modified = buffer.getLong();
+            long hash = buffer.getLong();
+            long settings = buffer.getLong();
+
+            // Cheap checks first, the hash needs a pass over the source file
+            if (size != attributes.size() || modified != attributes.lastModifiedTime().toMillis()
+                    || settings != MeshWelder.settingsKey()) {
+                return null;
+            }
+            if (hash != contentHash(source)) {
+                return null;
+            }
+            return BinaryMesh.decode(buffer);
+        } catch (IOException e) {
+            System.err.println("⚠ Ignoring unreadable mesh cache " + cacheFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the cache file through a temporary file, so readers never see a partially written cache.
+     * Failing to write (e.g. a read-only model directory) is not an error, the mesh is simply parsed again next time.
+     */
+    private static void write(Path cacheFile, Path source, BasicFileAttributes attributes, TriangleMesh mesh) {
+        Path temp = null;
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putLong(attributes.size());
+            header.putLong(attributes.lastModifiedTime().toMillis());
+            header.putLong(contentHash(source));
+            header.putLong(MeshWelder.settingsKey());
+            header.flip();
+
+            ByteBuffer body = BinaryMesh.encode(mesh);
+
+            temp = Files.createTempFile(cacheFile.toAbsolutePath().getParent(), cacheFile.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer[] buffers = {header, body};
+                while (body.hasRemaining()) {
+                    channel.write(buffers);
+                }
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("⚠ Could not write mesh cache " + cacheFile + ": " + e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // nothing more we can do
+                }
+            }
+        }
+    }
+
+    /**
+     * CRC32C of the file content, computed over a memory-mapped view of the file.
+     */
+    static long contentHash(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long offset = 0; offset < size; offset += Integer.MAX_VALUE) {
+                long length = Math.min(Integer.MAX_VALUE, size - offset);
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+            }
+        }
+        return crc.getValue();
+    }
+}
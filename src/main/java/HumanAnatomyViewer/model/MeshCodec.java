@@ -0,0 +1,277 @@
+package HumanAnatomyViewer.model;
+
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Lossy, compact mesh encoding.
+ * Points, texCoords and normals are quantized to 16 bits per component against the bounding box of each array,
+ * so the positional error is at most half a quantization step (bounding box extent / 131070 per axis).
+ * The face index stream is split into its point / normal / texCoord columns, each column is delta-encoded,
+ * zigzag-mapped and written as varints. Optionally the whole body is deflated on top.
+ *
+ * Layout (little-endian):
+ * - int magic "HAVQ", byte version, byte vertex format, byte flags (1 = deflated), 1 reserved byte
+ * - int body length before compression, int stored body length
+ * - body: three quantized arrays (int count, min/max per component, count unsigned shorts),
+ *   then the faces (int count, int varint byte length, varint bytes)
+ */
+public final class MeshCodec {
+
+    private static final int MAGIC = 0x51564148; // "HAVQ" in little-endian order
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final byte FLAG_DEFLATED = 1;
+    private static final int MAX_DEFLATE_RATIO = 1032; // the most DEFLATE can compress: a 258-byte match in 2 bits
+
+    private static final int LEVELS = 0xFFFF;
+
+    private MeshCodec() {
+    }
+
+    /**
+     * Encodes a mesh into a new heap buffer, positioned at 0.
+     *
+     * @param mesh    the mesh to encode
+     * @param deflate whether to deflate the encoded body
+     * @return the encoded mesh
+     */
+    public static ByteBuffer encode(TriangleMesh mesh, boolean deflate) {
+        boolean withNormals = mesh.getVertexFormat() == VertexFormat.POINT_NORMAL_TEXCOORD;
+        float[] points = mesh.getPoints().toArray(null);
+        float[] texCoords = mesh.getTexCoords().toArray(null);
+        float[] normals = mesh.getNormals().toArray(null);
+        int[] faces = mesh.getFaces().toArray(null);
+
+        byte[] faceBytes = encodeFaces(faces, withNormals ? 3 : 2);
+        int bodyLength = quantizedSize(points, 3) + quantizedSize(texCoords, 2) + quantizedSize(normals, 3)
+                + 8 + faceBytes.length;
+
+        ByteBuffer body = ByteBuffer.allocate(bodyLength).order(ByteOrder.LITTLE_ENDIAN);
+        quantize(points, 3, body);
+        quantize(texCoords, 2, body);
+        quantize(normals, 3, body);
+        body.putInt(faces.length);
+        body.putInt(faceBytes.length);
+        body.put(faceBytes);
+
+        byte[] stored = body.array();
+        int storedLength = bodyLength;
+        if (deflate) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            deflater.setInput(body.array());
+            deflater.finish();
+            stored = new byte[bodyLength + 64];
+            storedLength = 0;
+            while (!deflater.finished()) {
+                if (storedLength == stored.length) stored = Arrays.copyOf(stored, 2 * stored.length);
+                storedLength += deflater.deflate(stored, storedLength, stored.length - storedLength);
+            }
+            deflater.end();
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + storedLength).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC);
+        out.put(VERSION);
+        out.put((byte) (withNormals ? 1 : 0));
+        out.put(deflate ? FLAG_DEFLATED : 0);
+        out.put((byte) 0);
+        out.putInt(bodyLength);
+        out.putInt(storedLength);
+        out.put(stored, 0, storedLength);
+        return out.flip();
+    }
+
+    /**
+     * @return true if the buffer holds a mesh encoded by this codec at its current position
+     */
+    public static boolean isEncoded(ByteBuffer buffer) {
+        return buffer.remaining() >= HEADER_SIZE
+                && buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt() == MAGIC;
+    }
+
+    /**
+     * Decodes a mesh from the current position of the source buffer and advances the position.
+     *
+     * @param source buffer holding an encoded mesh
+     * @return the decoded mesh
+     * @throws IOException if the data is not a valid encoded mesh
+     */
+    public static TriangleMesh decode(ByteBuffer source) throws IOException {
+        ByteBuffer in = source.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) {
+            throw new IOException("not a quantized mesh");
+        }
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IOException("unsupported quantized mesh version: " + version);
+        }
+        boolean withNormals = in.get() == 1;
+        boolean deflated = (in.get() & FLAG_DEFLATED) != 0;
+        in.get();
+        int bodyLength = in.getInt();
+        int storedLength = in.getInt();
+        if (bodyLength < 0 || storedLength < 0 || storedLength > in.remaining()) {
+            throw new IOException("truncated quantized mesh");
+        }
+        if (deflated ? bodyLength > (long) storedLength * MAX_DEFLATE_RATIO : bodyLength != storedLength) {
+            throw new IOException("corrupt quantized mesh header");
+        }
+
+        ByteBuffer body;
+        if (deflated) {
+            byte[] inflated = new byte[bodyLength];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(in.slice(in.position(), storedLength));
+                int n = 0;
+                while (n < bodyLength && !inflater.finished()) {
+                    int read = inflater.inflate(inflated, n, bodyLength - n);
+                    if (read == 0) break; // out of input, or waiting for a preset dictionary that never comes
+                    n += read;
+                }
+                if (n != bodyLength) {
+                    throw new IOException(inflater.needsDictionary() ? "corrupt quantized mesh" : "truncated quantized mesh");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("corrupt quantized mesh", e);
+            } finally {
+                inflater.end();
+            }
+            body = ByteBuffer.wrap(inflated).order(ByteOrder.LITTLE_ENDIAN);
+        } else {
+            body = in.slice(in.position(), storedLength).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        source.position(source.position() + HEADER_SIZE + storedLength);
+
+        try {
+            float[] points = dequantize(body, 3);
+            float[] texCoords = dequantize(body, 2);
+            float[] normals = dequantize(body, 3);
+            int faceCount = body.getInt();
+            int faceByteLength = body.getInt();
+            int[] faces = decodeFaces(body, faceByteLength, faceCount, withNormals ? 3 : 2);
+
+            TriangleMesh mesh = new TriangleMesh(withNormals ? VertexFormat.POINT_NORMAL_TEXCOORD : VertexFormat.POINT_TEXCOORD);
+            mesh.getPoints().setAll(points);
+            mesh.getTexCoords().setAll(texCoords);
+            mesh.getNormals().setAll(normals);
+            mesh.getFaces().setAll(faces);
+            return mesh;
+        } catch (RuntimeException e) {
+            throw new IOException("corrupt quantized mesh", e);
+        }
+    }
+
+    // === Quantization ===
+
+    private static int quantizedSize(float[] values, int stride) {
+        return 4 + (values.length == 0 ? 0 : 8 * stride) + 2 * values.length;
+    }
+
+    /**
+     * Writes count, per-component min/max and the 16-bit quantized values.
+     */
+    private static void quantize(float[] values, int stride, ByteBuffer out) {
+        out.putInt(values.length);
+        if (values.length == 0) return;
+
+        float[] min = new float[stride];
+        float[] max = new float[stride];
+        for (int c = 0; c < stride; c++) {
+            min[c] = Float.POSITIVE_INFINITY;
+            max[c] = Float.NEGATIVE_INFINITY;
+        }
+        for (int i = 0; i < values.length; i++) {
+            int c = i % stride;
+            if (values[i] < min[c]) min[c] = values[i];
+            if (values[i] > max[c]) max[c] = values[i];
+        }
+        double[] scale = new double[stride];
+        for (int c = 0; c < stride; c++) {
+            out.putFloat(min[c]);
+            out.putFloat(max[c]);
+            scale[c] = max[c] > min[c] ? LEVELS / ((double) max[c] - min[c]) : 0;
+        }
+        for (int i = 0; i < values.length; i++) {
+            int c = i % stride;
+            out.putShort((short) Math.round((values[i] - min[c]) * scale[c]));
+        }
+    }
+
+    private static float[] dequantize(ByteBuffer in, int stride) {
+        int count = in.getInt();
+        float[] values = new float[count];
+        if (count == 0) return values;
+
+        float[] min = new float[stride];
+        float[] step = new float[stride];
+        for (int c = 0; c < stride; c++) {
+            min[c] = in.getFloat();
+            step[c] = (float) (((double) in.getFloat() - min[c]) / LEVELS);
+        }
+        for (int i = 0; i < count; ) {
+            for (int c = 0; c < stride && i < count; c++, i++) {
+                values[i] = min[c] + (in.getShort() & 0xFFFF) * step[c];
+            }
+        }
+        return values;
+    }
+
+    // === Face indices ===
+
+    /**
+     * Delta-encodes each column of the face stream against the previous value in the same column,
+     * and writes the zigzag-mapped deltas as varints.
+     */
+    private static byte[] encodeFaces(int[] faces, int stride) {
+        byte[] out = new byte[Math.max(16, faces.length * 2)];
+        int n = 0;
+        int[] previous = new int[stride];
+        for (int i = 0; i < faces.length; i++) {
+            int c = i % stride;
+            int delta = faces[i] - previous[c];
+            previous[c] = faces[i];
+            int zigzag = (delta << 1) ^ (delta >> 31);
+
+            if (n + 5 > out.length) out = Arrays.copyOf(out, 2 * out.length);
+            while ((zigzag & ~0x7F) != 0) {
+                out[n++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            out[n++] = (byte) zigzag;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int[] decodeFaces(ByteBuffer in, int byteLength, int count, int stride) throws IOException {
+        int[] faces = new int[count];
+        int[] previous = new int[stride];
+        int end = in.position() + byteLength;
+        int pos = in.position();
+        for (int i = 0; i < count; i++) {
+            int zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (pos >= end) throw new IOException("truncated face indices");
+                b = in.get(pos++);
+                zigzag |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            int c = i % stride;
+            previous[c] += (zigzag >>> 1) ^ -(zigzag & 1);
+            faces[i] = previous[c];
+        }
+        in.position(end);
+        return faces;
+    }
+}
@@ -0,0 +1,376 @@
+package HumanAnatomyViewer.model;
+
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Quadric error mesh simplification (Garland and Heckbert) by repeated edge collapse.
+ * Each point accumulates the planes of its triangles as a quadric; collapsing an edge moves both end points
+ * to the position with the smallest summed squared distance to those planes, cheapest edges first.
+ * Open borders get extra constraint planes so that they keep their outline, and collapses that would
+ * flip a triangle are rejected. Normal and texCoord indices of the surviving triangle corners are kept.
+ *
+ * Used to generate the coarser levels of detail of a model, see {@link #buildLevelsOfDetail(TriangleMesh)}.
+ */
+public final class MeshSimplifier {
+
+    /**
+     * Fraction of the triangles kept at each level of detail, level 0 being the original mesh.
+     */
+    public static final float[] LOD_RATIOS = {1f, 0.25f, 0.06f};
+
+    /**
+     * Meshes with fewer triangles are not worth simplifying and only get level 0.
+     */
+    public static final int MIN_LOD_TRIANGLES = 1000;
+
+    private static final double BORDER_WEIGHT = 1000;
+
+    private MeshSimplifier() {
+    }
+
+    /**
+     * Generates the levels of detail for a mesh according to {@link #LOD_RATIOS}.
+     * Each level is simplified from the previous one.
+     *
+     * @param mesh the full resolution mesh, not modified
+     * @return the levels, starting with the given mesh itself; just the mesh if it is too small to simplify
+     */
+    public static TriangleMesh[] buildLevelsOfDetail(TriangleMesh mesh) {
+        int triangles = triangleCount(mesh);
+        if (triangles < MIN_LOD_TRIANGLES) {
+            return new TriangleMesh[]{mesh};
+        }
+        TriangleMesh[] levels = new TriangleMesh[LOD_RATIOS.length];
+        levels[0] = mesh;
+        for (int i = 1; i < levels.length; i++) {
+            levels[i] = simplify(levels[i - 1], Math.max(4, Math.round(triangles * LOD_RATIOS[i])));
+        }
+        return levels;
+    }
+
+    /**
+     * @return number of triangles of a mesh
+     */
+    public static int triangleCount(TriangleMesh mesh) {
+        return mesh.getFaces().size() / (3 * (mesh.getVertexFormat() == VertexFormat.POINT_NORMAL_TEXCOORD ? 3 : 2));
+    }
+
+    /**
+     * Simplifies a mesh to at most the given number of triangles, or as close as possible without flipping triangles.
+     *
+     * @param mesh            the mesh, not modified
+     * @param targetTriangles the number of triangles to reduce to
+     * @return a new, simplified mesh
+     */
+    public static TriangleMesh simplify(TriangleMesh mesh, int targetTriangles) {
+        int stride = mesh.getVertexFormat() == VertexFormat.POINT_NORMAL_TEXCOORD ? 3 : 2;
+        float[] points = mesh.getPoints().toArray(null);
+        int[] faces = mesh.getFaces().toArray(null);
+
+        Collapser collapser = new Collapser(points, faces, stride);
+        collapser.run(targetTriangles);
+
+        // Surviving triangles keep their normal/texCoord indices, point indices are remapped to the compacted points
+        int pointCount = points.length / 3;
+        int[] newIndex = new int[pointCount];
+        Arrays.fill(newIndex, -1);
+        GrowableFloatArray newPoints = new GrowableFloatArray(3 * pointCount);
+        GrowableIntArray newFaces = new GrowableIntArray(collapser.liveTriangles * 3 * stride);
+        for (int t = 0; t < collapser.alive.length; t++) {
+            if (!collapser.alive[t]) continue;
+            for (int k = 0; k < 3; k++) {
+                int p = collapser.corners[3 * t + k];
+                if (newIndex[p] < 0) {
+                    newIndex[p] = newPoints.size() / 3;
+                    newPoints.add(collapser.positions[3 * p], collapser.positions[3 * p + 1], collapser.positions[3 * p + 2]);
+                }
+                int corner = (3 * t + k) * stride;
+                newFaces.add(newIndex[p]);
+                for (int j = 1; j < stride; j++) newFaces.add(faces[corner + j]);
+            }
+        }
+
+        TriangleMesh result = new TriangleMesh(mesh.getVertexFormat());
+        result.getPoints().setAll(newPoints.array(), 0, newPoints.size());
+        result.getTexCoords().setAll(mesh.getTexCoords());
+        result.getNormals().setAll(mesh.getNormals());
+        result.getFaces().setAll(newFaces.array(), 0, newFaces.size());
+        return result;
+    }
+
+    /**
+     * Edge collapse state: point positions and quadrics, triangle corners and a per-point list of triangles.
+     */
+    private static final class Collapser {
+        final float[] positions;
+        final int[] corners;      // 3 point indices per triangle
+        final boolean[] alive;    // per triangle
+        int liveTriangles;
+
+        private final double[] quadrics; // 10 coefficients per point: aa ab ac ad bb bc bd cc cd dd
+        private final GrowableIntArray[] triangles; // per point, may still contain dead triangles
+        private final int[] stamps;      // per point, incremented whenever the point changes
+        private final boolean[] removed; // per point
+
+        private final PriorityQueue<Candidate> queue = new PriorityQueue<>();
+
+        private record Candidate(double cost, int a, int b, int stampA, int stampB, float x, float y, float z)
+                implements Comparable<Candidate> {
+            @Override
+            public int compareTo(Candidate other) {
+                return Double.compare(cost, other.cost);
+            }
+        }
+
+        Collapser(float[] points, int[] faces, int stride) {
+            int pointCount = points.length / 3;
+            int triangleCount = faces.length / (3 * stride);
+            positions = points.clone();
+            corners = new int[3 * triangleCount];
+            alive = new boolean[triangleCount];
+            quadrics = new double[10 * pointCount];
+            triangles = new GrowableIntArray[pointCount];
+            stamps = new int[pointCount];
+            removed = new boolean[pointCount];
+
+            for (int t = 0; t < triangleCount; t++) {
+                for (int k = 0; k < 3; k++) {
+                    int p = faces[(3 * t + k) * stride];
+                    corners[3 * t + k] = p;
+                    if (triangles[p] == null) triangles[p] = new GrowableIntArray(6);
+                    triangles[p].add(t);
+                }
+                alive[t] = true;
+                addTriangleQuadric(t);
+            }
+            liveTriangles = triangleCount;
+
+            // Unique edges, sorted, with the number of triangles that use each of them
+            long[] edges = new long[3 * triangleCount];
+            for (int t = 0; t < triangleCount; t++) {
+                for (int k = 0; k < 3; k++) {
+                    edges[3 * t + k] = edgeKey(corners[3 * t + k], corners[3 * t + (k + 1) % 3]);
+                }
+            }
+            Arrays.sort(edges);
+            int unique = 0;
+            int[] uses = new int[edges.length];
+            for (int i = 0; i < edges.length; i++) {
+                if (unique > 0 && edges[unique - 1] == edges[i]) {
+                    uses[unique - 1]++;
+                } else {
+                    edges[unique] = edges[i];
+                    uses[unique++] = 1;
+                }
+            }
+
+            // Border edges are used by a single triangle; pin them with a plane perpendicular to that triangle
+            for (int t = 0; t < triangleCount; t++) {
+                for (int k = 0; k < 3; k++) {
+                    int a = corners[3 * t + k], b = corners[3 * t + (k + 1) % 3];
+                    int i = Arrays.binarySearch(edges, 0, unique, edgeKey(a, b));
+                    if (i >= 0 && uses[i] == 1) {
+                        addBorderQuadric(t, a, b);
+                    }
+                }
+            }
+
+            for (int i = 0; i < unique; i++) {
+                int a = (int) (edges[i] >>> 32), b = (int) edges[i];
+                if (a != b) push(a, b);
+            }
+        }
+
+        void run(int targetTriangles) {
+            while (liveTriangles > targetTriangles && !queue.isEmpty()) {
+                Candidate c = queue.poll();
+                if (removed[c.a] || removed[c.b] || stamps[c.a] != c.stampA || stamps[c.b] != c.stampB) {
+                    continue; // stale: one of the points changed since the candidate was computed
+                }
+                if (flips(c.a, c.b, c.x, c.y, c.z) || flips(c.b, c.a, c.x, c.y, c.z)) {
+                    continue;
+                }
+                collapse(c.a, c.b, c.x, c.y, c.z);
+            }
+        }
+
+        /**
+         * Moves a to the new position and merges b into it.
+         */
+        private void collapse(int a, int b, float x, float y, float z) {
+            positions[3 * a] = x;
+            positions[3 * a + 1] = y;
+            positions[3 * a + 2] = z;
+            for (int i = 0; i < 10; i++) quadrics[10 * a + i] += quadrics[10 * b + i];
+            removed[b] = true;
+            stamps[a]++;
+            stamps[b]++;
+
+            GrowableIntArray ofB = triangles[b];
+            for (int i = 0; i < ofB.size(); i++) {
+                int t = ofB.get(i);
+                if (!alive[t]) continue;
+                if (corners[3 * t] == a || corners[3 * t + 1] == a || corners[3 * t + 2] == a) {
+                    alive[t] = false; // the collapsed edge belonged to this triangle
+                    liveTriangles--;
+                } else {
+                    for (int k = 0; k < 3; k++) if (corners[3 * t + k] == b) corners[3 * t + k] = a;
+                    triangles[a].add(t);
+                }
+            }
+            triangles[b] = null;
+
+            // Rebuild a's triangle list without the dead triangles and re-evaluate all edges around a
+            GrowableIntArray ofA = triangles[a];
+            int[] list = ofA.toArray();
+            ofA.clear();
+            for (int t : list) {
+                if (!alive[t]) continue;
+                ofA.add(t);
+                for (int k = 0; k < 3; k++) {
+                    int p = corners[3 * t + k];
+                    if (p != a) push(a, p);
+                }
+            }
+        }
+
+        /**
+         * @return true if moving point p to (x, y, z) turns any triangle of p that does not contain q upside down
+         */
+        private boolean flips(int p, int q, float x, float y, float z) {
+            GrowableIntArray list = triangles[p];
+            for (int i = 0; i < list.size(); i++) {
+                int t = list.get(i);
+                if (!alive[t]) continue;
+                int k = corners[3 * t] == p ? 0 : corners[3 * t + 1] == p ? 1 : 2;
+                int u = corners[3 * t + (k + 1) % 3], v = corners[3 * t + (k + 2) % 3];
+                if (u == q || v == q) continue;
+
+                double[] before = normal(positions[3 * p], positions[3 * p + 1], positions[3 * p + 2], u, v);
+                double[] after = normal(x, y, z, u, v);
+                if (before[0] * after[0] + before[1] * after[1] + before[2] * after[2] <= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private double[] normal(double px, double py, double pz, int u, int v) {
+            double ux = positions[3 * u] - px, uy = positions[3 * u + 1] - py, uz = positions[3 * u + 2] - pz;
+            double vx = positions[3 * v] - px, vy = positions[3 * v + 1] - py, vz = positions[3 * v + 2] - pz;
+            return new double[]{uy * vz - uz * vy, uz * vx - ux * vz, ux * vy - uy * vx};
+        }
+
+        /**
+         * Computes the cheapest position for collapsing edge (a, b) and queues it.
+         * Candidates are the quadric optimum (if well defined and near the edge), both end points and the midpoint.
+         */
+        private void push(int a, int b) {
+            double[] q = new double[10];
+            for (int i = 0; i < 10; i++) q[i] = quadrics[10 * a + i] + quadrics[10 * b + i];
+
+            double ax = positions[3 * a], ay = positions[3 * a + 1], az = positions[3 * a + 2];
+            double bx = positions[3 * b], by = positions[3 * b + 1], bz = positions[3 * b + 2];
+            double mx = (ax + bx) / 2, my = (ay + by) / 2, mz = (az + bz) / 2;
+
+            double bestX = mx, bestY = my, bestZ = mz;
+            double best = error(q, mx, my, mz);
+            double costA = error(q, ax, ay, az);
+            if (costA < best) {
+                best = costA;
+                bestX = ax;
+                bestY = ay;
+                bestZ = az;
+            }
+            double costB = error(q, bx, by, bz);
+            if (costB < best) {
+                best = costB;
+                bestX = bx;
+                bestY = by;
+                bestZ = bz;
+            }
+
+            // Optimum: solve the 3x3 system of the quadric by Cramer's rule
+            double det = q[0] * (q[4] * q[7] - q[5] * q[5]) - q[1] * (q[1] * q[7] - q[5] * q[2]) + q[2] * (q[1] * q[5] - q[4] * q[2]);
+            if (Math.abs(det) > 1e-12) {
+                double rx = -q[3], ry = -q[6], rz = -q[8];
+                double ox = (rx * (q[4] * q[7] - q[5] * q[5]) - q[1] * (ry * q[7] - q[5] * rz) + q[2] * (ry * q[5] - q[4] * rz)) / det;
+                double oy = (q[0] * (ry * q[7] - q[5] * rz) - rx * (q[1] * q[7] - q[5] * q[2]) + q[2] * (q[1] * rz - ry * q[2])) / det;
+                double oz = (q[0] * (q[4] * rz - ry * q[5]) - q[1] * (q[1] * rz - ry * q[2]) + rx * (q[1] * q[5] - q[4] * q[2])) / det;
+                double dx = ox - mx, dy = oy - my, dz = oz - mz;
+                double ex = bx - ax, ey = by - ay, ez = bz - az;
+                if (dx * dx + dy * dy + dz * dz <= ex * ex + ey * ey + ez * ez) {
+                    double cost = error(q, ox, oy, oz);
+                    if (cost < best) {
+                        best = cost;
+                        bestX = ox;
+                        bestY = oy;
+                        bestZ = oz;
+                    }
+                }
+            }
+            queue.add(new Candidate(Math.max(0, best), a, b, stamps[a], stamps[b], (float) bestX, (float) bestY, (float) bestZ));
+        }
+
+        private static double error(double[] q, double x, double y, double z) {
+            return q[0] * x * x + 2 * q[1] * x * y + 2 * q[2] * x * z + 2 * q[3] * x
+                    + q[4] * y * y + 2 * q[5] * y * z + 2 * q[6] * y
+                    + q[7] * z * z + 2 * q[8] * z + q[9];
+        }
+
+        private void addTriangleQuadric(int t) {
+            int a = corners[3 * t], b = corners[3 * t + 1], c = corners[3 * t + 2];
+            double[] n = normal(positions[3 * a], positions[3 * a + 1], positions[3 * a + 2], b, c);
+            double length = Math.sqrt(n[0] * n[0] + n[1] * n[1] + n[2] * n[2]);
+            if (length == 0) return;
+            // Weighted by area, so that many tiny triangles do not outweigh a few large ones
+            double weight = length / 2;
+            double nx = n[0] / length, ny = n[1] / length, nz = n[2] / length;
+            double d = -(nx * positions[3 * a] + ny * positions[3 * a + 1] + nz * positions[3 * a + 2]);
+            addPlane(a, nx, ny, nz, d, weight);
+            addPlane(b, nx, ny, nz, d, weight);
+            addPlane(c, nx, ny, nz, d, weight);
+        }
+
+        private void addBorderQuadric(int t, int a, int b) {
+            int c = corners[3 * t] != a && corners[3 * t] != b ? corners[3 * t]
+                    : corners[3 * t + 1] != a && corners[3 * t + 1] != b ? corners[3 * t + 1] : corners[3 * t + 2];
+            double[] n = normal(positions[3 * a], positions[3 * a + 1], positions[3 * a + 2], b, c);
+            double ex = positions[3 * b] - positions[3 * a], ey = positions[3 * b + 1] - positions[3 * a + 1], ez = positions[3 * b + 2] - positions[3 * a + 2];
+            // Plane through the edge, perpendicular to the triangle
+            double px = ey * n[2] - ez * n[1], py = ez * n[0] - ex * n[2], pz = ex * n[1] - ey * n[0];
+            double length = Math.sqrt(px * px + py * py + pz * pz);
+            if (length == 0) return;
+            px /= length;
+            py /= length;
+            pz /= length;
+            double d = -(px * positions[3 * a] + py * positions[3 * a + 1] + pz * positions[3 * a + 2]);
+            double weight = BORDER_WEIGHT * (ex * ex + ey * ey + ez * ez);
+            addPlane(a, px, py, pz, d, weight);
+            addPlane(b, px, py, pz, d, weight);
+        }
+
+        private void addPlane(int p, double a, double b, double c, double d, double weight) {
+            double[] q = quadrics;
+            int i = 10 * p;
+            q[i] += weight * a * a;
+            q[i + 1] += weight * a * b;
+            q[i + 2] += weight * a * c;
+            q[i + 3] += weight * a * d;
+            q[i + 4] += weight * b * b;
+            q[i + 5] += weight * b * c;
+            q[i + 6] += weight * b * d;
+            q[i + 7] += weight * c * c;
+            q[i + 8] += weight * c * d;
+            q[i + 9] += weight * d * d;
+        }
+
+        private static long edgeKey(int a, int b) {
+            return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+        }
+    }
+}
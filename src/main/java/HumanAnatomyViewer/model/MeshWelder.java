@@ -0,0 +1,234 @@
+package HumanAnatomyViewer.model;
+
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Post-processing stage for parsed meshes: welds points that lie within an epsilon of each other,
+ * drops triangles that became degenerate (two corners on the same point) and removes points
+ * that no triangle references. Normal and texCoord indices of the remaining triangles are kept as they are.
+ *
+ * Candidate points are found with a spatial hash over cells of size epsilon, so each point is only compared
+ * with the points already kept in its own and the 26 neighbouring cells.
+ * The stage runs between parsing and display; {@link MeshCache} stores the processed mesh.
+ *
+ * The stage is disabled by default, so meshes are shown exactly as exported; it has to be enabled explicitly,
+ * e.g. with --weld when building a model pack.
+ */
+public final class MeshWelder {
+
+    /**
+     * Default welding distance, in model units (millimetres for the BodyParts3D exports).
+     */
+    public static final float DEFAULT_EPSILON = 1e-4f;
+
+    private static volatile boolean enabled = false;
+    private static volatile float epsilon = DEFAULT_EPSILON;
+
+    private MeshWelder() {
+    }
+
+    /**
+     * Savings of one weld.
+     *
+     * @param pointsBefore    number of points before welding
+     * @param pointsAfter     number of points after welding and compaction
+     * @param trianglesBefore number of triangles before welding
+     * @param trianglesAfter  number of triangles after dropping degenerate ones
+     */
+    public record Stats(int pointsBefore, int pointsAfter, int trianglesBefore, int trianglesAfter) {
+
+        public boolean changed() {
+            return pointsAfter != pointsBefore || trianglesAfter != trianglesBefore;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "points %d → %d (-%.1f%%), triangles %d → %d",
+                    pointsBefore, pointsAfter, percent(pointsBefore, pointsAfter), trianglesBefore, trianglesAfter);
+        }
+
+        private static double percent(int before, int after) {
+            return before == 0 ? 0 : 100.0 * (before - after) / before;
+        }
+    }
+
+    /**
+     * Enables or disables the stage. Changing this (or the epsilon) invalidates existing mesh cache files.
+     */
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets the welding distance. An epsilon of 0 only merges points with identical coordinates.
+     */
+    public static void setEpsilon(float value) {
+        if (!(value >= 0)) {
+            throw new IllegalArgumentException("epsilon must be >= 0: " + value);
+        }
+        epsilon = value;
+    }
+
+    public static float getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Identifies the current settings, so that cached results of this stage can be invalidated when they change.
+     *
+     * @return -1 if the stage is disabled, otherwise the bits of the epsilon
+     */
+    static long settingsKey() {
+        return enabled ? Float.floatToIntBits(epsilon) : -1;
+    }
+
+    /**
+     * Runs the stage with the current settings, if it is enabled.
+     *
+     * @param mesh the parsed mesh, modified in place
+     * @return the savings, or null if the stage is disabled
+     */
+    static Stats process(TriangleMesh mesh) {
+        if (!enabled) {
+            return null;
+        }
+        return weld(mesh, epsilon);
+    }
+
+    /**
+     * Welds points within epsilon, drops degenerate triangles and unreferenced points, and remaps the face indices.
+     * The first point of each welded group is kept at its original position.
+     *
+     * @param mesh    the mesh, modified in place
+     * @param epsilon maximum distance between welded points
+     * @return the savings
+     */
+    public static Stats weld(TriangleMesh mesh, float epsilon) {
+        float[] points = mesh.getPoints().toArray(null);
+        int[] faces = mesh.getFaces().toArray(null);
+        int stride = mesh.getVertexFormat() == VertexFormat.POINT_NORMAL_TEXCOORD ? 3 : 2;
+        int pointCount = points.length / 3;
+        int triangleCount = faces.length / (3 * stride);
+
+        // 1. Map every point to the first kept point within epsilon
+        int[] target = weldTargets(points, pointCount, epsilon);
+
+        // 2. Remap the point index of each corner and drop triangles that collapsed
+        int[] newFaces = new int[faces.length];
+        int length = 0;
+        int triangleSize = 3 * stride;
+        for (int t = 0; t < faces.length; t += triangleSize) {
+            int p0 = target[faces[t]];
+            int p1 = target[faces[t + stride]];
+            int p2 = target[faces[t + 2 * stride]];
+            if (p0 == p1 || p1 == p2 || p0 == p2) {
+                continue;
+            }
+            System.arraycopy(faces, t, newFaces, length, triangleSize);
+            newFaces[length] = p0;
+            newFaces[length + stride] = p1;
+            newFaces[length + 2 * stride] = p2;
+            length += triangleSize;
+        }
+
+        // 3. Keep only referenced points, in their original order
+        int[] newIndex = new int[pointCount];
+        Arrays.fill(newIndex, -1);
+        for (int i = 0; i < length; i += stride) {
+            newIndex[newFaces[i]] = 0;
+        }
+        int kept = 0;
+        for (int p = 0; p < pointCount; p++) {
+            if (newIndex[p] == 0) {
+                newIndex[p] = kept;
+                System.arraycopy(points, 3 * p, points, 3 * kept, 3);
+                kept++;
+            }
+        }
+        for (int i = 0; i < length; i += stride) {
+            newFaces[i] = newIndex[newFaces[i]];
+        }
+
+        Stats stats = new Stats(pointCount, kept, triangleCount, length / triangleSize);
+        if (stats.changed()) {
+            mesh.getPoints().setAll(points, 0, 3 * kept);
+            mesh.getFaces().setAll(newFaces, 0, length);
+            // The smoothing groups no longer line up with the triangles
+            if (mesh.getFaceSmoothingGroups().size() > 0) {
+                mesh.getFaceSmoothingGroups().clear();
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @return for each point the index of the point it is welded to (itself if it is kept)
+     */
+    private static int[] weldTargets(float[] points, int pointCount, float epsilon) {
+        int[] target = new int[pointCount];
+
+        // Open hash table over cells; each slot heads a chain of kept points whose cell maps to the slot.
+        // Colliding cells share a chain, which only costs a few extra distance checks.
+        int capacity = Integer.highestOneBit(Math.max(2 * pointCount - 1, 1)) << 1;
+        int mask = capacity - 1;
+        int[] head = new int[capacity];
+        Arrays.fill(head, -1);
+        int[] next = new int[pointCount];
+
+        boolean exact = epsilon == 0;
+        float inverseCell = exact ? 0 : 1 / epsilon;
+        float epsilonSquared = epsilon * epsilon;
+        int reach = exact ? 0 : 1;
+
+        for (int p = 0; p < pointCount; p++) {
+            float x = points[3 * p], y = points[3 * p + 1], z = points[3 * p + 2];
+            int cx = cell(x, inverseCell, exact);
+            int cy = cell(y, inverseCell, exact);
+            int cz = cell(z, inverseCell, exact);
+
+            int match = -1;
+            search:
+            for (int dx = -reach; dx <= reach; dx++) {
+                for (int dy = -reach; dy <= reach; dy++) {
+                    for (int dz = -reach; dz <= reach; dz++) {
+                        for (int q = head[hash(cx + dx, cy + dy, cz + dz) & mask]; q != -1; q = next[q]) {
+                            float ex = points[3 * q] - x, ey = points[3 * q + 1] - y, ez = points[3 * q + 2] - z;
+                            if (ex * ex + ey * ey + ez * ez <= epsilonSquared) {
+                                match = q;
+                                break search;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (match >= 0) {
+                target[p] = match;
+            } else {
+                target[p] = p;
+                int slot = hash(cx, cy, cz) & mask;
+                next[p] = head[slot];
+                head[slot] = p;
+            }
+        }
+        return target;
+    }
+
+    private static int cell(float value, float inverseCell, boolean exact) {
+        // For exact welding the cell is the coordinate itself (+0 and -0 share a cell)
+        return exact ? Float.floatToIntBits(value + 0f) : (int) Math.floor(value * inverseCell);
+    }
+
+    private static int hash(int x, int y, int z) {
+        int h = x * 0x9E3779B1 + y * 0x85EBCA77 + z * 0xC2B2AE3D;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,52 +1,205 @@
 package HumanAnatomyViewer.model;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The Model class serves as a data access layer in the application.
  * It loads and stores the root nodes of two anatomical hierarchies:
  * - "part-of" (structural containment)
  * - "is-a" (conceptual categorization)
+ *
+ * Both hierarchies load in the background, each as its own future, so the window can be shown right away.
+ * The part-of hierarchy is started first; the is-a hierarchy loads in parallel with it.
+ *
+ * Each hierarchy is read from a binary {@link OntologySnapshot} when one exists for its current resource files,
+ * and otherwise loaded from its TSV files, after which its snapshot is (re)written.
+ * The system property "anatomy.snapshot" sets the snapshot directory; "false" disables the snapshots.
+ *
+ * For every concept of a loaded hierarchy, the file IDs of its whole subtree are precomputed ({@link SubtreeFileIds})
+ * in the background, and the hierarchy's future only completes after that, so every node a tree shows has its sets
+ * and the JavaFX thread never waits for them. The {@link NameIndex} used for searching by name is built in the
+ * background right after the hierarchy has loaded, without delaying the tree. The {@link FuzzyNameIndex} for
+ * typo-tolerant search covers the names of both hierarchies and is filled the same way.
  */
 public class Model {
 
-    private final ANode partOfRoot;
-    private final ANode isARoot;
+    private static final String[] PART_OF_FILES = {
+            "HumanAnatomy/partof_parts_list_e.txt",
+            "HumanAnatomy/partof_element_parts.txt",
+            "HumanAnatomy/partof_inclusion_relation_list.txt"
+    };
+    private static final String[] IS_A_FILES = {
+            "HumanAnatomy/isa_parts_list_e.txt",
+            "HumanAnatomy/isa_element_parts.txt",
+            "HumanAnatomy/isa_inclusion_relation_list.txt"
+    };
 
     /**
-     * Constructor initializes the model by loading both hierarchies from resource files.
+     * A loaded hierarchy.
      *
-     * @throws IOException if any of the files cannot be loaded
+     * @param name         "part-of" or "is-a"
+     * @param root         root node of the hierarchy
+     * @param fromSnapshot true if it was read from the binary snapshot rather than the TSV files
+     * @param loadMillis   time spent loading it, in milliseconds
      */
-    public Model() throws IOException {
-        // Load the "part-of" hierarchy
-        partOfRoot = TreeLoader.load(
-                "HumanAnatomy/partof_parts_list_e.txt",
-                "HumanAnatomy/partof_element_parts.txt",
-                "HumanAnatomy/partof_inclusion_relation_list.txt"
-        );
+    public record Hierarchy(String name, ANode root, boolean fromSnapshot, long loadMillis) {
+    }
+
+    private final CompletableFuture<Hierarchy> partOf;
+    private final CompletableFuture<Hierarchy> isA;
+
+    // File IDs below every concept of the loaded hierarchies; each hierarchy is registered before its future completes
+    private final SubtreeFileIds subtreeFileIds = new SubtreeFileIds();
+
+    // Words of the names of both hierarchies, for fuzzy search; each hierarchy is added in the background
+    private final FuzzyNameIndex fuzzyNameIndex = new FuzzyNameIndex();
+    private final CompletableFuture<Void> partOfWordsIndexed;
+    private final CompletableFuture<Void> isAWordsIndexed;
+
+    /**
+     * Constructor starts loading both hierarchies in the background and returns immediately.
+     * A hierarchy that cannot be loaded completes its future exceptionally.
+     */
+    public Model() {
+        Path snapshotDirectory = snapshotDirectory();
+
+        // One thread per hierarchy; the threads end once both are loaded
+        ExecutorService loader = Executors.newFixedThreadPool(2, task -> {
+            Thread thread = new Thread(task, "hierarchy-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The part-of hierarchy is started first
+        CompletableFuture<Hierarchy> partOfLoaded = load("part-of", PART_OF_FILES, snapshotDirectory, loader);
+        CompletableFuture<Hierarchy> isALoaded = load("is-a", IS_A_FILES, snapshotDirectory, loader);
+        loader.shutdown();
+
+        partOf = register(partOfLoaded);
+        isA = register(isALoaded);
+        partOfLoaded.thenAcceptAsync(loaded -> loaded.root().ontology().nameIndex());
+        isALoaded.thenAcceptAsync(loaded -> loaded.root().ontology().nameIndex());
+        partOfWordsIndexed = indexWords(partOfLoaded);
+        isAWordsIndexed = indexWords(isALoaded);
+    }
+
+    private static CompletableFuture<Hierarchy> load(String name, String[] files, Path snapshotDirectory,
+                                                     ExecutorService loader) {
+        CompletableFuture<Hierarchy> hierarchy = CompletableFuture.supplyAsync(() -> {
+            try {
+                return loadHierarchy(name, files, snapshotDirectory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, loader);
+        hierarchy.whenComplete((loaded, error) -> {
+            if (error != null) {
+                System.err.println("❌ Could not load the " + name + " hierarchy: " + rootCause(error).getMessage());
+            } else {
+                System.out.println("✔ Loaded the " + name + " hierarchy from "
+                        + (loaded.fromSnapshot() ? "snapshot" : "TSV files") + " in " + loaded.loadMillis() + " ms");
+            }
+        });
+        return hierarchy;
+    }
+
+    /**
+     * Reads one hierarchy from its snapshot, or loads it from its TSV files and writes the snapshot.
+     */
+    private static Hierarchy loadHierarchy(String name, String[] files, Path snapshotDirectory) throws IOException {
+        long start = System.nanoTime();
+        Path snapshot = snapshotDirectory != null ? snapshotDirectory.resolve(name + ".snapshot") : null;
+        long sourceKey = TreeLoader.sourceKey(files);
+
+        Ontology[] ontologies = snapshot != null ? OntologySnapshot.readIfFresh(snapshot, sourceKey, 1) : null;
+        boolean fromSnapshot = ontologies != null;
+        if (!fromSnapshot) {
+            ontologies = new Ontology[]{TreeLoader.loadOntology(files[0], files[1], files[2])};
+            if (snapshot != null) {
+                OntologySnapshot.write(snapshot, sourceKey, ontologies);
+            }
+        }
+        return new Hierarchy(name, ontologies[0].root(), fromSnapshot, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Computes the subtree file ID sets of a hierarchy once it has loaded.
+     *
+     * @return the hierarchy, completing once its sets are computed; fails like the loading hierarchy
+     */
+    private CompletableFuture<Hierarchy> register(CompletableFuture<Hierarchy> hierarchy) {
+        return hierarchy.thenApplyAsync(loaded -> {
+            subtreeFileIds.register(loaded.root().ontology());
+            return loaded;
+        });
+    }
+
+    /**
+     * Adds the name words of a hierarchy to the fuzzy index once it has loaded.
+     */
+    private CompletableFuture<Void> indexWords(CompletableFuture<Hierarchy> hierarchy) {
+        return hierarchy.thenAcceptAsync(loaded -> fuzzyNameIndex.register(loaded.root().ontology()))
+                .exceptionally(error -> null);
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        while (error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
 
-        // Load the "is-a" hierarchy
-        isARoot = TreeLoader.load(
-                "HumanAnatomy/isa_parts_list_e.txt",
-                "HumanAnatomy/isa_element_parts.txt",
-                "HumanAnatomy/isa_inclusion_relation_list.txt"
-        );
+    /**
+     * @return the snapshot directory, or null if the snapshots are disabled
+     */
+    private static Path snapshotDirectory() {
+        String property = System.getProperty("anatomy.snapshot");
+        if ("false".equalsIgnoreCase(property)) {
+            return null;
+        }
+        return property != null ? Path.of(property)
+                : Path.of(System.getProperty("user.home"), ".human-anatomy-viewer");
     }
 
     /**
-     * Gets the root of the "part-of" hierarchy.
+     * Gets the "part-of" hierarchy, which completes once it has loaded and its subtree file IDs are computed.
      */
-    public ANode getPartOfRoot() {
-        return partOfRoot;
+    public CompletableFuture<Hierarchy> getPartOfHierarchy() {
+        return partOf;
     }
 
 
 
     /**
-     * Gets the root of the "is-a" hierarchy.
+     * Gets the "is-a" hierarchy, which completes once it has loaded and its subtree file IDs are computed.
+     */
+    public CompletableFuture<Hierarchy> getIsAHierarchy() {
+        return isA;
+    }
+
+    /**
+     * Returns the precomputed subtree file ID sets. Never waits: a hierarchy's future completes only after it is
+     * registered, so the sets cover any node the caller can have obtained from a completed hierarchy.
+     *
+     * @return the subtree file ID sets of the loaded hierarchies
+     */
+    public SubtreeFileIds getSubtreeFileIds() {
+        return subtreeFileIds;
+    }
+
+    /**
+     * Returns the fuzzy name index. Waits until every hierarchy that has loaded so far is indexed,
+     * so call it off the JavaFX thread.
+     *
+     * @return the fuzzy index over the names of the loaded hierarchies
      */
-    public ANode getIsARoot() {
-        return isARoot;
+    public FuzzyNameIndex getFuzzyNameIndex() {
+        if (partOf.isDone()) partOfWordsIndexed.join();
+        if (isA.isDone()) isAWordsIndexed.join();
+        return fuzzyNameIndex;
     }
 }
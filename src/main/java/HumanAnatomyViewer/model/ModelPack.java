@@ -0,0 +1,170 @@
+package HumanAnatomyViewer.model;
+
+import javafx.scene.shape.TriangleMesh;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read access to a model pack: a single file that holds all BodyParts meshes, written by {@link ModelPackBuilder}.
+ * The pack is memory-mapped once; loading a model looks up its offset and length in the index and decodes
+ * only that slice, without touching the rest of the file.
+ *
+ * Layout (little-endian):
+ * - header: int magic "HAVP", int version, int number of entries, long offset of the index
+ * - payloads: one {@link BinaryMesh} or {@link MeshCodec} encoded mesh per entry
+ * - index: per entry a short name length, the UTF-8 fileId, a long payload offset and an int payload length
+ */
+public final class ModelPack {
+
+    /**
+     * File name under which a pack is looked up in a model directory or on the classpath.
+     */
+    public static final String DEFAULT_NAME = "BodyParts.pack";
+
+    static final int MAGIC = 0x50564148; // "HAVP" in little-endian order
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 20;
+    private static final int MIN_INDEX_ENTRY_SIZE = 14; // name length, empty name, offset and length
+
+    private final ByteBuffer data;
+    private final Map<String, Entry> index;
+
+    private record Entry(int offset, int length) {
+    }
+
+    private ModelPack(ByteBuffer data) throws IOException {
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        this.index = readIndex(this.data);
+    }
+
+    /**
+     * Opens a pack file by memory-mapping it.
+     *
+     * @param file the pack file
+     * @return the opened pack
+     * @throws IOException if the file cannot be mapped or is not a model pack
+     */
+    public static ModelPack open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + ": model packs are limited to 2 GB");
+            }
+            return new ModelPack(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Opens a pack from the classpath. Packs on the file system are memory-mapped;
+     * packs inside a jar cannot be mapped and are read into memory once instead.
+     *
+     * @param resourceName absolute resource name, e.g. "/HumanAnatomy/BodyParts.pack"
+     * @return the opened pack, or null if there is no such resource
+     * @throws IOException if the resource cannot be read or is not a model pack
+     */
+    public static ModelPack openResource(String resourceName) throws IOException {
+        URL url = ModelPack.class.getResource(resourceName);
+        if (url == null) {
+            return null;
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return open(Path.of(url.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            return new ModelPack(ByteBuffer.wrap(in.readAllBytes()));
+        }
+    }
+
+    /**
+     * @return true if the pack holds a model for the given fileId
+     */
+    public boolean contains(String fileId) {
+        return index.containsKey(fileId);
+    }
+
+    /**
+     * @return all fileIds in the pack
+     */
+    public Set<String> fileIds() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    /**
+     * @return the number of payload bytes stored for the given fileId, or -1 if it is not in the pack
+     */
+    public int payloadSize(String fileId) {
+        Entry entry = index.get(fileId);
+        return entry == null ? -1 : entry.length();
+    }
+
+    /**
+     * Decodes the mesh of one model. Safe to call from several threads at once.
+     *
+     * @param fileId the model's fileId, e.g. "FJ1234"
+     * @return the mesh, or null if the pack has no model for this fileId
+     * @throws IOException if the payload is corrupt
+     */
+    public TriangleMesh load(String fileId) throws IOException {
+        Entry entry = index.get(fileId);
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer payload = data.slice(entry.offset(), entry.length());
+        return MeshCodec.isEncoded(payload) ? MeshCodec.decode(payload) : BinaryMesh.decode(payload);
+    }
+
+    private static Map<String, Entry> readIndex(ByteBuffer data) throws IOException {
+        ByteBuffer in = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) {
+            throw new IOException("not a model pack");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported model pack version: " + version);
+        }
+        int count = in.getInt();
+        long indexOffset = in.getLong();
+        if (count < 0 || indexOffset < HEADER_SIZE || indexOffset > data.limit()) {
+            throw new IOException("corrupt model pack header");
+        }
+        in.position((int) indexOffset);
+        if (count > in.remaining() / MIN_INDEX_ENTRY_SIZE) {
+            throw new IOException("corrupt model pack header");
+        }
+
+        Map<String, Entry> index = new HashMap<>(2 * count);
+        byte[] name = new byte[0xFFFF];
+        try {
+            for (int i = 0; i < count; i++) {
+                int nameLength = Short.toUnsignedInt(in.getShort());
+                in.get(name, 0, nameLength);
+                long offset = in.getLong();
+                int length = in.getInt();
+                if (offset < 0 || length < 0 || offset + length > data.limit()) {
+                    throw new IOException("corrupt model pack index");
+                }
+                index.put(new String(name, 0, nameLength, StandardCharsets.UTF_8), new Entry((int) offset, length));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("corrupt model pack index", e); // truncated
+        }
+        return index;
+    }
+}
@@ -0,0 +1,171 @@
+package HumanAnatomyViewer.model;
+
+import javafx.scene.shape.TriangleMesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Converts a BodyParts directory of OBJ files into a single {@link ModelPack}.
+ * Files are parsed and encoded in parallel, a batch at a time, and the payloads are written in file name order.
+ *
+ * By default meshes are stored exactly; with --quantize they are stored with the lossy {@link MeshCodec},
+ * and with --deflate the quantized meshes are additionally deflated.
+ * With --weld, meshes are welded with the default {@link MeshWelder} settings.
+ *
+ * Usage: ModelPackBuilder [--quantize] [--deflate] [--weld] &lt;BodyParts directory&gt; [pack file]
+ */
+public final class ModelPackBuilder {
+
+    private ModelPackBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean quantize = false;
+        boolean deflate = false;
+        List<String> paths = new ArrayList<>();
+        for (String arg : args) {
+            switch (arg) {
+                case "--quantize" -> quantize = true;
+                case "--deflate" -> deflate = quantize = true;
+                case "--weld" -> MeshWelder.setEnabled(true);
+                default -> paths.add(arg);
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println("Usage: ModelPackBuilder [--quantize] [--deflate] [--weld] <BodyParts directory> [pack file]");
+            System.exit(1);
+        }
+        Path directory = Path.of(paths.get(0));
+        Path packFile = paths.size() > 1 ? Path.of(paths.get(1)) : directory.resolve(ModelPack.DEFAULT_NAME);
+
+        long start = System.currentTimeMillis();
+        int count = build(directory, packFile, quantize, deflate);
+        System.out.println("✔ Packed " + count + " models into " + packFile + " ("
+                + Files.size(packFile) / 1024 + " KB) in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Builds a pack with exactly stored meshes.
+     *
+     * @see #build(Path, Path, boolean, boolean)
+     */
+    public static int build(Path directory, Path packFile) throws IOException {
+        return build(directory, packFile, false, false);
+    }
+
+    /**
+     * Builds a pack from all *.obj files in a directory. Files that cannot be parsed are reported and skipped.
+     *
+     * @param directory directory containing &lt;fileId&gt;.obj files
+     * @param packFile  the pack file to write, replaced atomically when complete
+     * @param quantize  store meshes with the lossy {@link MeshCodec} instead of exactly
+     * @param deflate   deflate the quantized meshes (only used together with quantize)
+     * @return the number of models in the pack
+     * @throws IOException if the directory cannot be listed or the pack cannot be written
+     */
+    public static int build(Path directory, Path packFile, boolean quantize, boolean deflate) throws IOException {
+        List<Path> sources;
+        try (Stream<Path> list = Files.list(directory)) {
+            sources = list.filter(p -> p.getFileName().toString().endsWith(".obj")).sorted().toList();
+        }
+
+        Path temp = Files.createTempFile(packFile.toAbsolutePath().getParent(), packFile.getFileName().toString(), ".tmp");
+        try {
+            List<String> names = new ArrayList<>();
+            List<long[]> entries = new ArrayList<>(); // offset, length
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long offset = ModelPack.HEADER_SIZE;
+
+                // Encode in batches, so only a bounded number of meshes is held in memory at once
+                int batchSize = 4 * ForkJoinPool.getCommonPoolParallelism();
+                for (int from = 0; from < sources.size(); from += batchSize) {
+                    List<Encoded> batch = sources.subList(from, Math.min(sources.size(), from + batchSize))
+                            .parallelStream()
+                            .map(source -> encode(source, quantize, deflate))
+                            .filter(Objects::nonNull)
+                            .toList();
+
+                    for (Encoded encoded : batch) {
+                        int length = encoded.data().remaining();
+                        writeFully(channel, encoded.data(), offset);
+                        names.add(encoded.fileId());
+                        entries.add(new long[]{offset, length});
+                        offset += length;
+                    }
+                }
+
+                // Index at the end, header last so an interrupted build never looks complete
+                ByteBuffer index = ByteBuffer.allocate(indexSize(names)).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < names.size(); i++) {
+                    byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+                    index.putShort((short) name.length);
+                    index.put(name);
+                    index.putLong(entries.get(i)[0]);
+                    index.putInt((int) entries.get(i)[1]);
+                }
+                writeFully(channel, index.flip(), offset);
+
+                ByteBuffer header = ByteBuffer.allocate(ModelPack.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(ModelPack.MAGIC);
+                header.putInt(ModelPack.VERSION);
+                header.putInt(names.size());
+                header.putLong(offset);
+                writeFully(channel, header.flip(), 0);
+            }
+
+            Files.move(temp, packFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return names.size();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private record Encoded(String fileId, ByteBuffer data) {
+    }
+
+    /**
+     * Parses and encodes one OBJ file.
+     *
+     * @return the encoded mesh, or null if the file could not be parsed
+     */
+    private static Encoded encode(Path source, boolean quantize, boolean deflate) {
+        String name = source.getFileName().toString();
+        String fileId = name.substring(0, name.length() - ".obj".length());
+        try {
+            TriangleMesh mesh = ObjParser.load(source.toString());
+            MeshWelder.process(mesh);
+            return new Encoded(fileId, quantize ? MeshCodec.encode(mesh, deflate) : BinaryMesh.encode(mesh));
+        } catch (IOException e) {
+            System.err.println("⚠ Skipping " + source + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static int indexSize(List<String> names) {
+        int size = 0;
+        for (String name : names) {
+            size += 2 + name.getBytes(StandardCharsets.UTF_8).length + 8 + 4;
+        }
+        return size;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package HumanAnatomyViewer.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Trigram index over the concept names of a hierarchy, so that a search only tests the names that can match
+ * instead of every name.
+ *
+ * Every name is split into its overlapping three-character sequences (trigrams), with A-Z folded to a-z like a
+ * case-insensitive {@link Pattern} does; for each trigram the index keeps the sorted positions of the names that
+ * contain it. A query is reduced to literals that every match must contain, e.g. "lobe" and "artery" for
+ * "lobe.*artery"; only the names that contain all their trigrams are candidates, and the full pattern is run on the
+ * candidates only. A query without such literals (".*", "[a-c]x", ...) tests every name, as before.
+ *
+ * The candidates are a superset of the matches, so results are the same as testing every name, and in the same order:
+ * names are indexed in the pre-order of the hierarchy.
+ */
+public final class NameIndex {
+
+    // A cancelled search notices it after at most this many more names
+    private static final int CANCEL_CHECK_MASK = 255;
+
+    private final Ontology ontology;
+    private final int[] concepts; // position -> concept, in pre-order
+
+    // Trigram -> trigram number; the positions containing trigram t are postings[postingStart[t] .. postingStart[t + 1])
+    private final Map<Long, Integer> trigrams = new HashMap<>();
+    private final int[] postingStart;
+    private final int[] postings;
+
+    // Positions of names with characters outside US-ASCII, whose String.toLowerCase may differ from the folding above
+    private final int[] nonAscii;
+
+    /**
+     * Indexes the names of a concept and everything below it.
+     *
+     * @param ontology the hierarchy
+     * @param top      the top concept
+     */
+    NameIndex(Ontology ontology, int top) {
+        this.ontology = ontology;
+        this.concepts = ontology.subtree(top);
+
+        GrowableIntArray trigramPositionPairs = new GrowableIntArray(16 * concepts.length);
+        GrowableIntArray nonAsciiPositions = new GrowableIntArray(16);
+        long[] keys = new long[64];
+        for (int position = 0; position < concepts.length; position++) {
+            String name = ontology.name(concepts[position]);
+            if (!isAscii(name)) {
+                nonAsciiPositions.add(position);
+            }
+            // Each distinct trigram of the name once
+            int count = Math.max(0, name.length() - 2);
+            if (count > keys.length) {
+                keys = new long[count];
+            }
+            for (int i = 0; i < count; i++) {
+                keys[i] = trigram(name, i);
+            }
+            Arrays.sort(keys, 0, count);
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || keys[i] != keys[i - 1]) {
+                    Integer number = trigrams.computeIfAbsent(keys[i], key -> trigrams.size());
+                    trigramPositionPairs.add(number, position);
+                }
+            }
+        }
+        postingStart = new int[trigrams.size() + 1];
+        postings = Ontology.groupBy(trigramPositionPairs, trigrams.size(), postingStart); // positions stay ascending
+        nonAscii = nonAsciiPositions.toArray();
+    }
+
+    /**
+     * Finds the concepts whose names match one of the patterns, i.e. for which {@code pattern.matcher(name).find()}
+     * is true.
+     *
+     * @param regexes  the regular expressions as the user entered them, used to find the required literals;
+     *                 each must be matched case-insensitively by the pattern at the same index
+     * @param patterns the compiled patterns
+     * @return matching concepts in pre-order, each once
+     */
+    public List<ANode> find(List<String> regexes, List<Pattern> patterns) {
+        return find(regexes, name -> patterns.stream().anyMatch(pattern -> pattern.matcher(name).find()), () -> false);
+    }
+
+    /**
+     * Like {@link #find(List, List)}, with any test of the names, e.g. one combined pattern or a
+     * {@link LiteralMatcher}; gives up as soon as the search is no longer needed.
+     *
+     * @param regexes   the regular expressions as the user entered them, used to find the required literals;
+     *                  the matcher must only accept names matched case-insensitively by one of them
+     * @param matcher   tests a candidate name
+     * @param cancelled polled while the candidates are tested, e.g. from a background thread
+     * @throws CancellationException if cancelled returned true
+     */
+    public List<ANode> find(List<String> regexes, Predicate<String> matcher, BooleanSupplier cancelled) {
+        // A name can only match if it contains the literals of one of the regexes
+        BitSet candidates = new BitSet(concepts.length);
+        for (String regex : regexes) {
+            int[] positions = positionsContaining(requiredLiterals(regex));
+            if (positions == null) {
+                candidates.set(0, concepts.length); // no literals: every name has to be tested
+                break;
+            }
+            for (int position : positions) {
+                candidates.set(position);
+            }
+        }
+
+        List<ANode> matches = new ArrayList<>();
+        int tested = 0;
+        for (int position = candidates.nextSetBit(0); position >= 0; position = candidates.nextSetBit(position + 1)) {
+            if ((++tested & CANCEL_CHECK_MASK) == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            if (matcher.test(ontology.name(concepts[position]))) {
+                matches.add(ontology.node(concepts[position]));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the concepts whose lowercased names contain a term, like {@code name.toLowerCase().contains(term)}.
+     *
+     * @param term the search term
+     * @return matching concepts in pre-order, each once
+     */
+    public List<ANode> findContaining(String term) {
+        // Names outside US-ASCII may lowercase differently from the index, they are always tested
+        int[] positions = isAscii(term) ? positionsContaining(List.of(fold(term))) : null;
+        BitSet candidates = new BitSet(concepts.length);
+        if (positions == null) {
+            candidates.set(0, concepts.length);
+        } else {
+            for (int position : positions) candidates.set(position);
+            for (int position : nonAscii) candidates.set(position);
+        }
+
+        List<ANode> matches = new ArrayList<>();
+        for (int position = candidates.nextSetBit(0); position >= 0; position = candidates.nextSetBit(position + 1)) {
+            if (ontology.name(concepts[position]).toLowerCase().contains(term)) {
+                matches.add(ontology.node(concepts[position]));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Intersects the postings of all trigrams of the literals, shortest first.
+     *
+     * @param literals folded literals
+     * @return ascending positions of the names containing every trigram, or null if the literals have no trigram
+     */
+    private int[] positionsContaining(Collection<String> literals) {
+        List<Integer> numbers = new ArrayList<>();
+        for (String literal : literals) {
+            for (int i = 0; i + 2 < literal.length(); i++) {
+                Integer number = trigrams.get(trigram(literal, i));
+                if (number == null) {
+                    return new int[0]; // no name contains this trigram
+                }
+                numbers.add(number);
+            }
+        }
+        if (numbers.isEmpty()) {
+            return null;
+        }
+        numbers.sort((a, b) -> Integer.compare(postingCount(a), postingCount(b)));
+
+        int[] result = Arrays.copyOfRange(postings, postingStart[numbers.get(0)], postingStart[numbers.get(0) + 1]);
+        int length = result.length;
+        for (int k = 1; k < numbers.size() && length > 0; k++) {
+            int t = numbers.get(k);
+            int j = postingStart[t];
+            int kept = 0;
+            for (int i = 0; i < length; i++) {
+                while (j < postingStart[t + 1] && postings[j] < result[i]) j++;
+                if (j < postingStart[t + 1] && postings[j] == result[i]) result[kept++] = result[i];
+            }
+            length = kept;
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    private int postingCount(int trigram) {
+        return postingStart[trigram + 1] - postingStart[trigram];
+    }
+
+    /**
+     * Extracts literals that every match of a regular expression contains, as seen by a case-insensitive search
+     * (folded to lowercase). Conservative: anything the extraction does not understand contributes no literal,
+     * and constructs that could change how the rest is read (alternation, inline flags such as (?x), escapes with
+     * arguments) give no literals at all.
+     *
+     * @param regex a regular expression
+     * @return the literals; only literals of at least three characters are returned, since shorter ones have no trigram
+     */
+    static List<String> requiredLiterals(String regex) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder run = new StringBuilder(); // consecutive literal characters
+        int n = regex.length();
+        int i = 0;
+        while (i < n) {
+            char c = regex.charAt(i);
+            int literal = -1; // the character if the next atom is a literal character
+            int next;         // end of the atom
+            switch (c) {
+                case '\\' -> {
+                    if (i + 1 >= n) return List.of();
+                    char escaped = regex.charAt(i + 1);
+                    if (escaped == 'Q') {
+                        int end = regex.indexOf("\\E", i + 2);
+                        String quoted = regex.substring(i + 2, end < 0 ? n : end);
+                        next = end < 0 ? n : end + 2;
+                        if (quoted.isEmpty()) {
+                            i = next;
+                            continue;
+                        }
+                        run.append(quoted, 0, quoted.length() - 1); // a quantifier only applies to the last one
+                        literal = quoted.charAt(quoted.length() - 1);
+                    } else if (!Character.isLetterOrDigit(escaped)) {
+                        literal = escaped;
+                        next = i + 2;
+                    } else if ("dDwWsSbBhHvVRXAzZGtnrfae".indexOf(escaped) >= 0) {
+                        next = i + 2; // character class, boundary or control character without arguments
+                    } else {
+                        return List.of(); // \p{..}, hex and octal escapes, back references, ...
+                    }
+                }
+                case '[' -> {
+                    next = skipClass(regex, i);
+                    if (next < 0) return List.of();
+                }
+                case '(' -> {
+                    if (i + 2 < n && regex.charAt(i + 1) == '?'
+                            && (Character.isLetter(regex.charAt(i + 2)) || regex.charAt(i + 2) == '-')) {
+                        return List.of(); // inline flags change how the rest is read
+                    }
+                    next = skipGroup(regex, i);
+                    if (next < 0) return List.of();
+                }
+                case '.', '^', '$' -> next = i + 1;
+                case '|', ')', '*', '+', '?', '{' -> {
+                    return List.of(); // alternation, or not a valid pattern
+                }
+                default -> {
+                    literal = c;
+                    next = i + 1;
+                }
+            }
+
+            // A quantifier on the atom
+            char quantifier = next < n ? regex.charAt(next) : 0;
+            if (quantifier == '*' || quantifier == '?' || quantifier == '{' || quantifier == '+') {
+                if (quantifier == '+' && literal >= 0) {
+                    run.append((char) literal); // at least once, but may repeat
+                } else if (literal >= 0 && Character.isLowSurrogate((char) literal) && !run.isEmpty()
+                        && Character.isHighSurrogate(run.charAt(run.length() - 1))) {
+                    run.setLength(run.length() - 1); // the quantifier applies to the whole surrogate pair
+                }
+                endRun(run, literals);
+                next = quantifier == '{' ? regex.indexOf('}', next) + 1 : next + 1;
+                if (next == 0) return List.of();
+                if (next < n && (regex.charAt(next) == '?' || regex.charAt(next) == '+')) next++; // lazy, possessive
+            } else if (literal >= 0) {
+                run.append((char) literal);
+            } else {
+                endRun(run, literals);
+            }
+            i = next;
+        }
+        endRun(run, literals);
+        return literals;
+    }
+
+    private static void endRun(StringBuilder run, List<String> literals) {
+        if (run.length() >= 3) {
+            literals.add(fold(run.toString()));
+        }
+        run.setLength(0);
+    }
+
+    /**
+     * @return the index after the character class starting at start, or -1 if it does not end
+     */
+    private static int skipClass(String regex, int start) {
+        int i = start + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') i++;
+        if (i < regex.length() && regex.charAt(i) == ']') i++; // a leading ] is a literal
+        int depth = 1;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') return -1;
+                i += 2;
+                continue;
+            }
+            if (c == '[') depth++;
+            if (c == ']' && --depth == 0) return i + 1;
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index after the group starting at start, or -1 if it does not end
+     */
+    private static int skipGroup(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') return -1;
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                i = skipClass(regex, i);
+                if (i < 0) return -1;
+                continue;
+            }
+            if (c == '(') depth++;
+            if (c == ')' && --depth == 0) return i + 1;
+            i++;
+        }
+        return -1;
+    }
+
+    private static long trigram(String text, int i) {
+        return (long) fold(text.charAt(i)) << 32 | (long) fold(text.charAt(i + 1)) << 16 | fold(text.charAt(i + 2));
+    }
+
+    /**
+     * Folds A-Z to a-z and leaves every other character as it is, like a case-insensitive Pattern.
+     */
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static String fold(String text) {
+        StringBuilder folded = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) folded.append(fold(text.charAt(i)));
+        return folded.toString();
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of indexed names
+     */
+    public int size() {
+        return concepts.length;
+    }
+
+    /**
+     * @return the number of distinct trigrams
+     */
+    public int trigramCount() {
+        return trigrams.size();
+    }
+
+    /**
+     * @return approximate heap size in bytes
+     */
+    public long heapBytes() {
+        long bytes = 16 + 4L * concepts.length + 16 + 4L * postingStart.length + 16 + 4L * postings.length
+                + 16 + 4L * nonAscii.length;
+        return bytes + 64L * trigrams.size(); // map entry, Long and Integer per trigram
+    }
+}
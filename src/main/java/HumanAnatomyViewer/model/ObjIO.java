@@ -24,8 +24,8 @@ public class ObjIO {
         if (file == null) return null;
 
         try {
-            // Parse OBJ file to create a TriangleMesh
-            TriangleMesh mesh = ObjParser.load(file.getAbsolutePath());
+            // Load the TriangleMesh from the compiled cache, parsing the OBJ file only if the cache is missing or stale
+            TriangleMesh mesh = MeshCache.load(file.toPath());
 
             // Extract mesh points (vertices)
             float[] points = mesh.getPoints().toArray(null);
@@ -42,36 +42,46 @@ public class ObjIO {
                 if (points[i + 2] < minZ) minZ = points[i + 2];
             }
 
-            // create material for mesh
-            PhongMaterial material = new PhongMaterial();
-            material.setSpecularColor(Color.WHITE);
-
             // Try loading texture image with same name as obj file
-            String texturePath = file.getAbsolutePath().replace(".obj", ".png");
-            File textureFile = new File(texturePath);
-
-            if (textureFile.exists()) {
-                // If texture file exists, apply diffuse map
-                Image textureImage = new Image(textureFile.toURI().toString());
-                material.setDiffuseMap(textureImage);
-            } else {
-                // otherwise use green as default color
-                material.setDiffuseColor(Color.WHITE);
-            }
-
-            // Create mashview to display the mesh
-            MeshView meshView = new MeshView(mesh);
-            meshView.setMaterial(material);
-
-            // Group into Group node
-            Group modelGroup = new Group(meshView);
+            File textureFile = new File(file.getAbsolutePath().replace(".obj", ".png"));
 
-            return modelGroup;
+            return createModelGroup(mesh, textureFile);
 
         } catch (Exception e) {
             e.printStackTrace();
             return null;
         }
     }
-}
 
+    /**
+     * Wraps a mesh into a MeshView with the default material and returns it as a Group.
+     * Used for meshes from OBJ files as well as from a {@link ModelPack}.
+     *
+     * @param mesh        the mesh to display
+     * @param textureFile texture image to use as diffuse map, or null / a missing file for plain white
+     * @return Group containing the model
+     */
+    public static Group createModelGroup(TriangleMesh mesh, File textureFile) {
+        // create material for mesh
+        PhongMaterial material = new PhongMaterial();
+        material.setSpecularColor(Color.WHITE);
+
+        if (textureFile != null && textureFile.exists()) {
+            // If texture file exists, apply diffuse map
+            Image textureImage = new Image(textureFile.toURI().toString());
+            material.setDiffuseMap(textureImage);
+        } else {
+            // otherwise use green as default color
+            material.setDiffuseColor(Color.WHITE);
+        }
+
+        // Create mashview to display the mesh
+        MeshView meshView = new MeshView(mesh);
+        meshView.setMaterial(material);
+
+        // Group into Group node
+        Group modelGroup = new Group(meshView);
+
+        return modelGroup;
+    }
+}
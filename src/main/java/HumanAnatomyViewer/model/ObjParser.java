@@ -3,17 +3,32 @@ package HumanAnatomyViewer.model;
 import javafx.scene.shape.TriangleMesh;
 import javafx.scene.shape.VertexFormat;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * OBJ parser
  * Daniel Huson, 5.2025
  */
 public class ObjParser {
+	/**
+	 * files larger than this (in bytes) are memory-mapped and parsed in parallel chunks
+	 */
+	public static final long PARALLEL_THRESHOLD = 4L << 20;
+
+	// smallest chunk worth a task of its own
+	private static final int MIN_CHUNK_SIZE = 1 << 20;
+
 	/**
 	 * loads a 3D object from an OBJ file into a mesh, triangulating, if necessary.
 	 * Does not support the full OBJ syntax, but suffices for the OBJ files used in the course
@@ -23,120 +38,149 @@ public class ObjParser {
 	 */
 
 	public static TriangleMesh load(String filePath) throws IOException {
-		var vertices = new ArrayList<Float>();
-		var normals = new ArrayList<Float>();
-		var texCoords = new ArrayList<Float>();
-		var faces = new ArrayList<Integer>();
-
-		var hasNormals=-1;
-
-		try (var br = new BufferedReader(new FileReader(filePath))) {
-			String line;
-			while ((line = br.readLine()) != null) {
-				var tokens = line.trim().split("\\s+");
-				if (tokens.length == 0) continue;
-
-				switch (tokens[0]) {
-					case "v":
-						vertices.add(Float.parseFloat(tokens[1]));
-						vertices.add(Float.parseFloat(tokens[2]));
-						vertices.add(Float.parseFloat(tokens[3]));
-						break;
-					case "vn":
-						normals.add(Float.parseFloat(tokens[1]));
-						normals.add(Float.parseFloat(tokens[2]));
-						normals.add(Float.parseFloat(tokens[3]));
-						break;
-					case "vt":
-						texCoords.add(Float.parseFloat(tokens[1]));
-						texCoords.add(1 - Float.parseFloat(tokens[2])); // flip V
-						break;
-
-					case "f":
-						var n = tokens.length - 1;
-						var vIndices = new int[n];
-						var tIndices = new int[n];
-						var nIndices = new int[n];
-
-						for (var i = 0; i < n; i++) {
-							var parts = tokens[i + 1].split("/");
-							vIndices[i] = Integer.parseInt(parts[0]) - 1;
-							if (parts.length >= 2 && !parts[1].isEmpty()) {
-								tIndices[i] = Integer.parseInt(parts[1]) - 1;
-							} else {
-								tIndices[i] = 0;
-							}
-							if (parts.length == 3 && !parts[2].isEmpty()) {
-								if (hasNormals == 0)
-									throw new IOException("some faces have normals, others don't");
-								else hasNormals = 1;
-								nIndices[i] = Integer.parseInt(parts[2]) - 1;
-							} else {
-								if (hasNormals == 1)
-									throw new IOException("some faces have normals, others don't");
-								else hasNormals = 0;
-							}
-						}
-						if (n == 3) {
-							faces.add(vIndices[0]);
-							if (hasNormals == 1)
-								faces.add(nIndices[0]);
-							faces.add(tIndices[0]);
-							faces.add(vIndices[1]);
-							if (hasNormals == 1)
-								faces.add(nIndices[1]);
-							faces.add(tIndices[1]);
-							faces.add(vIndices[2]);
-							if (hasNormals == 1)
-								faces.add(nIndices[2]);
-							faces.add(tIndices[2]);
-						} else if (n > 3) {
-							for (int i = 1; i < n - 1; i++) {
-								faces.add(vIndices[0]);
-								if (hasNormals == 1)
-									faces.add(nIndices[0]);
-								faces.add(tIndices[0]);
-								faces.add(vIndices[i]);
-								if (hasNormals == 1)
-									faces.add(nIndices[i]);
-								faces.add(tIndices[i]);
-								faces.add(vIndices[i + 1]);
-								if (hasNormals == 1)
-									faces.add(nIndices[i + 1]);
-								faces.add(tIndices[i + 1]);
-							}
-						}
-						break;
-				}
-			}
+		var path = Path.of(filePath);
+		if (Files.size(path) > PARALLEL_THRESHOLD)
+			return loadParallel(path);
+
+		var buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+
+		// Scan bytes directly into primitive arrays, no String or boxed value per token
+		var scanner = new ObjScanner(filePath, buffer, 0, buffer.limit());
+		scanner.scan();
+
+		return toMesh(List.of(scanner));
+	}
+
+	/**
+	 * memory-maps the file, splits it into line-aligned chunks and scans the chunks on the fork/join pool.
+	 * Since OBJ indices are absolute, every chunk can be scanned on its own; the chunks are then stitched
+	 * together in file order. Errors are reported with their line number in the whole file
+	 * @param path file
+	 * @return mesh
+	 * @throws IOException problem reading or parsing file
+	 */
+	static TriangleMesh loadParallel(Path path) throws IOException {
+		ByteBuffer buffer;
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException(path + ": file too large");
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
 		}
-		if (texCoords.isEmpty()) {
-			texCoords.add(0.0f);
-			texCoords.add(0.0f);
+
+		var pool = ForkJoinPool.commonPool();
+		var chunkCount = (int) Math.max(1, Math.min(4L * pool.getParallelism(), buffer.limit() / MIN_CHUNK_SIZE));
+		var bounds = lineAlignedBounds(buffer, chunkCount);
+
+		var scanners = new ArrayList<ObjScanner>();
+		var tasks = new ArrayList<Callable<Void>>();
+		for (var i = 0; i < chunkCount; i++) {
+			var scanner = new ObjScanner(path.toString(), buffer, bounds[i], bounds[i + 1]);
+			scanners.add(scanner);
+			tasks.add(() -> {
+				scanner.scan();
+				return null;
+			});
 		}
+		var futures = pool.invokeAll(tasks);
 
+		// Check the chunks in file order, so the first error in the file is the one reported
+		var hasNormals = -1;
+		for (var i = 0; i < chunkCount; i++) {
+			var scanner = scanners.get(i);
+			var error = failure(futures.get(i));
+
+			// A chunk whose faces disagree with the faces seen before it fails at its first face
+			if (scanner.hasNormals != -1 && hasNormals != -1 && scanner.hasNormals != hasNormals
+				&& (error == null || scanner.firstFaceLine <= error.line())) {
+				error = new ObjScanner.SyntaxError(path.toString(), scanner.firstFaceLine, ObjScanner.MIXED_NORMALS);
+			}
+			if (error != null)
+				throw error.atLine(countLines(buffer, bounds[i]) + error.line());
+
+			if (hasNormals == -1)
+				hasNormals = scanner.hasNormals;
+		}
+		return toMesh(scanners);
+	}
+
+	/**
+	 * builds the mesh from the scanned parts, in order. The primitive arrays are appended to the mesh
+	 * as they are, together with their valid length, so no intermediate copies are made
+	 */
+	private static TriangleMesh toMesh(List<ObjScanner> parts) {
 		var mesh = new TriangleMesh();
-		mesh.getPoints().setAll(toFloatArray(vertices));
-		mesh.getTexCoords().setAll(toFloatArray(texCoords));
-		mesh.getFaces().setAll(toIntArray(faces));
+		var points = mesh.getPoints();
+		var texCoords = mesh.getTexCoords();
+		var normals = mesh.getNormals();
+		var faces = mesh.getFaces();
+
+		points.ensureCapacity(parts.stream().mapToInt(p -> p.vertices.size()).sum());
+		texCoords.ensureCapacity(parts.stream().mapToInt(p -> p.texCoords.size()).sum());
+		normals.ensureCapacity(parts.stream().mapToInt(p -> p.normals.size()).sum());
+		faces.ensureCapacity(parts.stream().mapToInt(p -> p.faces.size()).sum());
+
+		for (var part : parts) {
+			points.addAll(part.vertices.array(), 0, part.vertices.size());
+			texCoords.addAll(part.texCoords.array(), 0, part.texCoords.size());
+			normals.addAll(part.normals.array(), 0, part.normals.size());
+			faces.addAll(part.faces.array(), 0, part.faces.size());
+		}
 
-		if(!normals.isEmpty()) {
-			mesh.getNormals().setAll(toFloatArray(normals));
+		if (texCoords.size() == 0) {
+			texCoords.addAll(0.0f, 0.0f);
+		}
+		if (normals.size() > 0) {
 			mesh.setVertexFormat(VertexFormat.POINT_NORMAL_TEXCOORD);
 		}
 		return mesh;
 	}
 
-	private static float[] toFloatArray(List<Float> list) {
-		var array = new float[list.size()];
-		for (var i = 0; i < list.size(); i++) array[i] = list.get(i);
-		return array;
+	/**
+	 * splits the buffer into roughly equal chunks that each start at the beginning of a line
+	 * @return chunkCount + 1 offsets, the first is 0 and the last is the buffer size
+	 */
+	private static int[] lineAlignedBounds(ByteBuffer buffer, int chunkCount) {
+		var size = buffer.limit();
+		var bounds = new int[chunkCount + 1];
+		for (var i = 1; i < chunkCount; i++) {
+			var pos = Math.max(bounds[i - 1], (int) ((long) size * i / chunkCount));
+			while (pos > 0 && pos < size && buffer.get(pos - 1) != '\n') pos++;
+			bounds[i] = pos;
+		}
+		bounds[chunkCount] = size;
+		return bounds;
+	}
+
+	/**
+	 * number of lines that end before the given offset
+	 */
+	private static int countLines(ByteBuffer buffer, int end) {
+		var lines = 0;
+		for (var i = 0; i < end; i++) {
+			if (buffer.get(i) == '\n') lines++;
+		}
+		return lines;
 	}
 
-	private static int[] toIntArray(List<Integer> list) {
-		var array = new int[list.size()];
-		for (var i = 0; i < list.size(); i++) array[i] = list.get(i);
-		return array;
+	/**
+	 * @return the parse error of a finished chunk task, or null if it succeeded
+	 */
+	private static ObjScanner.SyntaxError failure(Future<Void> future) throws IOException {
+		try {
+			future.get();
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while parsing", e);
+		} catch (ExecutionException e) {
+			// the pool wraps checked exceptions thrown by a Callable, look for the original one
+			for (var cause = e.getCause(); cause != null; cause = cause.getCause()) {
+				if (cause instanceof ObjScanner.SyntaxError syntaxError)
+					return syntaxError;
+				if (cause instanceof IOException ioException)
+					throw ioException;
+			}
+			throw new IOException(e.getCause());
+		}
 	}
 }
-
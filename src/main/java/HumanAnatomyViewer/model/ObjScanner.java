@@ -0,0 +1,347 @@
+package HumanAnatomyViewer.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Byte-level scanner for the subset of the OBJ format understood by {@link ObjParser}.
+ * Reads v, vt, vn and f records straight from a byte buffer and appends them to primitive arrays,
+ * without creating a String per line or per token. Faces are triangulated as a fan.
+ */
+final class ObjScanner {
+
+    static final String MIXED_NORMALS = "some faces have normals, others don't";
+
+    // Exact powers of ten that can be represented as doubles
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Largest mantissa that a double holds exactly (2^53)
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // The 29 low mantissa bits a double loses when it is rounded to a normal float, and their value exactly halfway
+    private static final long FLOAT_DROPPED_BITS = (1L << 29) - 1;
+    private static final long FLOAT_HALFWAY = 1L << 28;
+
+    private final String source;
+    private final ByteBuffer buffer;
+    private final int end;
+    private int pos;
+    private int line;
+
+    final GrowableFloatArray vertices;
+    final GrowableFloatArray normals;
+    final GrowableFloatArray texCoords;
+    final GrowableIntArray faces;
+
+    // -1 = not known yet, 0 = faces without normals, 1 = faces with normals
+    int hasNormals = -1;
+
+    // Line (relative to the start of the region) of the first face record, 0 if there is none
+    int firstFaceLine;
+
+    // Scratch space for the corners of the face currently being read
+    private int[] vIndices = new int[8];
+    private int[] tIndices = new int[8];
+    private int[] nIndices = new int[8];
+
+    /**
+     * @param source name of the input, used in error messages
+     * @param buffer bytes to scan, accessed with absolute gets only
+     * @param start  first byte of the region to scan
+     * @param end    end (exclusive) of the region to scan
+     */
+    ObjScanner(String source, ByteBuffer buffer, int start, int end) {
+        this.source = source;
+        this.buffer = buffer;
+        this.pos = start;
+        this.end = end;
+
+        // Rough guess: a vertex line is about 30 bytes, a face line about as long and yields 6-9 ints
+        int estimate = (end - start) / 60;
+        vertices = new GrowableFloatArray(estimate * 3);
+        normals = new GrowableFloatArray(16);
+        texCoords = new GrowableFloatArray(16);
+        faces = new GrowableIntArray(estimate * 9);
+    }
+
+    /**
+     * Scans the whole region.
+     *
+     * @throws IOException on malformed records, with the offending line number
+     */
+    void scan() throws IOException {
+        while (pos < end) {
+            line++;
+            skipBlanks();
+            if (pos >= end) break;
+
+            int keywordStart = pos;
+            while (pos < end && !isWhitespace(buffer.get(pos))) pos++;
+            int keywordLength = pos - keywordStart;
+
+            if (keywordLength == 1 || keywordLength == 2) {
+                byte k0 = buffer.get(keywordStart);
+                byte k1 = keywordLength == 2 ? buffer.get(keywordStart + 1) : 0;
+
+                if (k0 == 'v' && k1 == 0) {
+                    vertices.add(readFloat(), readFloat(), readFloat());
+                } else if (k0 == 'v' && k1 == 'n') {
+                    normals.add(readFloat(), readFloat(), readFloat());
+                } else if (k0 == 'v' && k1 == 't') {
+                    texCoords.add(readFloat(), 1 - readFloat()); // flip V
+                } else if (k0 == 'f' && k1 == 0) {
+                    if (firstFaceLine == 0) firstFaceLine = line;
+                    readFace();
+                }
+            }
+            skipToNextLine();
+        }
+    }
+
+    /**
+     * Number of lines seen so far, relative to the start of the region.
+     */
+    int lineCount() {
+        return line;
+    }
+
+    /**
+     * Reads the corners of one face and appends its fan triangulation to the face array.
+     */
+    private void readFace() throws IOException {
+        int n = 0;
+        while (true) {
+            skipBlanks();
+            if (atEndOfLine()) break;
+
+            if (n == vIndices.length) {
+                vIndices = Arrays.copyOf(vIndices, 2 * n);
+                tIndices = Arrays.copyOf(tIndices, 2 * n);
+                nIndices = Arrays.copyOf(nIndices, 2 * n);
+            }
+
+            vIndices[n] = readInt() - 1;
+            tIndices[n] = 0;
+            boolean cornerHasNormal = false;
+
+            if (pos < end && buffer.get(pos) == '/') {
+                pos++;
+                if (isIntStart()) tIndices[n] = readInt() - 1;
+                if (pos < end && buffer.get(pos) == '/') {
+                    pos++;
+                    if (isIntStart()) {
+                        nIndices[n] = readInt() - 1;
+                        cornerHasNormal = true;
+                    }
+                }
+            }
+            if (!atTokenEnd()) throw error("malformed face vertex");
+
+            if (cornerHasNormal) {
+                if (hasNormals == 0) throw error(MIXED_NORMALS);
+                hasNormals = 1;
+            } else {
+                if (hasNormals == 1) throw error(MIXED_NORMALS);
+                hasNormals = 0;
+            }
+            n++;
+        }
+
+        for (int i = 1; i < n - 1; i++) {
+            addCorner(0);
+            addCorner(i);
+            addCorner(i + 1);
+        }
+    }
+
+    private void addCorner(int i) {
+        if (hasNormals == 1) faces.add(vIndices[i], nIndices[i], tIndices[i]);
+        else faces.add(vIndices[i], tIndices[i]);
+    }
+
+    /**
+     * Parses a decimal integer with optional sign.
+     */
+    private int readInt() throws IOException {
+        boolean negative = false;
+        if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+            negative = buffer.get(pos) == '-';
+            pos++;
+        }
+        int start = pos;
+        int value = 0;
+        while (pos < end) {
+            int digit = buffer.get(pos) - '0';
+            if (digit < 0 || digit > 9) break;
+            value = value * 10 + digit;
+            pos++;
+        }
+        if (pos == start) throw error("expected an integer");
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the next blank-separated token as a float, with the same result as {@link Float#parseFloat(String)}.
+     * Plain decimal notation whose digits (up to 18 significant ones are accumulated) form a mantissa of at most 2^53,
+     * with a decimal exponent within ±22, is first converted to the correctly rounded double by one multiplication
+     * or division. Rounding that double to float gives the correctly rounded float, unless the double lies exactly
+     * halfway between two floats (the decimal may be slightly above or below) or is below the normal float range.
+     * Those, and anything else (longer mantissas, NaN, Infinity, hex), go through {@link Float#parseFloat(String)}.
+     */
+    private float readFloat() throws IOException {
+        skipBlanks();
+        if (atEndOfLine()) throw error("missing coordinate");
+
+        int start = pos;
+        boolean negative = false;
+        byte c = buffer.get(pos);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int significantDigits = 0;
+        boolean anyDigits = false;
+
+        while (pos < end && isDigit(c = buffer.get(pos))) {
+            if (mantissa != 0 || c != '0') significantDigits++;
+            if (significantDigits <= 18) mantissa = mantissa * 10 + (c - '0');
+            else exponent++;
+            anyDigits = true;
+            pos++;
+        }
+        if (pos < end && buffer.get(pos) == '.') {
+            pos++;
+            while (pos < end && isDigit(c = buffer.get(pos))) {
+                if (mantissa != 0 || c != '0') significantDigits++;
+                if (significantDigits <= 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    exponent--;
+                }
+                anyDigits = true;
+                pos++;
+            }
+        }
+        if (anyDigits && pos < end && (buffer.get(pos) == 'e' || buffer.get(pos) == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+                negativeExponent = buffer.get(pos) == '-';
+                pos++;
+            }
+            int e = 0;
+            int digitsStart = pos;
+            while (pos < end && isDigit(c = buffer.get(pos))) {
+                if (e < 10000) e = e * 10 + (c - '0');
+                pos++;
+            }
+            if (pos == digitsStart) anyDigits = false;
+            exponent += negativeExponent ? -e : e;
+        }
+
+        if (anyDigits && atTokenEnd() && mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+            boolean halfway = (Double.doubleToRawLongBits(value) & FLOAT_DROPPED_BITS) == FLOAT_HALFWAY;
+            if (!halfway && (value >= Float.MIN_NORMAL || value == 0)) {
+                return (float) (negative ? -value : value);
+            }
+        }
+        return slowFloat(start);
+    }
+
+    /**
+     * Fallback for numbers the fast path does not handle: extracts the token and uses the JDK parser.
+     */
+    private float slowFloat(int start) throws IOException {
+        pos = start;
+        while (!atTokenEnd()) pos++;
+        byte[] token = new byte[pos - start];
+        buffer.get(start, token);
+        String text = new String(token, StandardCharsets.US_ASCII);
+        try {
+            return Float.parseFloat(text);
+        } catch (NumberFormatException e) {
+            throw error("invalid number: " + text);
+        }
+    }
+
+    private boolean isIntStart() {
+        if (pos >= end) return false;
+        byte c = buffer.get(pos);
+        return isDigit(c) || c == '-' || c == '+';
+    }
+
+    private void skipBlanks() {
+        while (pos < end) {
+            byte c = buffer.get(pos);
+            if (c == '\n' || !isWhitespace(c)) return;
+            pos++;
+        }
+    }
+
+    private void skipToNextLine() {
+        while (pos < end && buffer.get(pos) != '\n') pos++;
+        if (pos < end) pos++;
+    }
+
+    private boolean atEndOfLine() {
+        return pos >= end || buffer.get(pos) == '\n';
+    }
+
+    private boolean atTokenEnd() {
+        return pos >= end || isWhitespace(buffer.get(pos));
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c <= ' ' && c >= 0;
+    }
+
+    private SyntaxError error(String message) {
+        return new SyntaxError(source, line, message);
+    }
+
+    /**
+     * Parse error. The line number is relative to the start of the scanned region,
+     * callers that scan a file in chunks use {@link #atLine(int)} to report the line in the file.
+     */
+    static final class SyntaxError extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final String source;
+        private final int line;
+        private final String detail;
+
+        SyntaxError(String source, int line, String detail) {
+            super(source + ": line " + line + ": " + detail);
+            this.source = source;
+            this.line = line;
+            this.detail = detail;
+        }
+
+        int line() {
+            return line;
+        }
+
+        String detail() {
+            return detail;
+        }
+
+        /**
+         * Returns the same error, reported at the given line of the whole file.
+         */
+        SyntaxError atLine(int fileLine) {
+            return new SyntaxError(source, fileLine, detail);
+        }
+    }
+}
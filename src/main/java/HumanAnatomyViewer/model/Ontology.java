@@ -0,0 +1,658 @@
+package HumanAnatomyViewer.model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+
+/**
+ * Compact, immutable store of one anatomical hierarchy (part-of or is-a).
+ *
+ * Concepts are numbered 0..size-1. Instead of one object per concept with its own lists, all data lives in a few
+ * primitive arrays indexed by concept number:
+ * - concept IDs, names and representation IDs are indices into one shared {@link StringTable};
+ * - children are stored CSR style: the children of concept c are children[childStart[c] .. childStart[c + 1]);
+ *   parents are stored the same way, so a concept with several parents is stored once and shared (a DAG, not a tree);
+ * - file IDs are interned (each distinct file ID is one String) and assigned as ranges in the same way.
+ *
+ * {@link ANode} is a lightweight view of one concept; views are created on demand and reused.
+ *
+ * Relations that would close a cycle are dropped (with a warning) when the ontology is built, so that every
+ * traversal from the root terminates.
+ */
+public final class Ontology {
+
+    private final StringTable strings;
+    private final int[] conceptIdRefs;
+    private final int[] nameRefs;
+    private final int[] representationIdRefs;
+
+    private final int[] childStart;
+    private final int[] children;
+    private final int[] parentStart;
+    private final int[] parents;
+
+    private final int[] fileStart;
+    private final int[] fileRefs;
+    private final String[] fileIdTable;
+
+    // Concept numbers sorted by concept ID, for binary search
+    private final int[] byConceptId;
+
+    private final int root;
+
+    // Views, created on first use
+    private final ANode[] views;
+
+    // Reverse file ID relation, derived on first use: file ID -> index into fileIdTable, index -> owning concepts
+    private Map<String, Integer> fileIdIndex;
+    private int[] ownerStart;
+    private int[] owners;
+
+    // Trigram index of the names below the root, built on first use
+    private NameIndex nameIndex;
+
+    private Ontology(StringTable strings, int[] conceptIdRefs, int[] nameRefs, int[] representationIdRefs,
+                     int[] childStart, int[] children, int[] parentStart, int[] parents,
+                     int[] fileStart, int[] fileRefs, String[] fileIdTable, int[] byConceptId, int root) {
+        this.strings = strings;
+        this.conceptIdRefs = conceptIdRefs;
+        this.nameRefs = nameRefs;
+        this.representationIdRefs = representationIdRefs;
+        this.childStart = childStart;
+        this.children = children;
+        this.parentStart = parentStart;
+        this.parents = parents;
+        this.fileStart = fileStart;
+        this.fileRefs = fileRefs;
+        this.fileIdTable = fileIdTable;
+        this.byConceptId = byConceptId;
+        this.root = root;
+        this.views = new ANode[conceptIdRefs.length];
+    }
+
+    private static Ontology pack(Builder builder, int root) {
+        int size = builder.conceptIdRefs.size();
+        StringTable strings = builder.strings.build();
+        int[] conceptIdRefs = builder.conceptIdRefs.toArray();
+
+        int[] childStart = new int[size + 1];
+        int[] children = groupBy(withoutCycles(builder.relations, size, root, strings, conceptIdRefs), size, childStart);
+
+        // The inverse relation, from the relations that were kept
+        GrowableIntArray childParentPairs = new GrowableIntArray(2 * children.length);
+        for (int parent = 0; parent < size; parent++) {
+            for (int i = childStart[parent]; i < childStart[parent + 1]; i++) {
+                childParentPairs.add(children[i], parent);
+            }
+        }
+        int[] parentStart = new int[size + 1];
+        int[] parents = groupBy(childParentPairs, size, parentStart);
+        int[] fileStart = new int[size + 1];
+        int[] fileRefs = groupBy(builder.elements, size, fileStart);
+
+        int[] byConceptId = IntStream.range(0, size).boxed()
+                .sorted((a, b) -> strings.compare(conceptIdRefs[a], conceptIdRefs[b]))
+                .mapToInt(Integer::intValue).toArray();
+        return new Ontology(strings, conceptIdRefs, builder.nameRefs.toArray(), builder.representationIdRefs.toArray(),
+                childStart, children, parentStart, parents, fileStart, fileRefs, builder.fileIds.build().toArray(),
+                byConceptId, root);
+    }
+
+    /**
+     * Finds relations that close a cycle with a depth-first search, starting at the root and then at every concept
+     * not reached yet, and drops them: a relation to a concept that is on the current search path is a back edge.
+     *
+     * @param relations flat parent, child pairs
+     * @return the relations without back edges, in their original order
+     */
+    private static GrowableIntArray withoutCycles(GrowableIntArray relations, int size, int root,
+                                                  StringTable strings, int[] conceptIdRefs) {
+        int[] childStart = new int[size + 1];
+        int[] edges = groupBy(relationIndices(relations), size, childStart); // relation numbers, grouped by parent
+        byte[] state = new byte[size]; // 0 = not visited, 1 = on the search path, 2 = done
+        BitSet dropped = new BitSet();
+
+        int[] pathNode = new int[size];
+        int[] pathNext = new int[size]; // next edge to follow, per path entry
+        for (int i = -1; i < size; i++) {
+            int start = i < 0 ? root : i;
+            if (state[start] != 0) {
+                continue;
+            }
+            int depth = 0;
+            pathNode[0] = start;
+            pathNext[0] = childStart[start];
+            state[start] = 1;
+            while (depth >= 0) {
+                int node = pathNode[depth];
+                if (pathNext[depth] == childStart[node + 1]) {
+                    state[node] = 2;
+                    depth--;
+                    continue;
+                }
+                int relation = edges[pathNext[depth]++];
+                int child = relations.get(2 * relation + 1);
+                if (state[child] == 1) {
+                    dropped.set(relation);
+                    System.err.println("⚠ Dropping relation " + strings.get(conceptIdRefs[node]) + " -> "
+                            + strings.get(conceptIdRefs[child]) + ", it would close a cycle");
+                } else if (state[child] == 0) {
+                    state[child] = 1;
+                    depth++;
+                    pathNode[depth] = child;
+                    pathNext[depth] = childStart[child];
+                }
+            }
+        }
+
+        if (dropped.isEmpty()) {
+            return relations;
+        }
+        GrowableIntArray kept = new GrowableIntArray(relations.size());
+        for (int relation = 0; relation < relations.size() / 2; relation++) {
+            if (!dropped.get(relation)) {
+                kept.add(relations.get(2 * relation), relations.get(2 * relation + 1));
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @return (parent, relation number) pairs for grouping relation numbers by parent
+     */
+    private static GrowableIntArray relationIndices(GrowableIntArray relations) {
+        GrowableIntArray pairs = new GrowableIntArray(relations.size());
+        for (int relation = 0; relation < relations.size() / 2; relation++) {
+            pairs.add(relations.get(2 * relation), relation);
+        }
+        return pairs;
+    }
+
+    /**
+     * Groups (key, value) pairs by key, keeping the order of the values of each key (a stable counting sort).
+     *
+     * @param pairs flat key, value pairs
+     * @param keys  number of distinct keys
+     * @param start receives the start of each key's range, plus the total at index keys
+     * @return the values, grouped by key
+     */
+    static int[] groupBy(GrowableIntArray pairs, int keys, int[] start) {
+        int[] data = pairs.array();
+        int count = pairs.size() / 2;
+        for (int i = 0; i < count; i++) {
+            start[data[2 * i] + 1]++;
+        }
+        for (int k = 0; k < keys; k++) {
+            start[k + 1] += start[k];
+        }
+        int[] values = new int[count];
+        int[] next = Arrays.copyOf(start, keys);
+        for (int i = 0; i < count; i++) {
+            values[next[data[2 * i]]++] = data[2 * i + 1];
+        }
+        return values;
+    }
+
+    // === Concepts ===
+
+    /**
+     * @return the number of concepts
+     */
+    public int size() {
+        return conceptIdRefs.length;
+    }
+
+    /**
+     * @return the root concept
+     */
+    public ANode root() {
+        return node(root);
+    }
+
+    /**
+     * @param concept concept number
+     * @return the view of the concept
+     */
+    public ANode node(int concept) {
+        ANode view = views[concept];
+        if (view == null) {
+            view = new ANode(this, concept);
+            views[concept] = view; // a lost race only creates an equal view
+        }
+        return view;
+    }
+
+    /**
+     * Looks up a concept by its concept ID with a binary search.
+     *
+     * @param conceptId e.g. FMA7088
+     * @return the concept number, or -1 if there is no such concept
+     */
+    public int find(String conceptId) {
+        byte[] key = conceptId.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = byConceptId.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = strings.compare(conceptIdRefs[byConceptId[mid]], key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return byConceptId[mid];
+            }
+        }
+        return -1;
+    }
+
+    public String conceptId(int concept) {
+        return strings.get(conceptIdRefs[concept]);
+    }
+
+    public String name(int concept) {
+        return strings.get(nameRefs[concept]);
+    }
+
+    public String representationId(int concept) {
+        return strings.get(representationIdRefs[concept]);
+    }
+
+    // === Children ===
+
+    public int childCount(int concept) {
+        return childStart[concept + 1] - childStart[concept];
+    }
+
+    /**
+     * @return the concept number of the index-th child
+     */
+    public int child(int concept, int index) {
+        return children[childStart[concept] + index];
+    }
+
+    /**
+     * @return read-only list view of the children of a concept
+     */
+    public List<ANode> children(int concept) {
+        return new RangeList<>(childStart[concept], childStart[concept + 1]) {
+            @Override
+            ANode at(int position) {
+                return node(children[position]);
+            }
+        };
+    }
+
+    /**
+     * Lists a concept and everything below it, each concept once even if it is reached through several parents.
+     * The order is the pre-order of a depth-first walk, i.e. the order in which a fully expanded tree shows them.
+     *
+     * @param concept the top concept
+     * @return concept numbers
+     */
+    public int[] subtree(int concept) {
+        BitSet seen = new BitSet(size());
+        GrowableIntArray result = new GrowableIntArray(64);
+        GrowableIntArray stack = new GrowableIntArray(64);
+        stack.add(concept);
+        while (stack.size() > 0) {
+            int current = stack.removeLast();
+            if (seen.get(current)) {
+                continue;
+            }
+            seen.set(current);
+            result.add(current);
+            for (int i = childStart[current + 1] - 1; i >= childStart[current]; i--) { // reversed, first child on top
+                if (!seen.get(children[i])) stack.add(children[i]);
+            }
+        }
+        return result.toArray();
+    }
+
+    // === Parents ===
+
+    /**
+     * @return the number of parents; 0 for the root and concepts that were only described
+     */
+    public int parentCount(int concept) {
+        return parentStart[concept + 1] - parentStart[concept];
+    }
+
+    /**
+     * @return read-only list view of all parents of a concept
+     */
+    public List<ANode> parents(int concept) {
+        return new RangeList<>(parentStart[concept], parentStart[concept + 1]) {
+            @Override
+            ANode at(int position) {
+                return node(parents[position]);
+            }
+        };
+    }
+
+    // === File IDs ===
+
+    public int fileIdCount(int concept) {
+        return fileStart[concept + 1] - fileStart[concept];
+    }
+
+    /**
+     * @return read-only list view of the file IDs of a concept; the strings are shared, not copied
+     */
+    public List<String> fileIds(int concept) {
+        return new RangeList<>(fileStart[concept], fileStart[concept + 1]) {
+            @Override
+            String at(int position) {
+                return fileIdTable[fileRefs[position]];
+            }
+        };
+    }
+
+    /**
+     * Finds the concepts a file ID belongs to. The reverse relation is built on first use.
+     *
+     * @param fileId model file ID
+     * @return read-only list view of the owning concepts; empty if the file ID is unknown
+     */
+    public List<ANode> owners(String fileId) {
+        buildOwners();
+        Integer index = fileIdIndex.get(fileId);
+        if (index == null) {
+            return List.of();
+        }
+        return new RangeList<>(ownerStart[index], ownerStart[index + 1]) {
+            @Override
+            ANode at(int position) {
+                return node(owners[position]);
+            }
+        };
+    }
+
+    private synchronized void buildOwners() {
+        if (fileIdIndex != null) {
+            return;
+        }
+        GrowableIntArray fileConceptPairs = new GrowableIntArray(2 * fileRefs.length);
+        for (int concept = 0; concept < size(); concept++) {
+            for (int i = fileStart[concept]; i < fileStart[concept + 1]; i++) {
+                fileConceptPairs.add(fileRefs[i], concept);
+            }
+        }
+        int[] start = new int[fileIdTable.length + 1];
+        owners = groupBy(fileConceptPairs, fileIdTable.length, start);
+        ownerStart = start;
+        Map<String, Integer> index = new HashMap<>(fileIdTable.length * 4 / 3 + 1);
+        for (int i = 0; i < fileIdTable.length; i++) {
+            index.put(fileIdTable[i], i);
+        }
+        fileIdIndex = index;
+    }
+
+    // === Names ===
+
+    /**
+     * Returns the trigram index of the names of the root and everything below it, for searching by name.
+     * The index is built on first use.
+     */
+    public synchronized NameIndex nameIndex() {
+        if (nameIndex == null) {
+            nameIndex = new NameIndex(this, root);
+        }
+        return nameIndex;
+    }
+
+    /**
+     * @return the number of distinct file IDs
+     */
+    public int distinctFileIds() {
+        return fileIdTable.length;
+    }
+
+    /**
+     * @return approximate heap size of the store in bytes, not counting the views created so far
+     */
+    public long heapBytes() {
+        long bytes = strings.heapBytes();
+        for (int[] array : arrays()) {
+            bytes += 16 + 4L * array.length;
+        }
+        bytes += 16 + 4L * fileIdTable.length + 4L * views.length;
+        for (String fileId : fileIdTable) {
+            bytes += 40 + fileId.length(); // header, value array, Latin-1 characters
+        }
+        return bytes;
+    }
+
+    // === Binary encoding, used by OntologySnapshot ===
+
+    /**
+     * Number of bytes {@link #encode(ByteBuffer)} will write.
+     */
+    int encodedSize() {
+        long size = 4 + strings.encodedSize() + StringTable.encodedSize(fileIdTable);
+        for (int[] array : arrays()) {
+            size += 4 + 4L * array.length;
+        }
+        if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("ontology too large to encode");
+        return (int) size;
+    }
+
+    private int[][] arrays() {
+        return new int[][]{conceptIdRefs, nameRefs, representationIdRefs, childStart, children,
+                parentStart, parents, fileStart, fileRefs, byConceptId};
+    }
+
+    /**
+     * Writes the ontology at the current position of a little-endian buffer and advances the position.
+     */
+    void encode(ByteBuffer out) {
+        out.putInt(root);
+        strings.encode(out);
+        StringTable.encode(fileIdTable, out);
+        for (int[] array : arrays()) {
+            putInts(out, array);
+        }
+    }
+
+    /**
+     * Reads an ontology written by {@link #encode(ByteBuffer)} from a little-endian buffer.
+     *
+     * @throws IOException if the data is truncated or inconsistent
+     */
+    static Ontology decode(ByteBuffer in) throws IOException {
+        try {
+            int root = in.getInt();
+            StringTable strings = StringTable.decode(in);
+            String[] fileIdTable = StringTable.decodeStrings(in);
+            int[] conceptIdRefs = getInts(in);
+            int[] nameRefs = getInts(in);
+            int[] representationIdRefs = getInts(in);
+            int[] childStart = getInts(in);
+            int[] children = getInts(in);
+            int[] parentStart = getInts(in);
+            int[] parents = getInts(in);
+            int[] fileStart = getInts(in);
+            int[] fileRefs = getInts(in);
+            int[] byConceptId = getInts(in);
+
+            int size = conceptIdRefs.length;
+            if (root < 0 || root >= size || nameRefs.length != size || representationIdRefs.length != size
+                    || childStart.length != size + 1 || parentStart.length != size + 1 || fileStart.length != size + 1
+                    || byConceptId.length != size || childStart[size] != children.length
+                    || parentStart[size] != parents.length || fileStart[size] != fileRefs.length) {
+                throw new IOException("inconsistent ontology data");
+            }
+            return new Ontology(strings, conceptIdRefs, nameRefs, representationIdRefs, childStart, children,
+                    parentStart, parents, fileStart, fileRefs, fileIdTable, byConceptId, root);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated ontology data");
+        }
+    }
+
+    static void putInts(ByteBuffer out, int[] values) {
+        out.putInt(values.length);
+        // Bulk copy through a typed view instead of one put per value
+        out.asIntBuffer().put(values);
+        out.position(out.position() + 4 * values.length);
+    }
+
+    static int[] getInts(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0 || in.remaining() < 4L * length) {
+            throw new IOException("truncated ontology data");
+        }
+        int[] values = new int[length];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + 4 * length);
+        return values;
+    }
+
+    /**
+     * A read-only list over a range of one of the arrays.
+     */
+    private abstract static class RangeList<T> extends AbstractList<T> implements RandomAccess {
+        private final int from;
+        private final int to;
+
+        RangeList(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        abstract T at(int position);
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return at(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * Collects concepts, file IDs and relations in any order, then packs them into an {@link Ontology}.
+     * Concepts that only appear in relations or element rows get an empty name and representation ID.
+     */
+    public static final class Builder {
+
+        private final StringTable.Builder strings = new StringTable.Builder();
+        private final int empty = strings.add("");
+        private int[] conceptByRef = new int[1024]; // string index of a concept ID -> concept + 1, 0 = none yet
+
+        private final GrowableIntArray conceptIdRefs = new GrowableIntArray(1024);
+        private final GrowableIntArray nameRefs = new GrowableIntArray(1024);
+        private final GrowableIntArray representationIdRefs = new GrowableIntArray(1024);
+        private final GrowableIntArray described = new GrowableIntArray(1024); // concepts in parts file order
+
+        private final StringTable.Builder fileIds = new StringTable.Builder(); // index = file ID number
+
+        private final GrowableIntArray relations = new GrowableIntArray(2048); // parent, child
+        private final GrowableIntArray elements = new GrowableIntArray(4096);  // concept, file ID
+        private final BitSet hasParent = new BitSet();
+
+        private int concept(int conceptIdRef) {
+            if (conceptIdRef >= conceptByRef.length) {
+                conceptByRef = Arrays.copyOf(conceptByRef, Math.max(conceptIdRef + 1, 2 * conceptByRef.length));
+            }
+            if (conceptByRef[conceptIdRef] != 0) {
+                return conceptByRef[conceptIdRef] - 1;
+            }
+            int concept = conceptIdRefs.size();
+            conceptByRef[conceptIdRef] = concept + 1;
+            conceptIdRefs.add(conceptIdRef);
+            nameRefs.add(empty);
+            representationIdRefs.add(empty);
+            return concept;
+        }
+
+        /**
+         * Strings of concept IDs, names and representation IDs, for callers that intern them from raw bytes.
+         */
+        StringTable.Builder strings() {
+            return strings;
+        }
+
+        /**
+         * File IDs, for callers that intern them from raw bytes.
+         */
+        StringTable.Builder fileIds() {
+            return fileIds;
+        }
+
+        /**
+         * Describes a concept (a row of a parts list file).
+         */
+        public void addConcept(String conceptId, String representationId, String name) {
+            addConcept(strings.add(conceptId), strings.add(representationId), strings.add(name));
+        }
+
+        /**
+         * Like {@link #addConcept(String, String, String)}, with indices into {@link #strings()}.
+         */
+        void addConcept(int conceptIdRef, int representationIdRef, int nameRef) {
+            int concept = concept(conceptIdRef);
+            representationIdRefs.set(concept, representationIdRef);
+            nameRefs.set(concept, nameRef);
+            described.add(concept);
+        }
+
+        /**
+         * Assigns a model file to a concept (a row of an element parts file).
+         */
+        public void addFileId(String conceptId, String fileId) {
+            addFileId(strings.add(conceptId), fileIds.add(fileId));
+        }
+
+        /**
+         * Like {@link #addFileId(String, String)}, with indices into {@link #strings()} and {@link #fileIds()}.
+         */
+        void addFileId(int conceptIdRef, int fileIdRef) {
+            elements.add(concept(conceptIdRef), fileIdRef);
+        }
+
+        /**
+         * Adds a parent-child relation (a row of an inclusion relation file). Children keep the order they are added in.
+         */
+        public void addRelation(String parentId, String childId) {
+            addRelation(strings.add(parentId), strings.add(childId));
+        }
+
+        /**
+         * Like {@link #addRelation(String, String)}, with indices into {@link #strings()}.
+         */
+        void addRelation(int parentIdRef, int childIdRef) {
+            int parent = concept(parentIdRef);
+            int child = concept(childIdRef);
+            relations.add(parent, child);
+            hasParent.set(child);
+        }
+
+        /**
+         * @return the ontology, rooted at the first described concept that has no parent
+         * @throws IllegalStateException if every described concept has a parent
+         */
+        public Ontology build() {
+            for (int i = 0; i < described.size(); i++) {
+                if (!hasParent.get(described.get(i))) {
+                    return pack(this, described.get(i));
+                }
+            }
+            throw new IllegalStateException("No root node found");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package HumanAnatomyViewer.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Versioned binary snapshot of loaded hierarchies, so that startup does not have to read and tokenize the TSV files.
+ * The arrays of each {@link Ontology} are written as they are and read back with bulk reads.
+ *
+ * Layout (little-endian):
+ * - int magic "HAVO", int version
+ * - long source key: identifies the TSV files the snapshot was built from, see {@link TreeLoader#sourceKey(String...)}
+ * - long CRC32C of the payload, int number of ontologies
+ * - the ontologies
+ *
+ * A snapshot is only used while its version and source key match; otherwise the caller loads the TSV files again.
+ */
+public final class OntologySnapshot {
+
+    private static final int MAGIC = 0x4F564148; // "HAVO" in little-endian order
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 28;
+
+    private OntologySnapshot() {
+    }
+
+    /**
+     * Reads a snapshot if it exists and was written for the given sources.
+     *
+     * @param file      the snapshot file
+     * @param sourceKey key of the current source files
+     * @param count     number of ontologies expected
+     * @return the ontologies in the order they were written, or null if there is no usable snapshot
+     */
+    public static Ontology[] readIfFresh(Path file, long sourceKey, int count) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read the whole file in bulk
+            }
+            buffer.flip();
+
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != sourceKey) {
+                return null; // other format version or stale
+            }
+            long crc = buffer.getLong();
+            if (buffer.getInt() != count) {
+                return null;
+            }
+            CRC32C actual = new CRC32C();
+            actual.update(buffer.duplicate());
+            if (actual.getValue() != crc) {
+                throw new IOException("checksum mismatch");
+            }
+
+            Ontology[] ontologies = new Ontology[count];
+            for (int i = 0; i < count; i++) {
+                ontologies[i] = Ontology.decode(buffer);
+            }
+            return ontologies;
+        } catch (IOException e) {
+            System.err.println("⚠ Ignoring unreadable ontology snapshot " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot through a temporary file, so readers never see a partially written snapshot.
+     * Failing to write is not an error, the TSV files are simply loaded again next time.
+     *
+     * @param file       the snapshot file; its directory is created if necessary
+     * @param sourceKey  key of the source files the ontologies were loaded from
+     * @param ontologies the ontologies
+     */
+    public static void write(Path file, long sourceKey, Ontology... ontologies) {
+        Path temp = null;
+        try {
+            long size = 0;
+            for (Ontology ontology : ontologies) {
+                size += ontology.encodedSize();
+            }
+            if (size > Integer.MAX_VALUE - HEADER_SIZE) {
+                throw new IOException("ontologies too large for a snapshot");
+            }
+            ByteBuffer payload = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+            for (Ontology ontology : ontologies) {
+                ontology.encode(payload);
+            }
+            payload.flip();
+
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putLong(sourceKey);
+            header.putLong(crc.getValue());
+            header.putInt(ontologies.length);
+            header.flip();
+
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer[] buffers = {header, payload};
+                while (payload.hasRemaining()) {
+                    channel.write(buffers);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("⚠ Could not write ontology snapshot " + file + ": " + e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // nothing more we can do
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package HumanAnatomyViewer.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An immutable table of strings, stored as one UTF-8 byte array plus offsets instead of one String object each.
+ * Strings are addressed by their index; equal strings added to the builder share one index.
+ *
+ * A String costs about 40 bytes of headers on top of its characters; for the tens of thousands of
+ * concept names and IDs of a full ontology the table needs little more than the characters themselves.
+ */
+public final class StringTable {
+
+    private final byte[] data;
+    private final int[] offsets; // string i is data[offsets[i] .. offsets[i + 1])
+
+    private StringTable(byte[] data, int[] offsets) {
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @return the number of distinct strings
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Decodes a string. Each call creates a new String.
+     *
+     * @param index index returned by {@link Builder#add(String)}
+     * @return the string
+     */
+    public String get(int index) {
+        return new String(data, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes all strings.
+     */
+    public String[] toArray() {
+        String[] values = new String[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+
+    /**
+     * Compares a string with an already encoded key, in Unicode code point order.
+     *
+     * @param index index of the string
+     * @param key   UTF-8 encoded key
+     * @return negative, zero or positive as the string is less than, equal to or greater than the key
+     */
+    public int compare(int index, byte[] key) {
+        return Arrays.compareUnsigned(data, offsets[index], offsets[index + 1], key, 0, key.length);
+    }
+
+    /**
+     * Compares two strings of the table, in Unicode code point order.
+     */
+    public int compare(int a, int b) {
+        return Arrays.compareUnsigned(data, offsets[a], offsets[a + 1], data, offsets[b], offsets[b + 1]);
+    }
+
+    /**
+     * @return approximate heap size of the table in bytes
+     */
+    public long heapBytes() {
+        return 16 + data.length + 16 + 4L * offsets.length;
+    }
+
+    // === Binary encoding, used by OntologySnapshot ===
+
+    int encodedSize() {
+        return 8 + data.length + 4 * offsets.length;
+    }
+
+    /**
+     * Writes the table at the current position of a little-endian buffer and advances the position.
+     */
+    void encode(ByteBuffer out) {
+        out.putInt(data.length);
+        out.put(data);
+        Ontology.putInts(out, offsets);
+    }
+
+    /**
+     * Reads a table written by {@link #encode(ByteBuffer)}.
+     *
+     * @throws IOException if the data is truncated or inconsistent
+     */
+    static StringTable decode(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0 || in.remaining() < length) {
+            throw new IOException("truncated string table");
+        }
+        byte[] data = new byte[length];
+        in.get(data);
+        int[] offsets = Ontology.getInts(in);
+        if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != length) {
+            throw new IOException("inconsistent string table");
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) throw new IOException("inconsistent string table");
+        }
+        return new StringTable(data, offsets);
+    }
+
+    /**
+     * Number of bytes {@link #encode(String[], ByteBuffer)} will write for the given strings.
+     */
+    static int encodedSize(String[] values) {
+        int bytes = 0;
+        for (String value : values) {
+            bytes += value.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return 8 + bytes + 4 * (values.length + 1);
+    }
+
+    /**
+     * Writes an array of strings in the table format, without deduplicating them.
+     */
+    static void encode(String[] values, ByteBuffer out) {
+        Builder builder = new Builder(false);
+        for (String value : values) {
+            builder.add(value);
+        }
+        builder.build().encode(out);
+    }
+
+    /**
+     * Reads an array of strings written by {@link #encode(String[], ByteBuffer)}.
+     */
+    static String[] decodeStrings(ByteBuffer in) throws IOException {
+        return decode(in).toArray();
+    }
+
+    /**
+     * Collects strings, deduplicating equal ones. Strings can be added as UTF-8 bytes straight from an input buffer,
+     * so that no String is created for them; equal strings are found by hashing and comparing their bytes.
+     */
+    public static final class Builder {
+
+        private final boolean deduplicate;
+        private byte[] data = new byte[1024];
+        private final GrowableIntArray offsets = new GrowableIntArray(256);
+        private final GrowableIntArray hashes = new GrowableIntArray(256);
+        private int[] slots = new int[512]; // open addressing: index + 1 of a string, 0 = free
+
+        public Builder() {
+            this(true);
+        }
+
+        private Builder(boolean deduplicate) {
+            this.deduplicate = deduplicate;
+            offsets.add(0);
+        }
+
+        /**
+         * @param value the string to add
+         * @return its index in the table
+         */
+        public int add(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            return add(ByteBuffer.wrap(bytes), 0, bytes.length);
+        }
+
+        /**
+         * Adds a UTF-8 encoded string.
+         *
+         * @param source buffer holding the bytes, accessed with absolute gets only
+         * @param offset first byte of the string
+         * @param length number of bytes
+         * @return its index in the table
+         */
+        public int add(ByteBuffer source, int offset, int length) {
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + source.get(offset + i);
+            }
+            int slot = 0;
+            if (deduplicate) {
+                int mask = slots.length - 1;
+                for (slot = mix(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                    int index = slots[slot] - 1;
+                    if (hashes.get(index) == hash && equals(index, source, offset, length)) {
+                        return index;
+                    }
+                }
+            }
+
+            int end = offsets.get(offsets.size() - 1);
+            if (end + length > data.length) {
+                data = Arrays.copyOf(data, Math.max(end + length, data.length + (data.length >> 1)));
+            }
+            source.get(offset, data, end, length);
+            offsets.add(end + length);
+            hashes.add(hash);
+
+            int index = offsets.size() - 2;
+            if (deduplicate) {
+                slots[slot] = index + 1;
+                if (2 * (index + 1) > slots.length) {
+                    rehash();
+                }
+            }
+            return index;
+        }
+
+        private boolean equals(int index, ByteBuffer source, int offset, int length) {
+            int start = offsets.get(index);
+            if (offsets.get(index + 1) - start != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (data[start + i] != source.get(offset + i)) return false;
+            }
+            return true;
+        }
+
+        private void rehash() {
+            slots = new int[2 * slots.length];
+            int mask = slots.length - 1;
+            for (int index = 0; index < hashes.size(); index++) {
+                int slot = mix(hashes.get(index)) & mask;
+                while (slots[slot] != 0) slot = (slot + 1) & mask;
+                slots[slot] = index + 1;
+            }
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        /**
+         * @return the number of strings added so far
+         */
+        public int size() {
+            return offsets.size() - 1;
+        }
+
+        /**
+         * @return the table; the builder must not be used afterwards
+         */
+        public StringTable build() {
+            int end = offsets.get(offsets.size() - 1);
+            return new StringTable(Arrays.copyOf(data, end), offsets.toArray());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package HumanAnatomyViewer.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * For every concept of the registered hierarchies, the file IDs of its whole subtree as a {@link FileIdSet}.
+ *
+ * File IDs are interned into one index space shared by all hierarchies, so sets from the part-of and the is-a
+ * hierarchy can be combined. "Everything under these nodes" is then a union of precomputed sets
+ * instead of a walk over all descendants.
+ *
+ * Sets are computed bottom-up when a hierarchy is registered; a concept without file IDs of its own and with a
+ * single child shares the child's set, and a concept with several parents is computed once.
+ */
+public class SubtreeFileIds {
+
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final List<String> fileIds = new ArrayList<>();
+    private final Map<Ontology, FileIdSet[]> subtreeSets = new IdentityHashMap<>();
+
+    /**
+     * @param ontologies hierarchies to register right away
+     */
+    public SubtreeFileIds(Ontology... ontologies) {
+        for (Ontology ontology : ontologies) {
+            register(ontology);
+        }
+    }
+
+    /**
+     * Interns the file IDs of a hierarchy and computes the subtree set of each of its concepts.
+     * Indices handed out earlier stay valid.
+     *
+     * @param ontology the hierarchy
+     */
+    public synchronized void register(Ontology ontology) {
+        if (subtreeSets.containsKey(ontology)) {
+            return;
+        }
+        int size = ontology.size();
+        FileIdSet[] sets = new FileIdSet[size];
+        FileIdSet.Builder builder = new FileIdSet.Builder();
+
+        // Post-order over the DAG: a concept is computed once all its children are
+        int[] stack = new int[size];
+        int[] nextChild = new int[size];
+        for (int start = 0; start < size; start++) {
+            if (sets[start] != null) {
+                continue;
+            }
+            int depth = 0;
+            stack[0] = start;
+            nextChild[0] = 0;
+            while (depth >= 0) {
+                int concept = stack[depth];
+                if (nextChild[depth] < ontology.childCount(concept)) {
+                    int child = ontology.child(concept, nextChild[depth]++);
+                    if (sets[child] == null) {
+                        stack[++depth] = child;
+                        nextChild[depth] = 0;
+                    }
+                    continue;
+                }
+                sets[concept] = compute(ontology, concept, sets, builder);
+                depth--;
+            }
+        }
+        subtreeSets.put(ontology, sets);
+    }
+
+    private FileIdSet compute(Ontology ontology, int concept, FileIdSet[] sets, FileIdSet.Builder builder) {
+        int childCount = ontology.childCount(concept);
+        if (ontology.fileIdCount(concept) == 0 && childCount <= 1) {
+            return childCount == 0 ? FileIdSet.EMPTY : sets[ontology.child(concept, 0)];
+        }
+        for (String fileId : ontology.fileIds(concept)) {
+            builder.add(intern(fileId));
+        }
+        for (int i = 0; i < childCount; i++) {
+            builder.or(sets[ontology.child(concept, i)]);
+        }
+        return builder.build();
+    }
+
+    private int intern(String fileId) {
+        Integer index = indices.get(fileId);
+        if (index == null) {
+            index = fileIds.size();
+            indices.put(fileId, index);
+            fileIds.add(fileId);
+        }
+        return index;
+    }
+
+    /**
+     * @return the file IDs of the node and everything below it
+     */
+    public synchronized FileIdSet subtree(ANode node) {
+        FileIdSet[] sets = subtreeSets.get(node.ontology());
+        if (sets == null) {
+            throw new IllegalArgumentException("Hierarchy of " + node + " is not registered");
+        }
+        return sets[node.id()];
+    }
+
+    /**
+     * @return the file IDs of the nodes and everything below them
+     */
+    public FileIdSet subtrees(Collection<ANode> nodes) {
+        FileIdSet.Builder builder = new FileIdSet.Builder();
+        for (ANode node : nodes) {
+            builder.or(subtree(node));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Converts file IDs into a set; file IDs that no registered hierarchy knows are left out.
+     */
+    public synchronized FileIdSet of(Collection<String> fileIds) {
+        FileIdSet.Builder builder = new FileIdSet.Builder();
+        for (String fileId : fileIds) {
+            Integer index = indices.get(fileId);
+            if (index != null) builder.add(index);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the interned index of a file ID, or -1 if no registered hierarchy knows it
+     */
+    public synchronized int indexOf(String fileId) {
+        return indices.getOrDefault(fileId, -1);
+    }
+
+    /**
+     * @return the file ID with the given interned index
+     */
+    public synchronized String fileId(int index) {
+        return fileIds.get(index);
+    }
+
+    /**
+     * @return the file IDs of a set, in index order
+     */
+    public synchronized Set<String> toFileIds(FileIdSet set) {
+        Set<String> result = new LinkedHashSet<>();
+        set.forEach(index -> result.add(fileIds.get(index)));
+        return result;
+    }
+
+    /**
+     * @return the number of interned file IDs
+     */
+    public synchronized int size() {
+        return fileIds.size();
+    }
+
+    /**
+     * @return approximate heap size of all subtree sets in bytes; shared sets are counted once
+     */
+    public synchronized long heapBytes() {
+        Set<FileIdSet> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+        long bytes = 0;
+        for (FileIdSet[] sets : subtreeSets.values()) {
+            bytes += 16 + 4L * sets.length;
+            for (FileIdSet set : sets) {
+                if (counted.add(set)) bytes += set.heapBytes();
+            }
+        }
+        return bytes;
+    }
+}
@@ -1,10 +1,10 @@
 package HumanAnatomyViewer.model;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.*;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Path;
+import java.util.List;
 
 public class TreeLoader {
     /**
@@ -17,91 +17,132 @@ public class TreeLoader {
      * @return The root ANode of the constructed tree.
      */
     public static ANode load(String partsFile, String elementsFile, String relationsFile) throws IOException {
-        Map<String, String> representationIds = new HashMap<>();
-        Map<String, String> names = new HashMap<>();
-        Map<String, List<String>> fileIdsMap = new HashMap<>();
-        Map<String, List<String>> childrenMap = new HashMap<>();
-        Map<String, String> parentMap = new HashMap<>();
+        return loadOntology(partsFile, elementsFile, relationsFile).root();
+    }
+
+    /**
+     * Loads the three data files into a compact {@link Ontology}.
+     * The files are read byte by byte with a {@link TsvReader}; only the columns that are kept are interned,
+     * and no String is created per line or per column.
+     *
+     * @see #load(String, String, String)
+     */
+    public static Ontology loadOntology(String partsFile, String elementsFile, String relationsFile) throws IOException {
+        try (TsvReader parts = TsvReader.openResource(partsFile);
+             TsvReader elements = TsvReader.openResource(elementsFile);
+             TsvReader relations = TsvReader.openResource(relationsFile)) {
+            return buildOntology(parts, elements, relations);
+        }
+    }
+
+    /**
+     * Loads the three data files from the file system.
+     *
+     * @see #loadOntology(String, String, String)
+     */
+    public static Ontology loadOntology(Path partsFile, Path elementsFile, Path relationsFile) throws IOException {
+        try (TsvReader parts = TsvReader.open(partsFile);
+             TsvReader elements = TsvReader.open(elementsFile);
+             TsvReader relations = TsvReader.open(relationsFile)) {
+            return buildOntology(parts, elements, relations);
+        }
+    }
+
+    private static Ontology buildOntology(TsvReader parts, TsvReader elements, TsvReader relations) throws IOException {
+        Ontology.Builder builder = new Ontology.Builder();
+        StringTable.Builder strings = builder.strings();
+
+        // Step 1: Load parts/isA metadata, skipping the header line
+        parts.next();
+        while (parts.next()) {
+            if (parts.columnCount() >= 3) {
+                builder.addConcept(parts.intern(0, strings), parts.intern(1, strings), parts.intern(2, strings));
+            }
+        }
+
+        // Step 2: Load file ID mappings; the name column is not needed
+        elements.next();
+        while (elements.next()) {
+            if (elements.columnCount() >= 3) {
+                builder.addFileId(elements.intern(0, strings), elements.intern(2, builder.fileIds()));
+            }
+        }
+
+        // Step 3: Load parent-child relationships; only the IDs are needed
+        relations.next();
+        while (relations.next()) {
+            if (relations.columnCount() >= 4) {
+                builder.addRelation(relations.intern(0, strings), relations.intern(2, strings));
+            }
+        }
+
+        // Step 4: Pack everything into primitive arrays; the root is the first concept without a parent
+        return builder.build();
+    }
+
+    /**
+     * Builds an {@link Ontology} from the lines of the three data files, each starting with a header line.
+     */
+    static Ontology buildOntology(List<String> partsLines, List<String> elementsLines,
+                                  List<String> relationsLines) {
+        Ontology.Builder builder = new Ontology.Builder();
 
         // Step 1: Load parts/isA metadata
-        List<String> partsLines = readLines(partsFile);
         for (String line : partsLines.subList(1, partsLines.size())) {
             String[] tokens = line.trim().split("\\t");
             if (tokens.length >= 3) {
-                representationIds.put(tokens[0], tokens[1]);
-                names.put(tokens[0], tokens[2]);
+                builder.addConcept(tokens[0], tokens[1], tokens[2]);
             }
         }
 
         // Step 2: Load file ID mappings
-        List<String> elementsLines = readLines(elementsFile);
         for (String line : elementsLines.subList(1, elementsLines.size())) {
             String[] tokens = line.trim().split("\\t");
             if (tokens.length >= 3) {
-                fileIdsMap.computeIfAbsent(tokens[0], k -> new ArrayList<>()).add(tokens[2]);
+                builder.addFileId(tokens[0], tokens[2]);
             }
         }
 
         // Step 3: Load parent-child relationships
-        List<String> relationsLines = readLines(relationsFile);
         for (String line : relationsLines.subList(1, relationsLines.size())) {
             String[] tokens = line.trim().split("\\t");
             if (tokens.length >= 4) {
-                String parentId = tokens[0];
-                String childId = tokens[2];
-                childrenMap.computeIfAbsent(parentId, k -> new ArrayList<>()).add(childId);
-                parentMap.put(childId, parentId);
+                builder.addRelation(tokens[0], tokens[2]);
             }
         }
 
-        // Step 4: Find root node (has no parent)
-        String rootId = names.keySet().stream()
-                .filter(id -> !parentMap.containsKey(id))
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException("No root node found"));
-
-        // Step 5: Recursively build tree
-        return buildTree(rootId, representationIds, names, fileIdsMap, childrenMap);
+        // Step 4: Pack everything into primitive arrays; the root is the first concept without a parent
+        return builder.build();
     }
 
     /**
-     * Recursively builds the ANode tree.
-     */
-    private static ANode buildTree(
-            String conceptId,
-            Map<String, String> representationIds,
-            Map<String, String> names,
-            Map<String, List<String>> fileIdsMap,
-            Map<String, List<String>> childrenMap
-    ) {
-        List<ANode> children = new ArrayList<>();
-        for (String childId : childrenMap.getOrDefault(conceptId, List.of())) {
-            children.add(buildTree(childId, representationIds, names, fileIdsMap, childrenMap));
-        }
-
-        return new ANode(
-                conceptId,
-                representationIds.getOrDefault(conceptId, ""),
-                names.getOrDefault(conceptId, ""),
-                children,
-                fileIdsMap.getOrDefault(conceptId, List.of())
-        );
-    }
-
-    /**
-     * Reads all lines from a resource file in the classpath.
+     * Computes a key that changes whenever one of the given resource files changes, from their names,
+     * sizes and modification times. Reading these does not read the files themselves.
      *
-     * @param resourceName File name in resources directory.
-     * @return List of lines in the file.
+     * @param resourceNames File names in resources directory.
+     * @return the key; missing resources contribute a fixed marker
      */
-    private static List<String> readLines(String resourceName) throws IOException {
-        InputStream in = TreeLoader.class.getResourceAsStream("/" + resourceName);
-        if (in == null) {
-            throw new IOException("Resource not found: " + resourceName);
-        }
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
-            return reader.lines().toList();
+    public static long sourceKey(String... resourceNames) {
+        long key = 17;
+        for (String resourceName : resourceNames) {
+            key = 31 * key + resourceName.hashCode();
+            URL url = TreeLoader.class.getResource("/" + resourceName);
+            long length = -1;
+            long modified = -1;
+            if (url != null) {
+                try {
+                    URLConnection connection = url.openConnection();
+                    length = connection.getContentLengthLong();
+                    modified = connection.getLastModified();
+                    connection.getInputStream().close(); // file and jar connections open the file for the headers
+                } catch (IOException e) {
+                    // treated like a missing resource
+                }
+            }
+            key = 31 * key + length;
+            key = 31 * key + modified;
         }
+        return key;
     }
+
 }
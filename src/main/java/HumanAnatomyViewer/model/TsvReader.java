@@ -0,0 +1,215 @@
+package HumanAnatomyViewer.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Byte-level reader for tab-separated files. Rows are read one at a time straight from the bytes; a column is
+ * only decoded into a String, or interned into a {@link StringTable.Builder}, when the caller asks for it.
+ *
+ * Files are memory-mapped; resources that are not plain files (e.g. inside a jar) are streamed through a
+ * buffer that only has to hold the current row.
+ *
+ * Rows are split like {@code line.trim().split("\t")}: whitespace around the row is ignored and empty trailing
+ * columns are dropped.
+ */
+final class TsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String source;
+    private final ReadableByteChannel channel; // null if the whole input is in the buffer
+    private ByteBuffer buffer;                 // accessed with absolute gets; valid bytes are [0, limit)
+    private int pos;                           // start of the next row
+    private int row;
+
+    // Columns of the current row: column i is buffer[starts[i], ends[i])
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int columns;
+
+    private TsvReader(String source, ByteBuffer buffer, ReadableByteChannel channel) {
+        this.source = source;
+        this.buffer = buffer;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a resource in the classpath; mapped if it is a plain file, streamed otherwise.
+     *
+     * @param resourceName file name in resources directory
+     * @throws IOException if the resource does not exist or cannot be read
+     */
+    static TsvReader openResource(String resourceName) throws IOException {
+        URL url = TsvReader.class.getResource("/" + resourceName);
+        if (url == null) {
+            throw new IOException("Resource not found: " + resourceName);
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return open(Path.of(url.toURI()));
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // fall back to streaming
+            }
+        }
+        InputStream in = url.openStream();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+        return new TsvReader(resourceName, buffer, Channels.newChannel(in));
+    }
+
+    /**
+     * Memory-maps a file.
+     */
+    static TsvReader open(Path file) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (fileChannel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + ": file too large");
+            }
+            ByteBuffer mapped = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            return new TsvReader(file.toString(), mapped, null);
+        }
+    }
+
+    /**
+     * Reads from bytes that are already in memory.
+     */
+    static TsvReader of(String source, byte[] bytes) {
+        return new TsvReader(source, ByteBuffer.wrap(bytes), null);
+    }
+
+    /**
+     * Advances to the next row.
+     *
+     * @return false at the end of the input
+     */
+    boolean next() throws IOException {
+        int end = findLineEnd();
+        if (end < 0) {
+            return false;
+        }
+        int lineEnd = end;
+        int next = end < buffer.limit() ? end + 1 : end;
+
+        // Trim like String.trim(): bytes up to the space character, which includes tab and carriage return
+        int start = pos;
+        while (start < lineEnd && (buffer.get(start) & 0xFF) <= ' ') start++;
+        while (lineEnd > start && (buffer.get(lineEnd - 1) & 0xFF) <= ' ') lineEnd--;
+
+        columns = 0;
+        int columnStart = start;
+        for (int i = start; i <= lineEnd; i++) {
+            if (i == lineEnd || buffer.get(i) == '\t') {
+                if (columns == starts.length) {
+                    starts = Arrays.copyOf(starts, 2 * columns);
+                    ends = Arrays.copyOf(ends, 2 * columns);
+                }
+                starts[columns] = columnStart;
+                ends[columns++] = i;
+                columnStart = i + 1;
+            }
+        }
+        // Like String.split: trailing empty columns are dropped, but an empty row has one empty column
+        while (columns > 1 && starts[columns - 1] == ends[columns - 1]) columns--;
+
+        pos = next;
+        row++;
+        return true;
+    }
+
+    /**
+     * Finds the end of the row starting at pos, reading more input if necessary.
+     *
+     * @return index of the terminating newline, or of the end of the input for a last row without one;
+     *         -1 if there is no row left
+     */
+    private int findLineEnd() throws IOException {
+        int scanned = pos;
+        while (true) {
+            for (int i = scanned; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') return i;
+            }
+            int rowLength = buffer.limit() - pos; // no newline in these bytes
+            if (channel == null || !fill()) {
+                return pos < buffer.limit() ? buffer.limit() : -1;
+            }
+            scanned = pos + rowLength;
+        }
+    }
+
+    /**
+     * Moves the current row to the front of the (heap) buffer, growing it if the row fills it, and reads more bytes.
+     *
+     * @return false at the end of the input
+     */
+    private boolean fill() throws IOException {
+        int remaining = buffer.limit() - pos;
+        ByteBuffer target = remaining == buffer.capacity() ? ByteBuffer.allocate(2 * buffer.capacity()) : buffer;
+        System.arraycopy(buffer.array(), pos, target.array(), 0, remaining);
+        target.limit(target.capacity()).position(remaining);
+        int read;
+        do {
+            read = channel.read(target);
+        } while (read == 0);
+        target.limit(target.position()).position(0);
+        buffer = target;
+        pos = 0;
+        return read > 0;
+    }
+
+    /**
+     * @return the number of columns of the current row
+     */
+    int columnCount() {
+        return columns;
+    }
+
+    /**
+     * Decodes a column of the current row.
+     */
+    String string(int column) {
+        byte[] bytes = new byte[ends[column] - starts[column]];
+        buffer.get(starts[column], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Interns a column of the current row without decoding it.
+     *
+     * @return the index of the column's value in the table
+     */
+    int intern(int column, StringTable.Builder table) {
+        return table.add(buffer, starts[column], ends[column] - starts[column]);
+    }
+
+    /**
+     * @return the number of the current row, starting at 1
+     */
+    int row() {
+        return row;
+    }
+
+    /**
+     * @return name of the input, for error messages
+     */
+    String source() {
+        return source;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
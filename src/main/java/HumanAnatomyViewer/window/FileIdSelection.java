@@ -0,0 +1,146 @@
+package HumanAnatomyViewer.window;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The set of selected model file IDs. Every modification reports which file IDs were added and removed,
+ * so that listeners (e.g. draw mode highlighting) only need to touch the models whose state actually changed.
+ * Used on the JavaFX application thread only.
+ */
+public class FileIdSelection {
+
+    /**
+     * One modification of the selection. Both sets are empty if nothing changed.
+     *
+     * @param added   file IDs that became selected
+     * @param removed file IDs that are no longer selected
+     */
+    public record Change(Set<String> added, Set<String> removed) {
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+
+    private Set<String> selected = new HashSet<>();
+    private final List<Consumer<Change>> listeners = new ArrayList<>();
+    private long version = 0;
+
+    /**
+     * @param listener called after every modification that changed the selection
+     */
+    public void addListener(Consumer<Change> listener) {
+        listeners.add(listener);
+    }
+
+    public boolean contains(String fileId) {
+        return selected.contains(fileId);
+    }
+
+    public int size() {
+        return selected.size();
+    }
+
+    /**
+     * @return the number of modifications that changed the selection so far; equal versions mean the same selection
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return read-only view of the selected file IDs
+     */
+    public Set<String> asSet() {
+        return Collections.unmodifiableSet(selected);
+    }
+
+    /**
+     * Replaces the selection. Costs time proportional to the old and new selection sizes for the comparison,
+     * but listeners only see the difference.
+     *
+     * @param fileIds the new selection
+     * @return what changed
+     */
+    public Change set(Collection<String> fileIds) {
+        Set<String> next = new HashSet<>(fileIds);
+        Set<String> added = new HashSet<>();
+        for (String fileId : next) {
+            if (!selected.contains(fileId)) added.add(fileId);
+        }
+        Set<String> removed = new HashSet<>();
+        for (String fileId : selected) {
+            if (!next.contains(fileId)) removed.add(fileId);
+        }
+        selected = next;
+        return fire(added, removed);
+    }
+
+    /**
+     * Selects the given file IDs in addition to the current selection.
+     */
+    public Change addAll(Collection<String> fileIds) {
+        Set<String> added = new HashSet<>();
+        for (String fileId : fileIds) {
+            if (selected.add(fileId)) added.add(fileId);
+        }
+        return fire(added, Set.of());
+    }
+
+    /**
+     * Deselects the given file IDs.
+     */
+    public Change removeAll(Collection<String> fileIds) {
+        Set<String> removed = new HashSet<>();
+        for (String fileId : fileIds) {
+            if (selected.remove(fileId)) removed.add(fileId);
+        }
+        return fire(Set.of(), removed);
+    }
+
+    /**
+     * Selects and deselects file IDs in one modification. A file ID in both collections ends up selected.
+     *
+     * @param toAdd    file IDs to select
+     * @param toRemove file IDs to deselect
+     */
+    public Change update(Collection<String> toAdd, Collection<String> toRemove) {
+        Set<String> removed = new HashSet<>();
+        for (String fileId : toRemove) {
+            if (selected.remove(fileId)) removed.add(fileId);
+        }
+        Set<String> added = new HashSet<>();
+        for (String fileId : toAdd) {
+            if (selected.add(fileId) && !removed.remove(fileId)) added.add(fileId);
+        }
+        return fire(added, removed);
+    }
+
+    /**
+     * Selects a file ID if it is not selected, and deselects it otherwise.
+     */
+    public Change toggle(String fileId) {
+        return selected.remove(fileId) ? fire(Set.of(), Set.of(fileId)) : addAll(List.of(fileId));
+    }
+
+    public Change clear() {
+        return set(List.of());
+    }
+
+    private Change fire(Set<String> added, Set<String> removed) {
+        Change change = new Change(added, removed);
+        if (!change.isEmpty()) {
+            version++;
+            for (Consumer<Change> listener : listeners) {
+                listener.accept(change);
+            }
+        }
+        return change;
+    }
+}
@@ -0,0 +1,110 @@
+package HumanAnatomyViewer.window;
+
+import HumanAnatomyViewer.model.ANode;
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tree item for a concept whose child items are only created when they are first needed:
+ * when the user expands the item, or when search or selection sync needs an item below it.
+ *
+ * A concept with several parents is one shared {@link ANode}; the tree shows it under each parent, but the
+ * items of its subtree are created for an occurrence only once that occurrence is opened.
+ *
+ * Code that looks for items should search the ANodes and then call {@link #materialize(TreeItem, Collection)},
+ * which only creates the items on the paths to the matches; walking {@link #getChildren()} creates everything.
+ */
+public class LazyTreeItem extends TreeItem<ANode> {
+
+    private boolean materialized;
+
+    public LazyTreeItem(ANode node) {
+        super(node);
+    }
+
+    /**
+     * @return true once the child items have been created
+     */
+    public boolean isMaterialized() {
+        return materialized;
+    }
+
+    /**
+     * Answers from the concept, so that the tree can show the expand arrow without creating the children.
+     */
+    @Override
+    public boolean isLeaf() {
+        return getValue().children().isEmpty();
+    }
+
+    @Override
+    public ObservableList<TreeItem<ANode>> getChildren() {
+        ObservableList<TreeItem<ANode>> children = super.getChildren();
+        if (!materialized) {
+            materialized = true;
+            TreeItem<ANode>[] items = new LazyTreeItem[getValue().children().size()];
+            int i = 0;
+            for (ANode child : getValue().children()) {
+                items[i++] = new LazyTreeItem(child);
+            }
+            children.setAll(items);
+        }
+        return children;
+    }
+
+    /**
+     * Finds all items showing one of the given concepts, creating only the items on the paths from the root to them.
+     * A concept with several parents has one item per occurrence.
+     *
+     * @param root    root item of the tree
+     * @param targets the concepts to find
+     * @return the items, in the order the fully expanded tree shows them
+     */
+    public static List<TreeItem<ANode>> materialize(TreeItem<ANode> root, Collection<ANode> targets) {
+        List<TreeItem<ANode>> result = new ArrayList<>();
+        if (root == null || targets.isEmpty()) {
+            return result;
+        }
+        Set<ANode> targetSet = targets instanceof Set<ANode> set ? set : new HashSet<>(targets);
+
+        // Only items whose concept is a target or an ancestor of one need to be opened
+        Set<ANode> onPath = new HashSet<>();
+        Deque<ANode> pending = new ArrayDeque<>(targetSet);
+        while (!pending.isEmpty()) {
+            ANode node = pending.pop();
+            if (onPath.add(node)) {
+                pending.addAll(node.parents());
+            }
+        }
+
+        // Depth first from the root, first child on top of the stack
+        Deque<TreeItem<ANode>> stack = new ArrayDeque<>();
+        if (onPath.contains(root.getValue())) {
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            TreeItem<ANode> item = stack.pop();
+            if (targetSet.contains(item.getValue())) {
+                result.add(item);
+            }
+            if (item.getValue().children().stream().noneMatch(onPath::contains)) {
+                continue; // nothing to find below, leave the children as they are
+            }
+            List<TreeItem<ANode>> children = item.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                if (onPath.contains(children.get(i).getValue())) {
+                    stack.push(children.get(i));
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,223 @@
+package HumanAnatomyViewer.window;
+
+import HumanAnatomyViewer.model.MeshSimplifier;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point3D;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.PerspectiveCamera;
+import javafx.scene.SubScene;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Switches the meshes of displayed models between levels of detail, depending on how large
+ * each model appears through the perspective camera.
+ *
+ * Levels are generated by {@link MeshSimplifier} on a background thread when a model is registered;
+ * until they are ready the model shows its full resolution mesh. The levels are stored in the MeshView's
+ * properties, so they live and die with the cached model. Switching is re-evaluated (at most once per pulse)
+ * whenever the camera moves, the models are transformed or the set of displayed models changes.
+ */
+public class LevelOfDetailManager {
+
+    private static final String LEVELS_KEY = "levelsOfDetail";
+
+    /**
+     * Minimum projected size (model radius relative to half the viewport height) for levels 0 and 1;
+     * anything smaller uses the coarsest level.
+     */
+    private static final double[] MIN_PROJECTED_SIZE = {0.15, 0.04};
+
+    private final PerspectiveCamera camera;
+    private final Group modelGroup;
+
+    private final ExecutorService generator = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "lod-generator");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private boolean enabled = true;
+    private boolean updateScheduled = false;
+
+    /**
+     * @param camera     camera of the 3D view
+     * @param subScene   sub scene the models are rendered in
+     * @param modelGroup group whose children are the displayed model groups
+     */
+    public LevelOfDetailManager(PerspectiveCamera camera, SubScene subScene, Group modelGroup) {
+        this.camera = camera;
+        this.modelGroup = modelGroup;
+
+        InvalidationListener viewChanged = observable -> scheduleUpdate();
+        camera.translateXProperty().addListener(viewChanged);
+        camera.translateYProperty().addListener(viewChanged);
+        camera.translateZProperty().addListener(viewChanged);
+        camera.fieldOfViewProperty().addListener(viewChanged);
+        subScene.heightProperty().addListener(viewChanged);
+        modelGroup.localToSceneTransformProperty().addListener(viewChanged);
+        modelGroup.getChildren().addListener(viewChanged);
+    }
+
+    /**
+     * Starts generating the levels of detail for all meshes of a model group.
+     * Must be called on the JavaFX application thread.
+     *
+     * @param group       a loaded model
+     * @param levelsAdded run on the JavaFX application thread after the levels of a mesh of the model were attached
+     */
+    public void register(Group group, Runnable levelsAdded) {
+        for (Node node : group.getChildren()) {
+            if (node instanceof MeshView meshView && meshView.getMesh() instanceof TriangleMesh mesh
+                    && !meshView.getProperties().containsKey(LEVELS_KEY)
+                    && MeshSimplifier.triangleCount(mesh) >= MeshSimplifier.MIN_LOD_TRIANGLES) {
+                // Placeholder so the mesh is not queued twice; replaced by the levels when they are ready
+                meshView.getProperties().put(LEVELS_KEY, new TriangleMesh[]{mesh});
+                generator.submit(() -> {
+                    TriangleMesh[] levels = MeshSimplifier.buildLevelsOfDetail(mesh);
+                    Platform.runLater(() -> {
+                        setLevels(meshView, levels);
+                        levelsAdded.run();
+                    });
+                });
+            } else if (node instanceof Group subGroup) {
+                register(subGroup, levelsAdded);
+            }
+        }
+    }
+
+    /**
+     * Installs already generated levels of detail for a MeshView.
+     *
+     * @param meshView the view
+     * @param levels   the levels, level 0 being the full resolution mesh
+     */
+    public void setLevels(MeshView meshView, TriangleMesh[] levels) {
+        meshView.getProperties().put(LEVELS_KEY, levels);
+        scheduleUpdate();
+    }
+
+    /**
+     * Enables or disables switching. When disabled, all models show their full resolution mesh.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        scheduleUpdate();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the full resolution mesh of a MeshView, regardless of the level currently displayed
+     */
+    public static TriangleMesh fullResolutionMesh(MeshView meshView) {
+        if (meshView.getProperties().get(LEVELS_KEY) instanceof TriangleMesh[] levels) {
+            return levels[0];
+        }
+        return meshView.getMesh() instanceof TriangleMesh mesh ? mesh : null;
+    }
+
+    /**
+     * @return all levels of detail of a MeshView, or just its current mesh if it has none (yet)
+     */
+    public static TriangleMesh[] levels(MeshView meshView) {
+        if (meshView.getProperties().get(LEVELS_KEY) instanceof TriangleMesh[] levels) {
+            return levels;
+        }
+        return meshView.getMesh() instanceof TriangleMesh mesh ? new TriangleMesh[]{mesh} : new TriangleMesh[0];
+    }
+
+    /**
+     * @return the number of triangles currently displayed in the model group
+     */
+    public int displayedTriangles() {
+        return countTriangles(modelGroup);
+    }
+
+    private static int countTriangles(Group group) {
+        int count = 0;
+        for (Node node : group.getChildren()) {
+            if (node instanceof MeshView meshView && meshView.getMesh() instanceof TriangleMesh mesh) {
+                count += MeshSimplifier.triangleCount(mesh);
+            } else if (node instanceof Group subGroup) {
+                count += countTriangles(subGroup);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Coalesces changes into a single update on the next pulse.
+     */
+    private void scheduleUpdate() {
+        if (!updateScheduled) {
+            updateScheduled = true;
+            Platform.runLater(() -> {
+                updateScheduled = false;
+                update();
+            });
+        }
+    }
+
+    /**
+     * Selects the level of every displayed mesh from its projected size.
+     */
+    public void update() {
+        Point3D eye = camera.localToScene(Point3D.ZERO);
+        double tanHalfFov = Math.tan(Math.toRadians(camera.getFieldOfView() / 2));
+        update(modelGroup, eye, tanHalfFov);
+    }
+
+    private void update(Group group, Point3D eye, double tanHalfFov) {
+        for (Node node : group.getChildren()) {
+            if (node instanceof MeshView meshView
+                    && meshView.getProperties().get(LEVELS_KEY) instanceof TriangleMesh[] levels) {
+                int level = enabled ? selectLevel(meshView, levels.length, eye, tanHalfFov) : 0;
+                if (meshView.getMesh() != levels[level]) {
+                    meshView.setMesh(levels[level]);
+                }
+            } else if (node instanceof Group subGroup) {
+                update(subGroup, eye, tanHalfFov);
+            }
+        }
+    }
+
+    private static int selectLevel(MeshView meshView, int levelCount, Point3D eye, double tanHalfFov) {
+        Bounds bounds = meshView.localToScene(meshView.getBoundsInLocal());
+        double radius = Math.sqrt(bounds.getWidth() * bounds.getWidth() + bounds.getHeight() * bounds.getHeight()
+                + bounds.getDepth() * bounds.getDepth()) / 2;
+        double distance = eye.distance(bounds.getCenterX(), bounds.getCenterY(), bounds.getCenterZ());
+        return levelFor(radius, distance, tanHalfFov, levelCount);
+    }
+
+    /**
+     * Selects the level for a model of the given bounding radius at the given distance from the camera.
+     *
+     * @param radius     radius of the model's bounding sphere
+     * @param distance   distance from the camera to the center of the model
+     * @param tanHalfFov tangent of half the camera's field of view
+     * @param levelCount number of levels available for the model
+     * @return the level, 0 being full resolution
+     */
+    public static int levelFor(double radius, double distance, double tanHalfFov, int levelCount) {
+        if (distance <= radius) {
+            return 0; // camera inside or touching the model
+        }
+        double projected = radius / (distance * tanHalfFov);
+
+        int level = 0;
+        while (level < levelCount - 1 && level < MIN_PROJECTED_SIZE.length && projected < MIN_PROJECTED_SIZE[level]) {
+            level++;
+        }
+        return level;
+    }
+}
@@ -0,0 +1,277 @@
+package HumanAnatomyViewer.window;
+
+import HumanAnatomyViewer.model.BinaryMesh;
+import HumanAnatomyViewer.model.ObjIO;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Two-tier, memory-budgeted cache of loaded models. Used on the JavaFX application thread only.
+ *
+ * The heap tier holds ready-to-display model groups up to a byte budget, measured by the sizes of the mesh arrays
+ * (points, texCoords, normals, faces and smoothing groups, including generated levels of detail). Each model is
+ * measured when it is stored and again when its levels of detail are attached ({@link #levelsAdded(String)}),
+ * so the total is kept up to date without walking the tier.
+ * When it is over budget, the least recently used models that are not displayed are demoted to the off-heap tier:
+ * their full resolution mesh is encoded as a {@link BinaryMesh} in a direct buffer, together with the model's color.
+ * Getting a demoted model decodes it with bulk copies, which is much faster than parsing the OBJ file again.
+ * The off-heap tier has its own budget; beyond it the least recently used models are dropped.
+ */
+public class ModelCache {
+
+    /**
+     * Counters since the cache was created.
+     *
+     * @param hits          gets answered by the heap tier
+     * @param offHeapHits   gets answered by promoting a model from the off-heap tier
+     * @param misses        gets for models in neither tier
+     * @param evictions     models demoted from the heap tier
+     * @param drops         models dropped from the off-heap tier
+     * @param heapBytes     mesh bytes currently in the heap tier
+     * @param offHeapBytes  bytes currently in the off-heap tier
+     */
+    public record Stats(long hits, long offHeapHits, long misses, long evictions, long drops,
+                        long heapBytes, long offHeapBytes) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "hits %d, off-heap hits %d, misses %d, evictions %d, drops %d, heap %d MB, off-heap %d MB",
+                    hits, offHeapHits, misses, evictions, drops, heapBytes >> 20, offHeapBytes >> 20);
+        }
+    }
+
+    private record Demoted(ByteBuffer mesh, Color color) {
+    }
+
+    // Both maps are in insertion order; a model is moved to the end when it is used,
+    // so iteration starts at the least recently used model
+    private final LinkedHashMap<String, Group> heap = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Demoted> offHeap = new LinkedHashMap<>();
+    private final Map<String, Long> heapSizes = new HashMap<>(); // mesh bytes of each model in the heap tier
+
+    private long heapBudget;
+    private long offHeapBudget;
+    private long heapBytes;
+    private long offHeapBytes;
+
+    private long hits;
+    private long offHeapHits;
+    private long misses;
+    private long evictions;
+    private long drops;
+
+    /**
+     * @param heapBudget    maximum mesh bytes kept on the heap
+     * @param offHeapBudget maximum bytes kept in direct buffers
+     */
+    public ModelCache(long heapBudget, long offHeapBudget) {
+        this.heapBudget = heapBudget;
+        this.offHeapBudget = offHeapBudget;
+    }
+
+    /**
+     * Returns a model, promoting it from the off-heap tier if necessary.
+     *
+     * @param fileId the model's file ID
+     * @return the model, or null if it is in neither tier
+     */
+    public Group get(String fileId) {
+        Group group = heap.remove(fileId);
+        if (group != null) {
+            heap.put(fileId, group); // most recently used
+            hits++;
+            return group;
+        }
+        Demoted demoted = offHeap.remove(fileId);
+        if (demoted == null) {
+            misses++;
+            return null;
+        }
+        offHeapBytes -= demoted.mesh().capacity();
+        try {
+            group = ObjIO.createModelGroup(BinaryMesh.decode(demoted.mesh().duplicate()), null);
+            setColor(group, demoted.color());
+            offHeapHits++;
+            put(fileId, group);
+            return group;
+        } catch (IOException e) {
+            System.err.println("⚠ Dropping corrupt cached model " + fileId + ": " + e.getMessage());
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Adds a model to the heap tier and demotes other models if the budget is exceeded.
+     *
+     * @param fileId the model's file ID
+     * @param group  the model
+     */
+    public void put(String fileId, Group group) {
+        removeFromHeap(fileId);
+        heap.put(fileId, group);
+        long bytes = meshBytes(group);
+        heapSizes.put(fileId, bytes);
+        heapBytes += bytes;
+        Demoted stale = offHeap.remove(fileId);
+        if (stale != null) {
+            offHeapBytes -= stale.mesh().capacity();
+        }
+        trim(fileId);
+    }
+
+    /**
+     * Measures a model again after levels of detail were attached to it, and demotes other models if the budget
+     * is now exceeded. Does nothing if the model is no longer in the heap tier.
+     *
+     * @param fileId the model's file ID
+     */
+    public void levelsAdded(String fileId) {
+        Group group = heap.get(fileId);
+        if (group == null) {
+            return;
+        }
+        long bytes = meshBytes(group);
+        heapBytes += bytes - heapSizes.put(fileId, bytes);
+        trim(fileId);
+    }
+
+    /**
+     * Demotes models that are not displayed until the heap tier is within budget.
+     */
+    public void trim() {
+        trim(null);
+    }
+
+    /**
+     * @param keep a model that must stay on the heap (just added, about to be displayed), or null
+     */
+    private void trim(String keep) {
+        if (heapBytes > heapBudget) {
+            Iterator<Map.Entry<String, Group>> it = heap.entrySet().iterator();
+            while (heapBytes > heapBudget && it.hasNext()) {
+                Map.Entry<String, Group> entry = it.next();
+                Group group = entry.getValue();
+                if (group.getParent() != null || entry.getKey().equals(keep)) {
+                    continue; // displayed models are never evicted
+                }
+                it.remove();
+                heapBytes -= heapSizes.remove(entry.getKey());
+                evictions++;
+                demote(entry.getKey(), group);
+            }
+        }
+
+        Iterator<Map.Entry<String, Demoted>> it = offHeap.entrySet().iterator();
+        while (offHeapBytes > offHeapBudget && it.hasNext()) {
+            offHeapBytes -= it.next().getValue().mesh().capacity();
+            it.remove();
+            drops++;
+        }
+    }
+
+    private void demote(String fileId, Group group) {
+        MeshView meshView = firstMeshView(group);
+        TriangleMesh mesh = meshView == null ? null : LevelOfDetailManager.fullResolutionMesh(meshView);
+        if (mesh == null || offHeapBudget <= 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BinaryMesh.encodedSize(mesh));
+        BinaryMesh.encode(mesh, buffer);
+        buffer.flip();
+        Color color = meshView.getMaterial() instanceof PhongMaterial phong ? phong.getDiffuseColor() : null;
+        offHeap.put(fileId, new Demoted(buffer, color));
+        offHeapBytes += buffer.capacity();
+    }
+
+    private void removeFromHeap(String fileId) {
+        if (heap.remove(fileId) != null) {
+            heapBytes -= heapSizes.remove(fileId);
+        }
+    }
+
+    /**
+     * @return mesh bytes currently in the heap tier
+     */
+    public long heapBytes() {
+        return heapBytes;
+    }
+
+    /**
+     * Removes all models from both tiers. The counters are kept.
+     */
+    public void clear() {
+        heap.clear();
+        heapSizes.clear();
+        offHeap.clear();
+        heapBytes = 0;
+        offHeapBytes = 0;
+    }
+
+    public void setBudgets(long heapBudget, long offHeapBudget) {
+        this.heapBudget = heapBudget;
+        this.offHeapBudget = offHeapBudget;
+        trim();
+    }
+
+    public Stats stats() {
+        return new Stats(hits, offHeapHits, misses, evictions, drops, heapBytes, offHeapBytes);
+    }
+
+    /**
+     * @return read-only view of the models on the heap; lookups through it do not count as hits,
+     *         do not change the LRU order and do not promote demoted models
+     */
+    public Map<String, Group> heapModels() {
+        return Collections.unmodifiableMap(heap);
+    }
+
+    /**
+     * @return the size of all mesh arrays of a model, including its generated levels of detail
+     */
+    static long meshBytes(Group group) {
+        long bytes = 0;
+        for (Node node : group.getChildren()) {
+            if (node instanceof MeshView meshView) {
+                for (TriangleMesh mesh : LevelOfDetailManager.levels(meshView)) {
+                    bytes += 4L * (mesh.getPoints().size() + mesh.getTexCoords().size() + mesh.getNormals().size()
+                            + mesh.getFaces().size() + mesh.getFaceSmoothingGroups().size());
+                }
+            } else if (node instanceof Group subGroup) {
+                bytes += meshBytes(subGroup);
+            }
+        }
+        return bytes;
+    }
+
+    private static MeshView firstMeshView(Group group) {
+        for (Node node : group.getChildren()) {
+            if (node instanceof MeshView meshView) return meshView;
+            if (node instanceof Group subGroup) {
+                MeshView found = firstMeshView(subGroup);
+                if (found != null) return found;
+            }
+        }
+        return null;
+    }
+
+    private static void setColor(Group group, Color color) {
+        MeshView meshView = firstMeshView(group);
+        if (color != null && meshView != null && meshView.getMaterial() instanceof PhongMaterial phong) {
+            phong.setDiffuseColor(color);
+        }
+    }
+}
@@ -1,15 +1,14 @@
 package HumanAnatomyViewer.window;
 
 import HumanAnatomyViewer.model.ANode;
+import HumanAnatomyViewer.model.ModelPack;
 import HumanAnatomyViewer.model.ObjIO;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.geometry.Bounds;
 import javafx.scene.Group;
-import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.chart.PieChart;
-import javafx.scene.control.MultipleSelectionModel;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
 import javafx.scene.input.MouseEvent;
@@ -23,8 +22,11 @@ import javafx.scene.shape.TriangleMesh;
 import javafx.stage.Stage;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -39,21 +41,39 @@ public class ModelInterface {
     private final Group innerGroup;
 
 
-    // The TreeView that displays the anatomical hierarchy
-    private final TreeView<ANode> treeView;
+    // Provides the TreeView that currently displays the anatomical hierarchy (part-of or is-a tab)
+    private final Supplier<TreeView<ANode>> treeViewSupplier;
 
-    // Cache: maps file IDs (e.g. bone_001) to their corresponding loaded 3D Group
-    private final Map<String, Group> loadedModels = new HashMap<>();
+    // fileId -> tree items, one index per tree root, built on first use
+    private final Map<TreeItem<ANode>, TreeItemIndex> treeIndexes = new IdentityHashMap<>();
 
-    // Tracks currently selected model IDs to apply highlighting or interaction
-    private final Set<String> selectedFileIds = new HashSet<>();
+    // Cache: maps file IDs (e.g. bone_001) to their corresponding loaded 3D Group.
+    // Bounded: models that are not displayed move off the heap when a quarter of the maximum heap is used by meshes
+    private final ModelCache modelCache = new ModelCache(
+            Runtime.getRuntime().maxMemory() / 4, Runtime.getRuntime().maxMemory() / 4);
+
+    // Which models are in innerGroup, indexed by file ID; show and hide only add or remove the difference
+    private final SceneReconciler sceneReconciler;
+
+    // Tracks currently selected model IDs to apply highlighting or interaction; reports what changed
+    private final FileIdSelection selection = new FileIdSelection();
 
     // Prevents feedback loops during programmatic selection updates
     private boolean inSelectionUpdate = false;
 
     // Add wrapper group field
 
-    private File customDirectory = null;
+    // Read by the loader threads, hence volatile
+    private volatile File customDirectory = null;
+
+    // Single-file model source; used instead of loose OBJ files when available
+    private volatile ModelPack modelPack = null;
+
+    // Swaps model meshes between levels of detail; null until the 3D scene exists
+    private LevelOfDetailManager levelOfDetailManager = null;
+
+    // Loads missing models in the background and hands them back in batches
+    private final ModelLoader modelLoader = new ModelLoader(this::loadModel, this::storeLoadedModel);
 
 
 
@@ -61,11 +81,22 @@ public class ModelInterface {
     /**
      * Constructor for ModelInterface.
      * @param innerGroup The 3D group that will hold model meshes.
-     * @param treeView The tree representing the anatomical structure.
+     * @param treeViewSupplier Provides the currently active tree representing the anatomical structure.
      */
-    public ModelInterface(Group innerGroup, TreeView<ANode> treeView) {
+    public ModelInterface(Group innerGroup, Supplier<TreeView<ANode>> treeViewSupplier) {
         this.innerGroup = innerGroup;
-        this.treeView = treeView;
+        this.treeViewSupplier = treeViewSupplier;
+        this.sceneReconciler = new SceneReconciler(innerGroup);
+
+        // Only models whose selection state changed get a new draw mode
+        selection.addListener(this::applyDrawModeToChanged);
+
+        // Prefer a bundled model pack over the loose BodyParts files (which also cannot be opened inside a jar)
+        try {
+            this.modelPack = ModelPack.openResource("/HumanAnatomy/" + ModelPack.DEFAULT_NAME);
+        } catch (IOException e) {
+            System.err.println("⚠ Ignoring bundled model pack: " + e.getMessage());
+        }
     }
 
     // === CORE METHODS ===
@@ -76,112 +107,111 @@ public class ModelInterface {
      * @param selectedItems Selected nodes in the TreeView
      */
     public void loadAndDisplayModels(List<TreeItem<ANode>> selectedItems) {
-        innerGroup.getChildren().clear();   // Remove all currently displayed models
-        innerGroup.getTransforms().clear(); // Reset any applied transforms (e.g. rotations)
-
-        for (TreeItem<ANode> item : selectedItems) {
-            ANode node = item.getValue();
-            if (node == null) continue;
-
-            // For each file ID (model) associated with this node
-            for (String fileId : node.fileIds()) {
-                // Try to load model if not already loaded
-                Group modelGroup = loadModelIfAbsent(fileId);
-
-                // If valid and not already displayed, add it to the group
-                if (modelGroup != null && !innerGroup.getChildren().contains(modelGroup)) {
-                    applyClickHandler(modelGroup, fileId); // Add click interactivity
-                    innerGroup.getChildren().add(modelGroup);
-                }
-            }
-        }
-        selectedFileIds.clear();
-        selectedFileIds.addAll(selectedItems.stream()
+        loadAndDisplayModelsByFileIds(selectedItems.stream()
                 .filter(Objects::nonNull)
                 .map(TreeItem::getValue)
                 .filter(Objects::nonNull)
                 .flatMap(anode -> anode.fileIds().stream())
-                .toList());
-        // Visually indicate selection with draw mode changes
-        applyDrawModeBasedOnSelection();
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
     }
 
     /**
      * Loads and displays 3D models based on a given set of file IDs.
      *
-     * This method:
-     * 1. Clears the current 3D view.
-     * 2. Updates the set of selected file IDs.
-     * 3. Loads each model if not already cached.
-     * 4. Attaches interaction handlers and adds models to the scene.
-     * 5. Applies visual highlighting to indicate selection.
-     *
      * @param fileIds A collection of file IDs representing 3D models to display.
+     * @see #loadAndDisplayModelsByFileIds(Collection, Runnable)
      */
     public void loadAndDisplayModelsByFileIds(Collection<String> fileIds) {
+        loadAndDisplayModelsByFileIds(fileIds, () -> { });
+    }
 
-        // === Step 1: Clear previous display ===
-        // Remove all previously displayed 3D models from the group
-        innerGroup.getChildren().clear();
+    /**
+     * Loads and displays 3D models based on a given set of file IDs.
+     *
+     * This method:
+     * 1. Removes the models that are no longer wanted and cancels a load that is still in progress.
+     *    Models that stay displayed are left in the scene, so the cost depends on the size of the change.
+     * 2. Updates the set of selected file IDs, and the draw mode of displayed models whose selection changed.
+     * 3. Displays the missing models that are already cached right away.
+     * 4. Loads the remaining models in the background; each one is displayed as soon as it is ready.
+     * 5. Runs onComplete once all models are displayed.
+     *
+     * @param fileIds    A collection of file IDs representing 3D models to display.
+     * @param onComplete Runs on the JavaFX thread when all models are displayed, e.g. to re-center the view.
+     */
+    public void loadAndDisplayModelsByFileIds(Collection<String> fileIds, Runnable onComplete) {
+        Set<String> target = new LinkedHashSet<>(fileIds);
+
+        // === Step 1: Remove the models that are not wanted anymore ===
+        SceneReconciler.Delta delta = sceneReconciler.reconcile(target);
 
         // Clear all transformations like rotation, scale, or translation
         innerGroup.getTransforms().clear();
 
         // === Step 2: Update selected file IDs ===
-        // Clear the previous selection state
-        selectedFileIds.clear();
-
-        // Add the new file IDs to the selection list
-        selectedFileIds.addAll(fileIds);
-
-        // === Step 3: Load and display each model ===
-        for (String fileId : fileIds) {
-            // Load the model if it's not already loaded (from cache or file)
-            Group modelGroup = loadModelIfAbsent(fileId);
+        // Displayed models that were not selected yet switch to FILL through the selection listener
+        selection.set(target);
 
+        // === Step 3: Display cached models, collect the missing ones ===
+        List<String> missing = new ArrayList<>();
+        for (String fileId : delta.missing()) {
+            Group modelGroup = modelCache.get(fileId);
             if (modelGroup != null) {
-                // Remove the group just in case it's already in the scene
-                // (safety check to avoid duplicate rendering)
-                if (innerGroup.getChildren().contains(modelGroup)) {
-                    innerGroup.getChildren().remove(modelGroup);
-                }
-
-                // Add click handler to enable interactivity (e.g., selection or tooltip)
-                applyClickHandler(modelGroup, fileId);
-
-                // Add the loaded model group to the 3D scene graph
-                innerGroup.getChildren().add(modelGroup);
+                displayModel(fileId, modelGroup);
+            } else {
+                missing.add(fileId);
+            }
+        }
+        // Models that are no longer displayed may now be moved off the heap
+        if (!delta.removed().isEmpty()) {
+            modelCache.trim();
+        }
 
-                // Attach the file ID to the model group for reference (e.g., selection tracking)
-                modelGroup.setUserData(fileId); // ✅ Helps identify the model later
+        // === Step 4: Load the missing models off the JavaFX thread (cancels any previous load) ===
+        modelLoader.load(missing, (fileId, modelGroup) -> {
+            if (modelGroup != null) {
+                displayModel(fileId, modelGroup);
             } else {
                 // Log an error if the model could not be loaded
                 System.out.println("❌ Could not load model: " + fileId);
             }
-        }
-
-        // === Step 4: Apply visual highlighting (draw modes) based on selection ===
-        // This might apply wireframe/fill mode or color overlays to selected items
-        applyDrawModeBasedOnSelection();
+        }, onComplete);
     }
 
+    /**
+     * Adds a loaded model to the scene, with click handler, file ID and the draw mode matching the selection.
+     * @param fileId     The model's file ID
+     * @param modelGroup The loaded model
+     */
+    private void displayModel(String fileId, Group modelGroup) {
+        // Add click handler to enable interactivity (e.g., selection or tooltip)
+        applyClickHandler(modelGroup, fileId);
+
+        // Add the loaded model group to the 3D scene graph (the reconciler skips models already displayed)
+        sceneReconciler.add(fileId, modelGroup);
+
+        // Attach the file ID to the model group for reference (e.g., selection tracking)
+        modelGroup.setUserData(fileId); // ✅ Helps identify the model later
 
+        // Visually indicate selection with draw mode changes
+        setDrawModeRecursive(modelGroup, selection.contains(fileId) ? DrawMode.FILL : DrawMode.LINE);
+
+        if (levelOfDetailManager != null) {
+            // Generate coarser meshes in the background (once); the cache measures the model again when they are attached
+            levelOfDetailManager.register(modelGroup, () -> modelCache.levelsAdded(fileId));
+        }
+    }
 
     /**
      * Retrieves a set of file IDs corresponding to currently visible anatomical models
      * @return a Set of String IDs representing all currently visible model nodes
      */
     public Set<String> getCurrentlyVisibleFileIds() {
-        // Stream all children of the innerGroup (e.g., anatomical 3D models)
-        Set<String> ids = innerGroup.getChildren().stream()
-                // Extract user data from each node (assumed to contain a file ID)
-                .map(Node::getUserData)
-                // Skip any nodes that don't have user data
-                .filter(Objects::nonNull)
-                // Convert the user data to string (assumed to be the file ID)
-                .map(Object::toString)
-                // Collect all the IDs into a Set (no duplicates)
-                .collect(Collectors.toSet());
+        // The reconciler knows which models are in the scene, no need to look at the children
+        Set<String> ids = new HashSet<>(sceneReconciler.displayedFileIds());
+
+        // Models that are still loading count as visible, they will appear shortly
+        ids.addAll(modelLoader.pendingFileIds());
 
         // Debug output to print the collected visible file IDs
         System.out.println("Visible File IDs: " + ids);
@@ -191,32 +221,46 @@ public class ModelInterface {
 
 
     /**
-     * Attempts to load a 3D model from file if not already loaded.
-     * @param fileId The ID of the file/model (e.g., "lung_left")
-     * @return Loaded Group containing the model, or null if not found or failed
+     * Stores a model loaded by the {@link ModelLoader} in the cache.
+     * @param fileId     The ID of the file/model (e.g., "lung_left")
+     * @param modelGroup The loaded model
      */
-    private Group loadModelIfAbsent(String fileId) {
-        return loadedModels.computeIfAbsent(fileId, id -> {
-            try {
-                File modelFile;
+    private void storeLoadedModel(String fileId, Group modelGroup) {
+        modelCache.put(fileId, modelGroup);
+    }
 
-                if (customDirectory != null && customDirectory.isDirectory()) {
-                    modelFile = new File(customDirectory, id + ".obj");
-                } else {
-                    URL url = getClass().getResource("/HumanAnatomy/BodyParts/" + id + ".obj");
-                    modelFile = url != null ? new File(url.toURI()) : null;
-                }
+    /**
+     * Loads a 3D model from the model pack or from its OBJ file.
+     * Runs on the loader's background threads, so it must not touch the scene.
+     * @param id The ID of the file/model
+     * @return Group containing the model, or null if not found or failed
+     */
+    private Group loadModel(String id) {
+        try {
+            // A model pack holds all models in one file, slice out just this one
+            if (modelPack != null) {
+                TriangleMesh mesh = modelPack.load(id);
+                return mesh != null ? ObjIO.createModelGroup(mesh, null) : null;
+            }
 
-                if (modelFile != null && modelFile.exists()) {
-                    return ObjIO.openObjFile(modelFile);
-                }
+            File modelFile;
+
+            if (customDirectory != null && customDirectory.isDirectory()) {
+                modelFile = new File(customDirectory, id + ".obj");
+            } else {
+                URL url = getClass().getResource("/HumanAnatomy/BodyParts/" + id + ".obj");
+                modelFile = url != null ? new File(url.toURI()) : null;
+            }
 
-            } catch (Exception e) {
-                System.err.println("Error loading model: " + id);
-                e.printStackTrace();
+            if (modelFile != null && modelFile.exists()) {
+                return ObjIO.openObjFile(modelFile);
             }
-            return null;
-        });
+
+        } catch (Exception e) {
+            System.err.println("Error loading model: " + id);
+            e.printStackTrace();
+        }
+        return null;
     }
 
     // === INTERACTION METHODS ===
@@ -248,82 +292,73 @@ public class ModelInterface {
      * @param event The mouse event
      */
     private void handleModelClick(String fileId, MouseEvent event) {
-        // If not holding shift/ctrl, start new selection
         if (!event.isShiftDown() && !event.isControlDown()) {
-            selectedFileIds.clear();
-        }
-
-        // Toggle selection state
-        if (selectedFileIds.contains(fileId)) {
-            selectedFileIds.remove(fileId);
+            // If not holding shift/ctrl, start new selection
+            selection.set(List.of(fileId));
         } else {
-            selectedFileIds.add(fileId);
+            // Toggle selection state
+            selection.toggle(fileId);
         }
 
-        // Sync tree selection and draw mode after interaction
+        // Sync tree selection after interaction (draw modes follow the selection listener)
         syncTreeSelectionFromFileIds();
-        applyDrawModeBasedOnSelection();
     }
 
     /**
      * Updates the TreeView selection to match currently selected file IDs.
+     * The items owning the selected file IDs are looked up in the tree's index, made visible and
+     * selected in one batch; the view then scrolls once, to the first of them.
      */
     public void syncTreeSelectionFromFileIds() {
-        MultipleSelectionModel<TreeItem<ANode>> model = treeView.getSelectionModel();
-        inSelectionUpdate = true;
-        model.clearSelection();
-        selectMatchingItems(treeView.getRoot(), model);
-        inSelectionUpdate = false;
-    }
-
-    /**
-     * Recursively selects all tree items whose ANode contains a selected file ID.
-     * @param item Tree node to test
-     * @param model Selection model of the TreeView
-     */
-    private void selectMatchingItems(TreeItem<ANode> item, MultipleSelectionModel<TreeItem<ANode>> model) {
-        if (item.getValue() != null &&
-                item.getValue().fileIds().stream().anyMatch(selectedFileIds::contains)) {
-
-            expandPathTo(item); // Expand parents so item is visible
-            model.select(item); // Programmatically select it
-
-            // Scroll to selected item in the TreeView (UI-safe)
-            Platform.runLater(() -> {
-                int row = treeView.getRow(item);
-                if (row >= 0) treeView.scrollTo(row);
-            });
+        TreeView<ANode> treeView = treeViewSupplier.get();
+        if (treeView == null || treeView.getRoot() == null) {
+            return;
         }
+        Set<TreeItem<ANode>> items = getTreeIndex(treeView.getRoot()).itemsFor(selection.asSet());
 
-        for (TreeItem<ANode> child : item.getChildren()) {
-            selectMatchingItems(child, model);
+        // Expands the paths to the items, selects them in one batch and scrolls once
+        inSelectionUpdate = true;
+        try {
+            TreeSelectionBatch.of(treeView).selectAndScroll(items);
+        } finally {
+            inSelectionUpdate = false;
         }
     }
 
     /**
-     * Expands all parents of a given TreeItem to make it visible.
-     * @param item The target tree item
+     * Returns the fileId -> TreeItem index of a tree, building it on first use.
+     * @param root Root item of the tree
+     * @return the index
      */
-    private void expandPathTo(TreeItem<ANode> item) {
-        TreeItem<ANode> parent = item.getParent();
-        while (parent != null) {
-            parent.setExpanded(true);
-            parent = parent.getParent();
-        }
+    public TreeItemIndex getTreeIndex(TreeItem<ANode> root) {
+        return treeIndexes.computeIfAbsent(root, TreeItemIndex::new);
     }
 
     // === DRAW MODE & COLOR METHODS ===
 
     /**
-     * Applies draw modes to models: selected = FILL, unselected = LINE.
+     * Applies draw modes to all displayed models: selected = FILL, unselected = LINE.
+     * Selection changes are applied incrementally already; this is only needed to repaint everything.
      */
     public void applyDrawModeBasedOnSelection() {
-        for (Map.Entry<String, Group> entry : loadedModels.entrySet()) {
-            String fileId = entry.getKey();
-            Group group = entry.getValue();
-            boolean isSelected = selectedFileIds.contains(fileId);
+        for (String fileId : sceneReconciler.displayedFileIds()) {
+            setDrawModeRecursive(sceneReconciler.getDisplayed(fileId), selection.contains(fileId) ? DrawMode.FILL : DrawMode.LINE);
+        }
+    }
 
-            setDrawModeRecursive(group, isSelected ? DrawMode.FILL : DrawMode.LINE);
+    /**
+     * Applies draw modes to the displayed models whose selection state changed.
+     * Models that are not displayed get their draw mode when they are displayed again.
+     * @param change The file IDs that were selected and deselected
+     */
+    private void applyDrawModeToChanged(FileIdSelection.Change change) {
+        for (String fileId : change.added()) {
+            Group group = sceneReconciler.getDisplayed(fileId);
+            if (group != null) setDrawModeRecursive(group, DrawMode.FILL);
+        }
+        for (String fileId : change.removed()) {
+            Group group = sceneReconciler.getDisplayed(fileId);
+            if (group != null) setDrawModeRecursive(group, DrawMode.LINE);
         }
     }
 
@@ -363,12 +398,12 @@ public class ModelInterface {
     }
 
     public Group getLoadedModel(String fileId) {
-        return loadedModels.get(fileId);
+        return modelCache.heapModels().get(fileId);
     }
 
     /**
      * Retrieves the currently assigned fill color (diffuse color) for each selected anatomical model.
-     * The method checks the `selectedFileIds` set and attempts to find a representative fill color from each associated 3D model (represented as a Group). It uses the first Shape3D node
+     * The method checks the selected file IDs and attempts to find a representative fill color from each associated 3D model (represented as a Group). It uses the first Shape3D node
      * with `DrawMode.FILL` and a `PhongMaterial` to extract the color.
      * @return a map where each key is a file ID and the value is its corresponding Color.
      */
@@ -377,9 +412,9 @@ public class ModelInterface {
         Map<String, Color> colorMap = new HashMap<>();
 
         // Loop through all currently selected file IDs
-        for (String fileId : selectedFileIds) {
+        for (String fileId : selection.asSet()) {
             // Get the root Group node that represents the 3D model
-            Group group = loadedModels.get(fileId);
+            Group group = modelCache.heapModels().get(fileId);
 
             if (group != null) {
                 // Inspect each child node inside the model group
@@ -421,7 +456,7 @@ public class ModelInterface {
             Color color = entry.getValue();     // The color to apply to this model
 
             // Retrieve the 3D model group associated with this file ID
-            Group group = loadedModels.get(fileId);
+            Group group = modelCache.heapModels().get(fileId);
 
             // If the model group exists (has been loaded), apply the color
             if (group != null) {
@@ -439,16 +474,30 @@ public class ModelInterface {
 
     // === GETTERS ===
 
+    /**
+     * @return read-only view of the selected file IDs; modify the selection through {@link #getSelection()}
+     */
     public Set<String> getSelectedFileIds() {
-        return selectedFileIds;
+        return selection.asSet();
+    }
+
+    public FileIdSelection getSelection() {
+        return selection;
     }
 
     public boolean isInSelectionUpdate() {
         return inSelectionUpdate;
     }
 
+    /**
+     * @return the models currently held on the heap (read-only)
+     */
     public Map<String, Group> getLoadedModels() {
-        return loadedModels;
+        return modelCache.heapModels();
+    }
+
+    public ModelCache getModelCache() {
+        return modelCache;
     }
 
     public Group getInnerGroup() {
@@ -458,8 +507,56 @@ public class ModelInterface {
 
 
 
+    /**
+     * Sets the directory to load models from. If the directory contains a model pack
+     * (see {@link ModelPack#DEFAULT_NAME}), models are loaded from the pack instead of the loose OBJ files.
+     * @param directory directory with &lt;fileId&gt;.obj files and/or a model pack
+     */
     public void setCustomDirectory(File directory) {
         this.customDirectory = directory;
+        this.modelPack = null;
+
+        File packFile = new File(directory, ModelPack.DEFAULT_NAME);
+        if (packFile.isFile()) {
+            try {
+                setModelPack(ModelPack.open(packFile.toPath()));
+                System.out.println("✔ Using model pack: " + packFile.getAbsolutePath());
+            } catch (IOException e) {
+                System.err.println("⚠ Could not open model pack " + packFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Enables level-of-detail switching for all loaded and future models.
+     * @param manager the manager of the 3D view
+     */
+    public void setLevelOfDetailManager(LevelOfDetailManager manager) {
+        this.levelOfDetailManager = manager;
+        for (Map.Entry<String, Group> entry : modelCache.heapModels().entrySet()) {
+            String fileId = entry.getKey();
+            manager.register(entry.getValue(), () -> modelCache.levelsAdded(fileId));
+        }
+    }
+
+    /**
+     * Sets where loading progress (loaded/total models and MB) is reported, e.g. a status label.
+     * @param listener receives progress messages on the JavaFX thread
+     */
+    public void setLoadProgressListener(Consumer<String> listener) {
+        modelLoader.setProgressListener(listener);
+    }
+
+    public LevelOfDetailManager getLevelOfDetailManager() {
+        return levelOfDetailManager;
+    }
+
+    /**
+     * Uses the given model pack as the source of all models that are not loaded yet.
+     * @param pack the pack, or null to go back to loading OBJ files
+     */
+    public void setModelPack(ModelPack pack) {
+        this.modelPack = pack;
     }
 
 }
@@ -0,0 +1,244 @@
+package HumanAnatomyViewer.window;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Loads models in the background, so that showing a large subtree does not freeze the UI.
+ *
+ * Each model is loaded on its own virtual thread; a semaphore limits how many are parsed at the same time.
+ * Requests for a model that is already being loaded share that load. Finished models are handed back
+ * on the JavaFX application thread by an AnimationTimer, a time-boxed batch per pulse.
+ *
+ * Only one job is active at a time: starting a new job cancels the previous one. Models of a cancelled job
+ * that have not started loading are skipped; models that were already loading are still stored, but not attached.
+ */
+public class ModelLoader {
+
+    // Maximum time per pulse spent handing finished models to the scene
+    private static final long ATTACH_BUDGET_NANOS = 4_000_000;
+
+    private final Function<String, Group> source;      // loads one model, called on a background thread
+    private final BiConsumer<String, Group> store;     // stores a finished model, called on the FX thread
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore parsers = new Semaphore(Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+    // fileId -> load in progress; used to share loads between jobs
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // fileId -> finished load not yet handed to the FX thread
+    private final Map<String, Result> finished = new ConcurrentHashMap<>();
+
+    private volatile Job current;
+    private Consumer<String> progressListener = text -> { };
+
+    private final AnimationTimer attacher = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+    private record Result(Group group, long bytes) {
+    }
+
+    /**
+     * A request to load a set of models. All methods run on the JavaFX application thread.
+     */
+    public final class Job {
+        private final Set<String> pending = ConcurrentHashMap.newKeySet(); // also read by the loading threads
+        private final BiConsumer<String, Group> onLoaded;
+        private final Runnable onComplete;
+        private final int total;
+        private final long startNanos = System.nanoTime();
+        private int loaded;
+        private long bytes;
+
+        private Job(Collection<String> fileIds, BiConsumer<String, Group> onLoaded, Runnable onComplete) {
+            this.pending.addAll(fileIds);
+            this.total = pending.size();
+            this.onLoaded = onLoaded;
+            this.onComplete = onComplete;
+        }
+
+        public boolean isDone() {
+            return pending.isEmpty();
+        }
+    }
+
+    /**
+     * @param source loads one model, or returns null if it cannot be loaded; called on background threads
+     * @param store  stores a loaded model, e.g. in a cache; called on the FX thread for every finished load,
+     *               including loads of cancelled jobs
+     */
+    public ModelLoader(Function<String, Group> source, BiConsumer<String, Group> store) {
+        this.source = source;
+        this.store = store;
+    }
+
+    /**
+     * Sets the receiver of progress messages, e.g. a status label.
+     */
+    public void setProgressListener(Consumer<String> listener) {
+        this.progressListener = listener;
+    }
+
+    /**
+     * Starts loading the given models and cancels the current job, if any. Must be called on the FX thread.
+     *
+     * @param fileIds    models to load
+     * @param onLoaded   receives each model of this job on the FX thread as soon as it is loaded (null for failures)
+     * @param onComplete run on the FX thread once all models of this job have been handed to onLoaded
+     * @return the new job
+     */
+    public Job load(Collection<String> fileIds, BiConsumer<String, Group> onLoaded, Runnable onComplete) {
+        cancel();
+        Job job = new Job(fileIds, onLoaded, onComplete);
+        if (job.total == 0) {
+            onComplete.run();
+            return job;
+        }
+        current = job;
+        for (String fileId : job.pending) {
+            request(fileId);
+        }
+        publishProgress(job);
+        attacher.start();
+        return job;
+    }
+
+    /**
+     * Cancels the current job. Its remaining models are neither attached nor, if not started yet, loaded.
+     */
+    public void cancel() {
+        Job job = current;
+        current = null;
+        if (job != null && !job.isDone()) {
+            progressListener.accept("Loading cancelled (" + job.loaded + "/" + job.total + " models)");
+        }
+    }
+
+    /**
+     * @return the models of the current job that have not been handed over yet
+     */
+    public Set<String> pendingFileIds() {
+        Job job = current;
+        return job == null ? Set.of() : Set.copyOf(job.pending);
+    }
+
+    private void request(String fileId) {
+        // Already loading or loaded but not handed over: the result will be picked up by the current job
+        if (finished.containsKey(fileId) || !inFlight.add(fileId)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                parsers.acquire();
+            } catch (InterruptedException e) {
+                inFlight.remove(fileId);
+                return;
+            }
+            try {
+                if (!isWanted(fileId)) {
+                    return; // the job that asked for this model was cancelled
+                }
+                Group group = source.apply(fileId);
+                finished.put(fileId, new Result(group, group == null ? 0 : meshBytes(group)));
+            } catch (RuntimeException e) {
+                System.err.println("Error loading model: " + fileId);
+                e.printStackTrace();
+                finished.put(fileId, new Result(null, 0));
+            } finally {
+                parsers.release();
+                inFlight.remove(fileId);
+                // A newer job may have asked for this model after the check above; make sure it gets it
+                if (!finished.containsKey(fileId) && isWanted(fileId)) {
+                    request(fileId);
+                }
+            }
+        });
+    }
+
+    private boolean isWanted(String fileId) {
+        Job job = current;
+        return job != null && job.pending.contains(fileId);
+    }
+
+    /**
+     * Hands finished models to the FX thread, within the time budget of one pulse.
+     */
+    private void drain() {
+        long start = System.nanoTime();
+        Job job = current;
+        int before = job == null ? 0 : job.loaded;
+
+        Iterator<Map.Entry<String, Result>> it = finished.entrySet().iterator();
+        while (it.hasNext() && System.nanoTime() - start < ATTACH_BUDGET_NANOS) {
+            Map.Entry<String, Result> entry = it.next();
+            it.remove();
+            String fileId = entry.getKey();
+            Result result = entry.getValue();
+            if (result.group() != null) {
+                store.accept(fileId, result.group());
+            }
+            if (job != null && job.pending.remove(fileId)) {
+                job.loaded++;
+                job.bytes += result.bytes();
+                job.onLoaded.accept(fileId, result.group());
+            }
+        }
+
+        if (job != null && job.loaded != before) {
+            publishProgress(job);
+        }
+        if (job != null && job.isDone()) {
+            current = null;
+            job.onComplete.run();
+        }
+        if (current == null && finished.isEmpty() && inFlight.isEmpty()) {
+            attacher.stop();
+        }
+    }
+
+    private void publishProgress(Job job) {
+        String size = String.format(Locale.ROOT, "%.1f MB", job.bytes / (1024.0 * 1024.0));
+        if (job.isDone()) {
+            double seconds = (System.nanoTime() - job.startNanos) / 1e9;
+            progressListener.accept(String.format(Locale.ROOT, "✔ Loaded %d models (%s) in %.1f s", job.total, size, seconds));
+        } else {
+            progressListener.accept("Loading models: " + job.loaded + "/" + job.total + " (" + size + ")");
+        }
+    }
+
+    /**
+     * @return the size of the mesh data of a model
+     */
+    private static long meshBytes(Group group) {
+        long bytes = 0;
+        for (Node node : group.getChildren()) {
+            if (node instanceof MeshView meshView && meshView.getMesh() instanceof TriangleMesh mesh) {
+                bytes += 4L * (mesh.getPoints().size() + mesh.getTexCoords().size()
+                        + mesh.getNormals().size() + mesh.getFaces().size());
+            } else if (node instanceof Group subGroup) {
+                bytes += meshBytes(subGroup);
+            }
+        }
+        return bytes;
+    }
+}
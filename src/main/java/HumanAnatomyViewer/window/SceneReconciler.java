@@ -0,0 +1,126 @@
+package HumanAnatomyViewer.window;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the models displayed in a group in step with a target set of file IDs.
+ *
+ * Scene membership is indexed by file ID, so finding out whether a model is displayed, and which models have to go,
+ * does not scan the group's children. Changing the target set only touches the difference: models that are displayed
+ * already stay where they are, the ones no longer wanted are removed in a single change to the children list,
+ * and only the missing ones are returned to be added. Used on the JavaFX application thread only.
+ */
+public class SceneReconciler {
+
+    /**
+     * The outcome of a {@link #reconcile(Set)}.
+     *
+     * @param removed file IDs that were removed from the scene
+     * @param kept    file IDs that were displayed and stay displayed
+     * @param missing file IDs of the target set that are not displayed yet, in the target set's iteration order
+     */
+    public record Delta(Set<String> removed, Set<String> kept, List<String> missing) {
+    }
+
+    private final Group group;
+
+    // fileId -> model group currently in the scene, in the order the models were added
+    private final Map<String, Group> displayed = new LinkedHashMap<>();
+
+    /**
+     * @param group the group the models are displayed in; all of its children must be added through this reconciler
+     */
+    public SceneReconciler(Group group) {
+        this.group = group;
+    }
+
+    /**
+     * Removes all displayed models that are not in the target set.
+     *
+     * @param target file IDs that should be displayed
+     * @return what was removed, what stays, and what still needs to be added
+     */
+    public Delta reconcile(Set<String> target) {
+        Set<String> removed = new HashSet<>();
+        Set<Node> removedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        Iterator<Map.Entry<String, Group>> it = displayed.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Group> entry = it.next();
+            if (!target.contains(entry.getKey())) {
+                removed.add(entry.getKey());
+                removedNodes.add(entry.getValue());
+                it.remove();
+            }
+        }
+        // One change to the children list, whatever the number of removed models
+        if (!removedNodes.isEmpty()) {
+            group.getChildren().removeAll(removedNodes);
+        }
+
+        Set<String> kept = new HashSet<>();
+        List<String> missing = new ArrayList<>();
+        for (String fileId : target) {
+            if (displayed.containsKey(fileId)) {
+                kept.add(fileId);
+            } else {
+                missing.add(fileId);
+            }
+        }
+        return new Delta(removed, kept, missing);
+    }
+
+    /**
+     * Adds a model to the scene, unless a model is displayed for the file ID already.
+     *
+     * @param fileId     the model's file ID
+     * @param modelGroup the model
+     * @return true if the model was added
+     */
+    public boolean add(String fileId, Group modelGroup) {
+        if (displayed.containsKey(fileId)) {
+            return false;
+        }
+        displayed.put(fileId, modelGroup);
+        group.getChildren().add(modelGroup);
+        return true;
+    }
+
+    /**
+     * @return true if a model is displayed for the file ID
+     */
+    public boolean isDisplayed(String fileId) {
+        return displayed.containsKey(fileId);
+    }
+
+    /**
+     * @return the displayed model for the file ID, or null
+     */
+    public Group getDisplayed(String fileId) {
+        return displayed.get(fileId);
+    }
+
+    /**
+     * @return read-only view of the file IDs currently displayed
+     */
+    public Set<String> displayedFileIds() {
+        return Collections.unmodifiableSet(displayed.keySet());
+    }
+
+    /**
+     * @return the number of displayed models
+     */
+    public int size() {
+        return displayed.size();
+    }
+}
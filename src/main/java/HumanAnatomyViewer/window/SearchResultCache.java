@@ -0,0 +1,157 @@
+package HumanAnatomyViewer.window;
+
+import HumanAnatomyViewer.model.ANode;
+import HumanAnatomyViewer.model.Ontology;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded cache of tree search work, so that switching between the part-of and is-a tabs or alternating between
+ * queries does not search the hierarchy again. Used on the JavaFX application thread only.
+ *
+ * Compiled queries are kept by normalized query. Results are kept by normalized query, search mode and the concept
+ * at the top of the searched tree; they are lists of concepts rather than tree items, so they stay valid when the
+ * tree items are rebuilt. Entries are only dropped when the cache is full (least recently used first), or when
+ * the hierarchy they were computed on is replaced ({@link #invalidate(Ontology)}).
+ *
+ * @param <Q> type of a compiled query
+ */
+public class SearchResultCache<Q> {
+
+    /**
+     * Counters since the cache was created.
+     *
+     * @param hits           result lookups answered by the cache
+     * @param misses         result lookups that had to search
+     * @param compiledHits   compiled query lookups answered by the cache
+     * @param compiledMisses compiled query lookups that had to compile
+     * @param evictions      entries dropped because the cache was full
+     * @param invalidations  results dropped because their hierarchy was replaced
+     * @param results        result lists currently cached
+     * @param compiled       compiled queries currently cached
+     */
+    public record Stats(long hits, long misses, long compiledHits, long compiledMisses, long evictions,
+                        long invalidations, int results, int compiled) {
+
+        /**
+         * @return the share of result lookups answered by the cache, 0 before the first lookup
+         */
+        public double hitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "hits %d, misses %d (%.0f%% hit rate), compiled hits %d, compiled misses %d, evictions %d, invalidations %d, %d results, %d compiled",
+                    hits, misses, 100 * hitRate(), compiledHits, compiledMisses, evictions, invalidations, results, compiled);
+        }
+    }
+
+    private record Key(String query, ANode top, boolean fuzzy) {
+    }
+
+    // Both maps are in access order, so the eldest entry is the least recently used one
+    private final Map<Key, List<ANode>> results;
+    private final Map<String, Q> compiled;
+
+    private long hits;
+    private long misses;
+    private long compiledHits;
+    private long compiledMisses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * @param maxResults  maximum number of result lists kept
+     * @param maxCompiled maximum number of compiled queries kept
+     */
+    public SearchResultCache(int maxResults, int maxCompiled) {
+        results = lruMap(maxResults);
+        compiled = lruMap(maxCompiled);
+    }
+
+    /**
+     * @return a map that drops its least recently used entry when a put makes it hold more than capacity entries
+     */
+    private <K, V> Map<K, V> lruMap(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param query normalized query
+     * @param top   concept at the top of the searched tree
+     * @param fuzzy true for fuzzy search results
+     * @return the cached matches, or null if the query has not been searched in that tree
+     */
+    public List<ANode> getResults(String query, ANode top, boolean fuzzy) {
+        List<ANode> matches = results.get(new Key(query, top, fuzzy));
+        if (matches == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return matches;
+    }
+
+    /**
+     * Stores the matches of a query, dropping the least recently used results if the cache is full.
+     */
+    public void putResults(String query, ANode top, boolean fuzzy, List<ANode> matches) {
+        results.put(new Key(query, top, fuzzy), List.copyOf(matches));
+    }
+
+    /**
+     * @param query normalized query
+     * @return the compiled query, or null if it has not been compiled
+     */
+    public Q getCompiled(String query) {
+        Q value = compiled.get(query);
+        if (value == null) {
+            compiledMisses++;
+            return null;
+        }
+        compiledHits++;
+        return value;
+    }
+
+    /**
+     * Stores a compiled query, dropping the least recently used ones if the cache is full.
+     */
+    public void putCompiled(String query, Q value) {
+        compiled.put(query, value);
+    }
+
+    /**
+     * Drops the results computed on a hierarchy, e.g. because it was replaced. Compiled queries do not depend
+     * on a hierarchy and are kept.
+     *
+     * @param ontology the hierarchy
+     */
+    public void invalidate(Ontology ontology) {
+        Iterator<Key> it = results.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().top().ontology() == ontology) {
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits, misses, compiledHits, compiledMisses, evictions, invalidations,
+                results.size(), compiled.size());
+    }
+}
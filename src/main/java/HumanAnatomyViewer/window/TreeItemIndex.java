@@ -0,0 +1,65 @@
+package HumanAnatomyViewer.window;
+
+import HumanAnatomyViewer.model.ANode;
+import HumanAnatomyViewer.model.Ontology;
+import javafx.scene.control.TreeItem;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reverse index from model file IDs to the tree items whose concept owns them.
+ *
+ * Looks up the owning concepts in the {@link Ontology}, not in the tree items: with {@link LazyTreeItem}s most
+ * items do not exist yet. Only the items on the paths to the owners are created, so syncing the tree
+ * with a set of selected models neither scans nor expands the whole tree.
+ */
+public class TreeItemIndex {
+
+    private final TreeItem<ANode> root;
+    private final Ontology ontology; // null for an empty tree
+
+    /**
+     * @param root root of the tree
+     */
+    public TreeItemIndex(TreeItem<ANode> root) {
+        this.root = root;
+        this.ontology = root != null && root.getValue() != null ? root.getValue().ontology() : null;
+    }
+
+    /**
+     * @return the root this index was built for
+     */
+    public TreeItem<ANode> getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the items owning the file ID, one per occurrence of the owning concepts; empty if none
+     */
+    public List<TreeItem<ANode>> itemsFor(String fileId) {
+        return ontology == null ? List.of() : LazyTreeItem.materialize(root, ontology.owners(fileId));
+    }
+
+    /**
+     * @return the items owning at least one of the file IDs, each once, in tree order
+     */
+    public Set<TreeItem<ANode>> itemsFor(Collection<String> fileIds) {
+        Set<ANode> owners = new LinkedHashSet<>();
+        if (ontology != null) {
+            for (String fileId : fileIds) {
+                owners.addAll(ontology.owners(fileId));
+            }
+        }
+        return new LinkedHashSet<>(LazyTreeItem.materialize(root, owners)); // TreeItem has identity equality
+    }
+
+    /**
+     * @return the number of distinct file IDs in the hierarchy
+     */
+    public int fileIdCount() {
+        return ontology == null ? 0 : ontology.distinctFileIds();
+    }
+}
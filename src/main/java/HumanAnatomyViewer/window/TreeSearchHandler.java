@@ -1,17 +1,37 @@
 package HumanAnatomyViewer.window;
 
 import HumanAnatomyViewer.model.ANode;
+import HumanAnatomyViewer.model.FuzzyNameIndex;
+import HumanAnatomyViewer.model.LiteralMatcher;
+import HumanAnatomyViewer.model.NameIndex;
+import HumanAnatomyViewer.model.Ontology;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.scene.control.Label;
-import javafx.scene.control.MultipleSelectionModel;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
+import javafx.util.Duration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * TreeSearchHandler manages search and navigation operations on a TreeView<ANode>.
@@ -19,6 +39,11 @@ import java.util.regex.Matcher;
  * - Searching nodes by name
  * - Navigating between results (first, next)
  * - Selecting all matches
+ * - Searching as the user types, debounced and on a background thread
+ * - Fuzzy search, which tolerates typos and ranks the closest names first
+ *
+ * Compiled queries and the concepts they match are kept in a {@link SearchResultCache}, so repeating a query,
+ * also after switching tabs, only recreates the tree items.
  *
  * The class uses a Supplier<TreeView<ANode>> to dynamically retrieve the current TreeView,
  * which is important when multiple views (like "Is-A" or "Part-Of") can be active.
@@ -27,6 +52,8 @@ public class TreeSearchHandler {
 
     private final Supplier<TreeView<ANode>> treeViewSupplier; // Provides the current active TreeView on demand
     private final Label statusLabel;                          // Displays search status messages to the user
+    private final Supplier<FuzzyNameIndex> fuzzyIndexSupplier; // Provides the typo-tolerant index of both hierarchies
+    private boolean fuzzy = false;                            // Whether queries are matched fuzzily instead of as regexes
 
     private final List<TreeItem<ANode>> searchResults = new ArrayList<>(); // Holds all matched tree items
     private int currentIndex = -1;                                         // Index of current item for navigation
@@ -34,76 +61,402 @@ public class TreeSearchHandler {
 
 
     private String lastQuery = "";
+    private List<ANode> lastMatches = List.of();                           // Concepts matched by lastQuery
+
+    // === Search as you type ===
+    private static final Duration TYPING_DELAY = Duration.millis(200);   // Quiet time before a typed query runs
+    private static final String REGEX_SYNTAX = "\\^$.|?*+()[]{},;";     // Characters that make a query more than a term
+
+    private final PauseTransition typingPause = new PauseTransition(TYPING_DELAY);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong generation = new AtomicLong(); // Bumped by every query; older evaluations give up
+
+    // A back reference counts groups, which would shift if the terms were combined into one pattern
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\(?:[0-9]|k<)");
+
+    private record CompiledQuery(List<String> regexes, Predicate<String> matcher) {
+    }
+
+    private final SearchResultCache<CompiledQuery> cache = new SearchResultCache<>(64, 256);
+
     /**
      * Constructor for the search handler.
      *
      * @param treeViewSupplier A supplier that provides the currently active TreeView
      * @param statusLabel A label to display user-facing status messages
+     * @param fuzzyIndexSupplier A supplier of the fuzzy name index, used in fuzzy mode
      */
-    public TreeSearchHandler(Supplier<TreeView<ANode>> treeViewSupplier, Label statusLabel) {
+    public TreeSearchHandler(Supplier<TreeView<ANode>> treeViewSupplier, Label statusLabel,
+                             Supplier<FuzzyNameIndex> fuzzyIndexSupplier) {
         this.treeViewSupplier = treeViewSupplier;
         this.statusLabel = statusLabel;
+        this.fuzzyIndexSupplier = fuzzyIndexSupplier;
+    }
+
+    /**
+     * Switches between regex search and fuzzy search. Results of the other mode are dropped, and a running
+     * search-as-you-type evaluation is cancelled.
+     *
+     * @param fuzzy true to find names within a few typos of the query, ranked by distance and depth
+     */
+    public void setFuzzy(boolean fuzzy) {
+        this.fuzzy = fuzzy;
+        generation.incrementAndGet();
+        typingPause.stop();
+        searchResults.clear();
+        currentIndex = -1;
+        lastQuery = "";
+        lastMatches = List.of();
     }
 
 
 
     /**
      * Performs a search across the currently active TreeView based on the given query.
+     * Cancels a pending search-as-you-type evaluation.
+     *
+     * A fuzzy search that is not cached runs in the background like search-as-you-type, since the fuzzy index may
+     * still be filling and locks out lookups meanwhile; its result is published when it is ready.
      *
      * @param query The search term to look for in node names
-     * @return true if matches are found, false otherwise
+     * @return true if matches are found, false if not or if the search continues in the background
      */
     public boolean search(String query) {
+        return search(query, false, null);
+    }
+
+    /**
+     * Performs a search like {@link #search(String)}, optionally as a regex search whatever the Fuzzy setting.
+     * A regex search always completes before this returns, so callers that generate patterns, such as the AI
+     * flows, can rely on the result.
+     *
+     * @param query      The search term or pattern to look for in node names
+     * @param forceRegex true to match the query as a regex even in fuzzy mode
+     * @return true if matches are found
+     */
+    public boolean search(String query, boolean forceRegex) {
+        return search(query, forceRegex, null);
+    }
+
+    /**
+     * @param onMatches run on the FX thread once a search that continued in the background published matches,
+     *                  or null
+     */
+    private boolean search(String query, boolean forceRegex, Runnable onMatches) {
+        long current = generation.incrementAndGet();
+        typingPause.stop();
+
+        boolean ranked = fuzzy && !forceRegex;
         TreeView<ANode> treeView = treeViewSupplier.get();
-        lastQuery = query;
-        query = query.trim();
+        TreeItem<ANode> root = treeView.getRoot();
+        if (root == null || root.getValue() == null) {
+            return publish(treeView, root, query, List.of(), ranked);
+        }
+        ANode top = root.getValue();
+        String key = normalize(query, ranked);
+        List<ANode> matches = cache.getResults(key, top, ranked);
+        if (matches == null) {
+            if (ranked) {
+                statusLabel.setText("Searching for names like \"" + query.trim() + "\"…");
+                evaluate(treeView, root, query, current, onMatches);
+                return false;
+            }
+            CompiledQuery compiled = compile(query);
+            if (compiled == null) {
+                lastQuery = query;
+                return false;
+            }
+            // In fuzzy mode the last matches are similar names, which need not contain every regex match
+            matches = findMatches(top, compiled, fuzzy ? null : narrowable(root, query), () -> false);
+            cache.putResults(key, top, false, matches);
+        }
+        return publish(treeView, root, query, matches, ranked);
+    }
+
+    /**
+     * Drops the cached results of a hierarchy that is being replaced.
+     *
+     * @param ontology the old hierarchy
+     */
+    public void invalidate(Ontology ontology) {
+        cache.invalidate(ontology);
+    }
+
+    /**
+     * @return hit and miss counts of the search cache
+     */
+    public SearchResultCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Searches as the user types. The search runs once no key has been typed for a short while, on a background
+     * thread; a newer keystroke cancels it. Only the result of the last query reaches the status label and the tree.
+     * Must be called on the JavaFX application thread.
+     *
+     * @param query The current text of the search field
+     */
+    public void searchAsYouType(String query) {
+        long current = generation.incrementAndGet(); // obsoletes the running evaluation, if any
+        if (query.isBlank()) {
+            typingPause.stop();
+            statusLabel.setText("");
+            return;
+        }
+        typingPause.setOnFinished(e -> startLiveSearch(query, current));
+        typingPause.playFromStart();
+    }
+
+    /**
+     * Evaluates a typed query in the background and publishes it on the FX thread, unless a newer one came in.
+     */
+    private void startLiveSearch(String query, long current) {
+        TreeView<ANode> treeView = treeViewSupplier.get();
+        TreeItem<ANode> root = treeView.getRoot();
+        if (root == null || root.getValue() == null) {
+            return; // hierarchy still loading
+        }
+        List<ANode> cached = cache.getResults(normalize(query, fuzzy), root.getValue(), fuzzy);
+        if (cached != null) {
+            publish(treeView, root, query, cached, fuzzy);
+            return;
+        }
+        evaluate(treeView, root, query, current, null);
+    }
+
+    /**
+     * Evaluates a query that is not cached on a background thread, then caches and publishes the result on the
+     * FX thread, unless a newer query or search came in meanwhile.
+     *
+     * @param current   generation of the query
+     * @param onMatches run after publishing, if there are matches; may be null
+     */
+    private void evaluate(TreeView<ANode> treeView, TreeItem<ANode> root, String query, long current,
+                          Runnable onMatches) {
+        BooleanSupplier cancelled = () -> generation.get() != current;
+        boolean ranked = fuzzy;
+        String key = normalize(query, ranked);
+        CompletableFuture<List<ANode>> evaluation;
+        if (ranked) {
+            evaluation = CompletableFuture.supplyAsync(
+                    () -> findSimilar(fuzzyIndexSupplier.get(), root.getValue(), query), executor);
+        } else {
+            CompiledQuery compiled = compile(query);
+            if (compiled == null) {
+                return;
+            }
+            List<ANode> previous = narrowable(root, query);
+            evaluation = CompletableFuture.supplyAsync(
+                    () -> findMatches(root.getValue(), compiled, previous, cancelled), executor);
+        }
+        evaluation.whenCompleteAsync((matches, error) -> {
+                    if (cancelled.getAsBoolean()) {
+                        return; // a newer keystroke or search took over
+                    }
+                    if (error != null) {
+                        System.err.println("Search failed: " + query);
+                        error.printStackTrace();
+                        statusLabel.setText("Search failed for: \"" + query.trim() + "\"");
+                        return;
+                    }
+                    cache.putResults(key, root.getValue(), ranked, matches);
+                    if (publish(treeView, root, query, matches, ranked) && onMatches != null) {
+                        onMatches.run();
+                    }
+                }, Platform::runLater);
+    }
+
+    /**
+     * Compiles a query; reports an invalid regex in the status label.
+     *
+     * If every term is a plain literal, as in the long alternations the AI search returns, the terms become one
+     * Aho-Corasick automaton ({@link LiteralMatcher}) that tests a name in a single pass. Otherwise the terms are
+     * combined into one pattern, so a name is scanned once instead of once per term.
+     *
+     * @return the compiled query, or null if it is not valid
+     */
+    private CompiledQuery compile(String query) {
+        String key = normalize(query, false);
+        CompiledQuery compiled = cache.getCompiled(key);
+        if (compiled == null) {
+            compiled = compileTerms(key);
+            if (compiled != null) {
+                cache.putCompiled(key, compiled);
+            }
+        }
+        return compiled;
+    }
 
+    private CompiledQuery compileTerms(String query) {
         // Support multiple patterns from AI output using comma or semicolon
-        String[] patterns = query.split("\\s*[,;|]\\s*");
+        String[] patterns = query.trim().split("\\s*[,;|]\\s*");
+        List<String> regexes = Arrays.asList(patterns);
+        if (regexes.stream().allMatch(TreeSearchHandler::isPlainTerm)) {
+            return new CompiledQuery(regexes, new LiteralMatcher(regexes));
+        }
 
+        // Matched with find(), so "(?i)(x)" finds the same names as "(?i).*(x).*" did, without the backtracking
+        // of the leading .* at every start position
         List<Pattern> compiledPatterns = new ArrayList<>();
         for (String rawRegex : patterns) {
             try {
-                compiledPatterns.add(Pattern.compile("(?i).*(" + rawRegex + ").*"));
+                compiledPatterns.add(Pattern.compile("(?i)(" + rawRegex + ")"));
             } catch (Exception e) {
                 statusLabel.setText("Invalid regex: " + rawRegex);
+                return null;
+            }
+        }
+        if (compiledPatterns.size() == 1) {
+            return new CompiledQuery(regexes, compiledPatterns.get(0).asPredicate());
+        }
+        Predicate<String> perTerm = name -> compiledPatterns.stream().anyMatch(pattern -> pattern.matcher(name).find());
+        if (regexes.stream().anyMatch(regex -> BACK_REFERENCE.matcher(regex).find())) {
+            return new CompiledQuery(regexes, perTerm);
+        }
+        // Each term keeps its own group, so inline flags such as (?x) still end with their term
+        try {
+            Pattern combined = Pattern.compile("(?i)(" + String.join(")|(", patterns) + ")");
+            return new CompiledQuery(regexes, combined.asPredicate());
+        } catch (PatternSyntaxException e) {
+            // Terms that are valid alone can clash when combined, e.g. two terms defining the same named group
+            return new CompiledQuery(regexes, perTerm);
+        }
+    }
+
+    /**
+     * Returns the concepts matched by the last search if they contain every match of the query: the tree is the same,
+     * and both queries are plain terms, the new one starting with the old one. Then only those need to be tested.
+     *
+     * @return the previous matches, or null if the query has to be evaluated from scratch
+     */
+    private List<ANode> narrowable(TreeItem<ANode> root, String query) {
+        String previous = lastQuery.trim();
+        String current = query.trim();
+        if (root != lastSearchRoot || previous.isEmpty() || !current.startsWith(previous)
+                || !isPlainTerm(previous) || !isPlainTerm(current)) {
+            return null;
+        }
+        return lastMatches;
+    }
+
+    /**
+     * Brings a query to the form used as cache key. A regex query is split into its terms, which are joined with "|";
+     * plain terms are also lowercased, since they match without regard to A-Z case anyway. A fuzzy query is lowercased
+     * with single spaces.
+     */
+    private static String normalize(String query, boolean fuzzy) {
+        if (fuzzy) {
+            return query.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        }
+        String[] terms = query.trim().split("\\s*[,;|]\\s*");
+        for (int i = 0; i < terms.length; i++) {
+            if (isPlainTerm(terms[i])) {
+                terms[i] = foldAscii(terms[i]);
+            }
+        }
+        return String.join("|", terms);
+    }
+
+    private static String foldAscii(String term) {
+        StringBuilder folded = new StringBuilder(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            folded.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+        return folded.toString();
+    }
+
+    private static boolean isPlainTerm(String query) {
+        for (int i = 0; i < query.length(); i++) {
+            if (REGEX_SYNTAX.indexOf(query.charAt(i)) >= 0) {
                 return false;
             }
         }
+        return true;
+    }
 
+    /**
+     * Makes a result the current one: creates its tree items, selects the first and reports the count.
+     * Runs on the FX thread.
+     *
+     * @param ranked true if the matches are ranked best first, and First/Next should step through them in that order
+     * @return true if there are matches
+     */
+    private boolean publish(TreeView<ANode> treeView, TreeItem<ANode> root, String query, List<ANode> matches,
+                            boolean ranked) {
+        lastQuery = query;
+        lastSearchRoot = root;
+        lastMatches = matches;
         searchResults.clear();
         currentIndex = -1;
-        TreeItem<ANode> root = treeView.getRoot();
-        lastSearchRoot = root;
-
-        findMatches(root, compiledPatterns);
+        searchResults.addAll(LazyTreeItem.materialize(root, matches));
+        if (ranked) {
+            // The items come in tree order; each occurrence of a concept takes the concept's rank
+            Map<ANode, Integer> rank = new HashMap<>();
+            for (ANode node : matches) {
+                rank.putIfAbsent(node, rank.size());
+            }
+            searchResults.sort(Comparator.comparingInt(item -> rank.get(item.getValue())));
+        }
 
         if (!searchResults.isEmpty()) {
             currentIndex = 0;
             selectItem(treeView, searchResults.get(currentIndex));
-            statusLabel.setText("Found " + searchResults.size() + " matches");
+            statusLabel.setText("Found " + searchResults.size() + (ranked ? " similar names" : " matches"));
             return true;
         } else {
-            statusLabel.setText("No match found for: \"" + query + "\"");
+            statusLabel.setText("No match found for: \"" + query.trim() + "\"");
             return false;
         }
     }
 
-    private void findMatches(TreeItem<ANode> root, List<Pattern> patterns) {
-        String name = root.getValue() != null ? root.getValue().name() : null;
-
-        if (name != null) {
-            for (Pattern pattern : patterns) {
-                if (pattern.matcher(name).find()) {
-                    searchResults.add(root);
-                    break; // Match found, no need to try more patterns
-                }
+    /**
+     * Finds the concepts below top whose names are within a few typos of the query, best first.
+     * The fuzzy index covers both hierarchies; only the concepts of the hierarchy of top are kept.
+     *
+     * @return matching concepts, ranked by edit distance and then by depth
+     */
+    private static List<ANode> findSimilar(FuzzyNameIndex index, ANode top, String query) {
+        boolean wholeHierarchy = top.equals(top.ontology().root());
+        Set<ANode> subtree = wholeHierarchy ? null : new HashSet<>(top.subtree());
+        List<ANode> matches = new ArrayList<>();
+        for (FuzzyNameIndex.Match match : index.find(query)) {
+            ANode node = match.node();
+            if (node.ontology() == top.ontology() && (wholeHierarchy || subtree.contains(node))) {
+                matches.add(node);
             }
         }
+        return matches;
+    }
 
-        for (TreeItem<ANode> child : root.getChildren()) {
-            findMatches(child, patterns);
+    /**
+     * Finds the concepts whose names match one of the patterns, each once even if it has several parents.
+     * Tree items are created later, only on the paths to the matches, one per occurrence.
+     * For a whole hierarchy, only the names the {@link NameIndex} lists as candidates are tested; if previous matches
+     * are given, only those are. Does not touch the tree, so it may run on a background thread.
+     *
+     * @param previous  matches of a broader query that contain all matches of this one, or null
+     * @param cancelled polled while searching
+     * @return matching concepts in pre-order
+     * @throws CancellationException if cancelled returned true
+     */
+    private static List<ANode> findMatches(ANode top, CompiledQuery query, List<ANode> previous,
+                                           BooleanSupplier cancelled) {
+        if (previous == null && top.equals(top.ontology().root())) {
+            return top.ontology().nameIndex().find(query.regexes(), query.matcher(), cancelled);
+        }
+        List<ANode> matches = new ArrayList<>();
+        int tested = 0;
+        for (ANode node : previous != null ? previous : top.subtree()) {
+            if ((++tested & 255) == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            String name = node.name();
+            if (name != null && query.matcher().test(name)) {
+                matches.add(node);
+            }
         }
+        return matches;
     }
 
     /**
@@ -116,7 +469,7 @@ public class TreeSearchHandler {
         TreeView<ANode> treeView = treeViewSupplier.get();
 
         if (treeRootChanged(treeView) || searchResults.isEmpty() || !query.equals(lastQuery)) {
-            if (!search(query)) return;
+            if (!search(query, false, () -> showFirst(query))) return;
         }
 
         currentIndex = 0;
@@ -133,7 +486,7 @@ public class TreeSearchHandler {
         TreeView<ANode> treeView = treeViewSupplier.get();
 
         if (treeRootChanged(treeView) || searchResults.isEmpty() || !query.equals(lastQuery)) {
-            if (!search(query)) return;
+            if (!search(query, false, () -> showNext(query))) return;
         }
 
         currentIndex = (currentIndex + 1) % searchResults.size(); // Wrap-around cycling
@@ -150,34 +503,15 @@ public class TreeSearchHandler {
         TreeView<ANode> treeView = treeViewSupplier.get();
 
         if (treeRootChanged(treeView) || searchResults.isEmpty() || !query.equals(lastQuery)) {
-            if (!search(query)) return;
+            if (!search(query, false, () -> selectAll(query))) return;
         }
 
-        MultipleSelectionModel<TreeItem<ANode>> model = treeView.getSelectionModel();
-        model.clearSelection(); // Reset previous selections
-
-        for (TreeItem<ANode> item : searchResults) {
-            model.select(item);
-        }
+        // Replaces the previous selection in one change, instead of one change per match
+        TreeSelectionBatch.of(treeView).select(searchResults);
 
         statusLabel.setText(searchResults.size() + " matches selected");
     }
 
-    /**
-     * Recursively searches the tree for nodes whose names contain the query.
-     *
-     * @param root The node to start the search from
-     * @param query The search string, already lowercased
-     */
-    private void findMatches(TreeItem<ANode> root, String query) {
-        if (root.getValue().name().toLowerCase().contains(query)) {
-            searchResults.add(root);
-        }
-        for (TreeItem<ANode> child : root.getChildren()) {
-            findMatches(child, query);
-        }
-    }
-
     /**
      * Selects a specific TreeItem and scrolls to it in the TreeView.
      *
@@ -185,12 +519,8 @@ public class TreeSearchHandler {
      * @param item The TreeItem to highlight
      */
     private void selectItem(TreeView<ANode> treeView, TreeItem<ANode> item) {
-        MultipleSelectionModel<TreeItem<ANode>> model = treeView.getSelectionModel();
-        model.clearSelection();
-        model.select(item);
-
-        // Ensure item is scrolled into view (on UI thread)
-        Platform.runLater(() -> treeView.scrollTo(treeView.getRow(item)));
+        // Select it as one change and ensure item is scrolled into view (on UI thread)
+        TreeSelectionBatch.of(treeView).selectAndScroll(List.of(item));
     }
 
     /**
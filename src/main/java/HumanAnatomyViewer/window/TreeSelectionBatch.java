@@ -0,0 +1,206 @@
+package HumanAnatomyViewer.window;
+
+import HumanAnatomyViewer.model.ANode;
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.scene.control.MultipleSelectionModel;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Tracks the model file IDs of the items selected in a TreeView, and lets many items be selected at once.
+ *
+ * Single selection changes (clicks in the tree) are applied incrementally: the file IDs of the added and removed items
+ * are counted in and out of a multiset, and listeners hear about the file IDs that became selected or deselected.
+ * Bulk changes run as a batch: while it runs, individual selection events are ignored; at the end the file IDs
+ * are counted once from the final selection and listeners get one coalesced change.
+ *
+ * There is one instance per TreeView, stored in the view's properties. Used on the JavaFX application thread only.
+ */
+public class TreeSelectionBatch {
+
+    private static final String PROPERTY_KEY = "selectionBatch";
+
+    private final TreeView<ANode> treeView;
+
+    // fileId -> number of selected items owning it
+    private final Map<String, Integer> fileIdCounts = new HashMap<>();
+    private final List<BiConsumer<Set<String>, Set<String>>> listeners = new ArrayList<>();
+    private int batchDepth = 0;
+
+    /**
+     * @param treeView a tree view
+     * @return the batch helper of the tree view, created on first use
+     */
+    @SuppressWarnings("unchecked")
+    public static TreeSelectionBatch of(TreeView<ANode> treeView) {
+        return (TreeSelectionBatch) treeView.getProperties()
+                .computeIfAbsent(PROPERTY_KEY, key -> new TreeSelectionBatch(treeView));
+    }
+
+    private TreeSelectionBatch(TreeView<ANode> treeView) {
+        this.treeView = treeView;
+        treeView.getSelectionModel().getSelectedItems().addListener(this::onSelectionChanged);
+        recount();
+    }
+
+    /**
+     * @param listener receives the file IDs that became selected and those that were deselected, once per change
+     *                 or once per batch; not called if the set of selected file IDs did not change
+     */
+    public void addListener(BiConsumer<Set<String>, Set<String>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return read-only view of the file IDs owned by the selected items
+     */
+    public Set<String> selectedFileIds() {
+        return Collections.unmodifiableSet(fileIdCounts.keySet());
+    }
+
+    /**
+     * Runs a bulk change of the selection and reports its effect as one change.
+     * Batches may be nested; only the outermost one reports.
+     *
+     * @param changes modifies the tree's selection model
+     */
+    public void run(Runnable changes) {
+        Set<String> before = batchDepth == 0 ? new HashSet<>(fileIdCounts.keySet()) : null;
+        batchDepth++;
+        try {
+            changes.run();
+        } finally {
+            batchDepth--;
+        }
+        if (before == null) {
+            return;
+        }
+        recount();
+
+        Set<String> added = new HashSet<>();
+        for (String fileId : fileIdCounts.keySet()) {
+            if (!before.contains(fileId)) added.add(fileId);
+        }
+        Set<String> removed = new HashSet<>();
+        for (String fileId : before) {
+            if (!fileIdCounts.containsKey(fileId)) removed.add(fileId);
+        }
+        fire(added, removed);
+    }
+
+    /**
+     * Replaces the selection by the given items in one batch. Collapsed parents are expanded,
+     * as they are when selecting an item with {@link MultipleSelectionModel#select(Object)}.
+     *
+     * @param items the items to select
+     * @return the first selected row, or -1 if none
+     */
+    public int select(Collection<TreeItem<ANode>> items) {
+        Set<TreeItem<ANode>> expanded = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TreeItem<ANode> item : items) {
+            TreeItem<ANode> parent = item.getParent();
+            while (parent != null && expanded.add(parent)) { // paths shared with earlier items are walked once
+                parent.setExpanded(true);
+                parent = parent.getParent();
+            }
+        }
+        // Rows are only known once all paths are expanded
+        int[] rows = items.stream().mapToInt(treeView::getRow).filter(row -> row >= 0).sorted().distinct().toArray();
+
+        run(() -> {
+            MultipleSelectionModel<TreeItem<ANode>> model = treeView.getSelectionModel();
+            model.clearSelection();
+            if (rows.length > 0) {
+                model.selectIndices(rows[0], Arrays.copyOfRange(rows, 1, rows.length));
+            }
+        });
+        return rows.length > 0 ? rows[0] : -1;
+    }
+
+    /**
+     * Like {@link #select(Collection)}, then scrolls once to the first selected item.
+     *
+     * @param items the items to select
+     */
+    public void selectAndScroll(Collection<TreeItem<ANode>> items) {
+        int firstRow = select(items);
+        if (firstRow >= 0) {
+            Platform.runLater(() -> treeView.scrollTo(firstRow));
+        }
+    }
+
+    private void onSelectionChanged(ListChangeListener.Change<? extends TreeItem<ANode>> change) {
+        if (batchDepth > 0) {
+            return; // counted once at the end of the batch
+        }
+        // fileId -> whether it was selected before this change; only for file IDs the change touches
+        Map<String, Boolean> touched = new HashMap<>();
+        while (change.next()) {
+            for (TreeItem<ANode> item : change.getRemoved()) {
+                count(item, -1, touched);
+            }
+            for (TreeItem<ANode> item : change.getAddedSubList()) {
+                count(item, 1, touched);
+            }
+        }
+
+        Set<String> added = new HashSet<>();
+        Set<String> removed = new HashSet<>();
+        touched.forEach((fileId, wasSelected) -> {
+            boolean isSelected = fileIdCounts.containsKey(fileId);
+            if (isSelected && !wasSelected) added.add(fileId);
+            if (!isSelected && wasSelected) removed.add(fileId);
+        });
+        fire(added, removed);
+    }
+
+    private void count(TreeItem<ANode> item, int delta, Map<String, Boolean> touched) {
+        if (item == null || item.getValue() == null) {
+            return;
+        }
+        for (String fileId : item.getValue().fileIds()) {
+            touched.putIfAbsent(fileId, fileIdCounts.containsKey(fileId));
+            // Entries that drop to zero are removed, so the key set is exactly the selected file IDs
+            fileIdCounts.compute(fileId, (key, count) -> {
+                int updated = (count == null ? 0 : count) + delta;
+                return updated <= 0 ? null : updated;
+            });
+        }
+    }
+
+    /**
+     * Counts the file IDs of the current selection from scratch.
+     */
+    private void recount() {
+        fileIdCounts.clear();
+        for (TreeItem<ANode> item : treeView.getSelectionModel().getSelectedItems()) {
+            if (item != null && item.getValue() != null) {
+                for (String fileId : item.getValue().fileIds()) {
+                    fileIdCounts.merge(fileId, 1, Integer::sum);
+                }
+            }
+        }
+    }
+
+    private void fire(Set<String> added, Set<String> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        for (BiConsumer<Set<String>, Set<String>> listener : listeners) {
+            listener.accept(added, removed);
+        }
+    }
+}
@@ -123,7 +123,8 @@ public class VolumeChartHelper {
     private static double calculateVolume(Group group) {
         double volume = 0.0;
         for (Node node : group.getChildren()) {
-            if (node instanceof MeshView meshView && meshView.getMesh() instanceof TriangleMesh mesh) {
+            // Always measure the full resolution mesh, not the level of detail currently shown
+            if (node instanceof MeshView meshView && LevelOfDetailManager.fullResolutionMesh(meshView) instanceof TriangleMesh mesh) {
                 volume += computeMeshVolume(mesh);
             }
         }
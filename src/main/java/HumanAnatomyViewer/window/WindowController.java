@@ -19,6 +19,7 @@ public class WindowController {
 
     // === Text fields, labels, color ===
     @FXML private TextField searchTextField;
+    @FXML private CheckBox fuzzyCheckBox;
     @FXML private Label searchStatusLabel;
     @FXML private ColorPicker colorPicker;
 
@@ -109,6 +110,7 @@ public class WindowController {
     public Button getHideButton() { return hideButton; }
 
     public TextField getSearchTextField() { return searchTextField; }
+    public CheckBox getFuzzyCheckBox() { return fuzzyCheckBox; }
     public Label getSearchStatusLabel() { return searchStatusLabel; }
     public ColorPicker getColorPicker() { return colorPicker; }
     public Pane getVisualizationPane() { return visualizationPane; }
@@ -1,10 +1,12 @@
 package HumanAnatomyViewer.window;
 
 import HumanAnatomyViewer.model.ANode;
+import HumanAnatomyViewer.model.FileIdSet;
 import HumanAnatomyViewer.model.Model;
+import HumanAnatomyViewer.model.SubtreeFileIds;
 import java.io.File;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 import javafx.animation.Interpolator;
 import javafx.animation.ParallelTransition;
 import javafx.animation.PauseTransition;
@@ -12,7 +14,6 @@ import javafx.animation.SequentialTransition;
 import javafx.animation.TranslateTransition;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
-import javafx.collections.ListChangeListener;
 
 import javafx.geometry.Bounds;
 import javafx.geometry.Insets;
@@ -41,10 +42,6 @@ public class WindowPresenter {
     private final WindowController controller;        // FXML controller providing access to GUI components
     private final Model model;                        // The logical model storing tree hierarchy and metadata
 
-    // === Tree structure ===
-    private TreeItem<ANode> partOfRootItem;           // Root node for the "part-of" hierarchy tree
-    private TreeItem<ANode> isARootItem;              // Root node for the "is-a" hierarchy tree
-
     // === 3D scene components ===
     private final Group innerGroup = new Group();     // Contains loaded 3D models, which can be transformed
     private final Group contentGroup = new Group();   // Wraps innerGroup and is rotated/scaled
@@ -57,6 +54,10 @@ public class WindowPresenter {
     private TreeSearchHandler searchHandler;              // Manages searching within the TreeView
     private String lastQuery = "";
 
+    // Tree the selection was last taken from, and the selection version right after that
+    private TreeView<ANode> selectionSyncedTree = null;
+    private long selectionSyncedVersion = -1;
+
     private final UndoRedoManager undoRedoManager = new UndoRedoManager();   //undo redo functionality
     private SubScene subScene; // make this a field
 
@@ -79,10 +80,13 @@ public class WindowPresenter {
         this.model = model;
 
         // Set up model interaction with currently active TreeView
-        this.modelInterface = new ModelInterface(innerGroup, controller.getActiveTreeView());
+        this.modelInterface = new ModelInterface(innerGroup, controller::getActiveTreeView);
+        // Report background model loading in the status bar
+        this.modelInterface.setLoadProgressListener(controller.getSearchStatusLabel()::setText);
 
         // Provide TreeView via supplier for dynamic tab switching
-        this.searchHandler = new TreeSearchHandler(controller::getActiveTreeView, controller.getSearchStatusLabel());
+        this.searchHandler = new TreeSearchHandler(controller::getActiveTreeView, controller.getSearchStatusLabel(),
+                model::getFuzzyNameIndex);
 
         initializeTrees();               // Build tree structure for UI
         setupTreeSelectionListener();    // Link TreeView selection with 3D view
@@ -91,30 +95,58 @@ public class WindowPresenter {
 
     /**
      * Initializes the "Part-Of" and "Is-A" trees from the model.
+     * The hierarchies load in the background; each tree stays empty until its hierarchy is ready.
      */
     private void initializeTrees() {
-        partOfRootItem = buildTreeItem(model.getPartOfRoot());
-        isARootItem = buildTreeItem(model.getIsARoot());
-
-        controller.getPartOfTreeView().setRoot(partOfRootItem);
-        controller.getIsATreeView().setRoot(isARootItem);
-
+        controller.getSearchStatusLabel().setText("Loading the anatomy hierarchies…");
         controller.getPartOfTreeView().getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         controller.getIsATreeView().getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+
+        bindTreeWhenLoaded(controller.getPartOfTreeView(), "part-of", model.getPartOfHierarchy());
+        bindTreeWhenLoaded(controller.getIsATreeView(), "is-a", model.getIsAHierarchy());
     }
 
     /**
-     * Recursively converts an ANode-based model into a JavaFX TreeItem-based
-     * tree.
+     * Sets the root of a tree on the FX thread once its hierarchy has loaded.
+     *
+     * @param treeView  the tree to fill
+     * @param name      name of the hierarchy, for messages
+     * @param hierarchy the loading hierarchy
+     */
+    private void bindTreeWhenLoaded(TreeView<ANode> treeView, String name, CompletableFuture<Model.Hierarchy> hierarchy) {
+        hierarchy.whenCompleteAsync((loaded, error) -> {
+            if (error != null) {
+                controller.getSearchStatusLabel().setText("❌ Could not load the " + name + " hierarchy");
+                return;
+            }
+            TreeItem<ANode> rootItem = buildTreeItem(loaded.root());
+            TreeItem<ANode> oldRoot = treeView.getRoot();
+            if (oldRoot != null && oldRoot.getValue().ontology() != loaded.root().ontology()) {
+                searchHandler.invalidate(oldRoot.getValue().ontology()); // cached results are for the old hierarchy
+            }
+            treeView.setRoot(rootItem);
+            controller.getSearchStatusLabel().setText("✔ Loaded the " + name + " hierarchy");
+
+            // Index which tree items own which models, so the tree can follow selections in the 3D view
+            modelInterface.getTreeIndex(rootItem);
+            if (treeView == controller.getActiveTreeView()) {
+                modelInterface.syncTreeSelectionFromFileIds();
+            }
+        }, Platform::runLater);
+    }
+
+    /**
+     * Converts an ANode-based model into a JavaFX TreeItem-based tree.
+     *
+     * Only the root item is created here; a {@link LazyTreeItem} creates its child items when it is first
+     * expanded or when search or selection sync needs an item below it. A concept with several parents is
+     * one shared ANode, shown under each parent without copying its subtree.
      *
      * @param node ANode model node
      * @return TreeItem representation
      */
     private TreeItem<ANode> buildTreeItem(ANode node) {
-        TreeItem<ANode> item = new TreeItem<>(node);
-        for (ANode child : node.children()) {
-            item.getChildren().add(buildTreeItem(child));
-        }
+        TreeItem<ANode> item = new LazyTreeItem(node);
         item.setExpanded(false);
         return item;
     }
@@ -124,22 +156,27 @@ public class WindowPresenter {
      * accordingly.
      */
     private void setupTreeSelectionListener() {
-        ListChangeListener<TreeItem<ANode>> listener = change -> {
-            if (modelInterface.isInSelectionUpdate()) {
-                return;
-            }
-
-            modelInterface.getSelectedFileIds().clear();
-            for (TreeItem<ANode> item : controller.getActiveTreeView().getSelectionModel().getSelectedItems()) {
-                if (item.getValue() != null) {
-                    modelInterface.getSelectedFileIds().addAll(item.getValue().fileIds());
+        for (TreeView<ANode> treeView : List.of(controller.getPartOfTreeView(), controller.getIsATreeView())) {
+            // Receives the file IDs that became selected or deselected, once per click or bulk selection
+            TreeSelectionBatch batch = TreeSelectionBatch.of(treeView);
+            batch.addListener((added, removed) -> {
+                if (modelInterface.isInSelectionUpdate() || treeView != controller.getActiveTreeView()) {
+                    return;
                 }
-            }
-            modelInterface.applyDrawModeBasedOnSelection();
-        };
-
-        controller.getPartOfTreeView().getSelectionModel().getSelectedItems().addListener(listener);
-        controller.getIsATreeView().getSelectionModel().getSelectedItems().addListener(listener);
+                // The selection is the file IDs of the tree's selected items. The change alone is enough while
+                // nothing else modified the selection since it was last taken from this tree; after a click in
+                // the 3D view or show/hide it is taken from the tree again. Either way, only the models whose
+                // selection state changed are redrawn
+                FileIdSelection selection = modelInterface.getSelection();
+                if (treeView == selectionSyncedTree && selection.version() == selectionSyncedVersion) {
+                    selection.update(added, removed);
+                } else {
+                    selection.set(batch.selectedFileIds());
+                }
+                selectionSyncedTree = treeView;
+                selectionSyncedVersion = selection.version();
+            });
+        }
     }
 
     /**
@@ -175,73 +212,66 @@ public class WindowPresenter {
             // ⛔ Important: capture current visible state BEFORE changing it!
             Set<String> beforeVisible = new HashSet<>(modelInterface.getCurrentlyVisibleFileIds());
             System.out.println("Undo: Showing previous model IDs: " + beforeVisible);
-            // Capture selected TreeItems
-            List<TreeItem<ANode>> selectedItems = new ArrayList<>(
-                    controller.getActiveTreeView().getSelectionModel().getSelectedItems());
 
-            // Extract fileIds to show
-            Set<String> showFileIds = selectedItems.stream()
-                    .map(TreeItem::getValue)
-                    .filter(Objects::nonNull)
-                    .flatMap(anode -> anode.fileIds().stream())
-                    .collect(Collectors.toSet());
+            // File IDs to show: everything under the selected nodes, from the precomputed subtree sets
+            Set<String> showFileIds = model.getSubtreeFileIds().toFileIds(selectedSubtreeFileIds());
 
             // === Add Undo/Redo Command ===
             undoRedoManager.add(new SimpleCommand("Show Models",
                     () -> {
                         System.out.println("Undo: Showing previous model IDs: " + beforeVisible);
-                        modelInterface.loadAndDisplayModelsByFileIds(beforeVisible);
+                        modelInterface.loadAndDisplayModelsByFileIds(beforeVisible, this::refreshViewLayout);
                         modelInterface.syncTreeSelectionFromFileIds();
                         refreshViewLayout();
                     },
                     () -> {
                         System.out.println("Redo: Re-showing file IDs: " + showFileIds);
-                        modelInterface.loadAndDisplayModelsByFileIds(showFileIds);
+                        modelInterface.loadAndDisplayModelsByFileIds(showFileIds, this::refreshViewLayout);
                         modelInterface.syncTreeSelectionFromFileIds();
                         refreshViewLayout();
                     }
             ));
 
             // === Do initial show ===
-            modelInterface.loadAndDisplayModelsByFileIds(showFileIds);
+            modelInterface.loadAndDisplayModelsByFileIds(showFileIds, this::refreshViewLayout);
             modelInterface.syncTreeSelectionFromFileIds();
             refreshViewLayout();
         });
 
         // hide selected objects
         controller.getHideButton().setOnAction(e -> {
-            List<TreeItem<ANode>> selectedItems = new ArrayList<>(
-                    controller.getActiveTreeView().getSelectionModel().getSelectedItems());
-
-            Set<String> fileIdsToHide = selectedItems.stream()
-                    .map(TreeItem::getValue)
-                    .filter(Objects::nonNull)
-                    .flatMap(anode -> anode.fileIds().stream())
-                    .collect(Collectors.toSet());
+            // Everything under the selected nodes is hidden
+            SubtreeFileIds subtrees = model.getSubtreeFileIds();
+            FileIdSet fileIdsToHide = selectedSubtreeFileIds();
 
             Set<String> beforeVisible = modelInterface.getCurrentlyVisibleFileIds();
 
             // Simulate what would be visible after hiding
-            Set<String> afterHideVisible = new HashSet<>(beforeVisible);
-            afterHideVisible.removeAll(fileIdsToHide);
+            Set<String> afterHideVisible = new LinkedHashSet<>();
+            for (String fileId : beforeVisible) {
+                int index = subtrees.indexOf(fileId);
+                if (index < 0 || !fileIdsToHide.contains(index)) {
+                    afterHideVisible.add(fileId);
+                }
+            }
 
             undoRedoManager.add(new SimpleCommand("Hide Models",
                     () -> {
                         // Undo: restore full original set
-                        modelInterface.loadAndDisplayModelsByFileIds(beforeVisible);
+                        modelInterface.loadAndDisplayModelsByFileIds(beforeVisible, this::refreshViewLayout);
                         modelInterface.syncTreeSelectionFromFileIds();
                         refreshViewLayout();
                     },
                     () -> {
                         // Redo: apply the hide again
-                        modelInterface.loadAndDisplayModelsByFileIds(afterHideVisible);
+                        modelInterface.loadAndDisplayModelsByFileIds(afterHideVisible, this::refreshViewLayout);
                         modelInterface.syncTreeSelectionFromFileIds();
                         refreshViewLayout();
                     }
             ));
 
             // Initial hide execution
-            modelInterface.loadAndDisplayModelsByFileIds(afterHideVisible);
+            modelInterface.loadAndDisplayModelsByFileIds(afterHideVisible, this::refreshViewLayout);
             modelInterface.syncTreeSelectionFromFileIds();
             refreshViewLayout();
         });
@@ -290,6 +320,14 @@ public class WindowPresenter {
         // When "Find" button is clicked or Enter is pressed in the search field
         controller.getFindButton().setOnAction(e -> handleFind());
         controller.getSearchTextField().setOnAction(e -> handleFind()); // Pressing Enter triggers the same
+        // Search while typing; runs in the background once typing pauses
+        controller.getSearchTextField().textProperty().addListener((obs, oldText, newText) ->
+                searchHandler.searchAsYouType(newText));
+        // Fuzzy mode tolerates typos; switching it re-runs the current query
+        controller.getFuzzyCheckBox().selectedProperty().addListener((obs, wasFuzzy, isFuzzy) -> {
+            searchHandler.setFuzzy(isFuzzy);
+            searchHandler.searchAsYouType(controller.getSearchTextField().getText());
+        });
 
         // Navigate to the first match found in the search
         controller.getFirstButton().setOnAction(e -> handleFirst());
@@ -435,14 +473,25 @@ public class WindowPresenter {
             Set<String> selectedFileIds = modelInterface.getSelectedFileIds();
             Map<String, Group> loadedModels = modelInterface.getLoadedModels();
 
+            // Each part is named after the selected node it belongs to; its own node if that is selected,
+            // otherwise the selected ancestor it was shown through
+            SubtreeFileIds subtrees = model.getSubtreeFileIds();
+            FileIdSet selectedSet = subtrees.of(selectedFileIds);
             Map<String, String> fileIdToName = new HashMap<>();
+            List<ANode> selectedNodes = new ArrayList<>();
             for (TreeItem<ANode> item : controller.getActiveTreeView().getSelectionModel().getSelectedItems()) {
-                if (item.getValue() != null) {
+                if (item != null && item.getValue() != null) {
+                    selectedNodes.add(item.getValue());
                     for (String fileId : item.getValue().fileIds()) {
                         fileIdToName.put(fileId, item.getValue().name());
                     }
                 }
             }
+            for (ANode node : selectedNodes) {
+                String name = node.name();
+                subtrees.subtree(node).and(selectedSet)
+                        .forEach(index -> fileIdToName.putIfAbsent(subtrees.fileId(index), name));
+            }
 
             VolumeChartHelper.showSelectedPartsVolumeChart(
                     stage,               // ✅ use the presenter's own stage field
@@ -493,7 +542,10 @@ public class WindowPresenter {
     }
 
     private void collapse(TreeItem<ANode> item) {
-        item.getChildren().forEach(this::collapse);
+        // Items that were never opened have nothing expanded below them; do not create their children
+        if (!(item instanceof LazyTreeItem lazy) || lazy.isMaterialized()) {
+            item.getChildren().forEach(this::collapse);
+        }
         item.setExpanded(false);
     }
 
@@ -502,24 +554,38 @@ public class WindowPresenter {
      */
     private void selectAllDescendants() {
         TreeView<ANode> tree = controller.getActiveTreeView();
-        var model = tree.getSelectionModel();
-        List<TreeItem<ANode>> base = new ArrayList<>(model.getSelectedItems());
-        model.clearSelection();
+        List<TreeItem<ANode>> base = new ArrayList<>(tree.getSelectionModel().getSelectedItems());
 
+        Set<TreeItem<ANode>> items = new LinkedHashSet<>();
         for (TreeItem<ANode> item : base) {
-            model.select(item);
-            collectDescendants(item, model);
+            items.add(item);
+            collectDescendants(item, items);
         }
+        // One selection change for all of them, instead of one per item
+        TreeSelectionBatch.of(tree).select(items);
     }
 
     /**
-     * Recursively selects all child nodes of the given parent node.
+     * Recursively collects all child nodes of the given parent node.
      */
-    private void collectDescendants(TreeItem<ANode> parent, MultipleSelectionModel<TreeItem<ANode>> model) {
+    private void collectDescendants(TreeItem<ANode> parent, Set<TreeItem<ANode>> items) {
         for (TreeItem<ANode> child : parent.getChildren()) {
-            model.select(child);
-            collectDescendants(child, model);
+            items.add(child);
+            collectDescendants(child, items);
+        }
+    }
+
+    /**
+     * File IDs of the selected nodes and everything below them, as a union of the precomputed subtree sets.
+     */
+    private FileIdSet selectedSubtreeFileIds() {
+        List<ANode> nodes = new ArrayList<>();
+        for (TreeItem<ANode> item : controller.getActiveTreeView().getSelectionModel().getSelectedItems()) {
+            if (item != null && item.getValue() != null) {
+                nodes.add(item.getValue());
+            }
         }
+        return model.getSubtreeFileIds().subtrees(nodes);
     }
 
     // === 3D Visualization Handling ===
@@ -527,7 +593,7 @@ public class WindowPresenter {
      * Handles showing selected models in the 3D scene.
      */
     private void handleShow() {
-        modelInterface.loadAndDisplayModels(controller.getActiveTreeView().getSelectionModel().getSelectedItems());
+        modelInterface.loadAndDisplayModelsByFileIds(model.getSubtreeFileIds().toFileIds(selectedSubtreeFileIds()));
 
         Platform.runLater(() -> {
             innerGroup.applyCss();
@@ -627,6 +693,9 @@ public class WindowPresenter {
 
             interactionHandler = new SceneInteractionHandler(contentGroup, camera);
             interactionHandler.setupMouseInteraction(controller.getVisualizationPane());
+
+            // Render distant models with simplified meshes
+            modelInterface.setLevelOfDetailManager(new LevelOfDetailManager(camera, subScene, innerGroup));
         }
     }
 
@@ -721,34 +790,31 @@ public class WindowPresenter {
     }
 
     /**
-     * Traverses the TreeView and extracts all the leaf node labels (names).
+     * Traverses the hierarchy shown in the TreeView and extracts all the leaf node labels (names).
+     * Walks the concepts rather than the tree items, so no items are created.
      *
      * @param tree The TreeView containing anatomical structures
      * @return A list of lowercase leaf labels
      */
     private List<String> getLeafLabelsFromTree(TreeView<ANode> tree) {
         List<String> labels = new ArrayList<>();
-        collectLeafLabels(tree.getRoot(), labels); // Start recursive collection
+        if (tree.getRoot() != null && tree.getRoot().getValue() != null) {
+            collectLeafLabels(tree.getRoot().getValue(), labels);
+        }
         return labels;
     }
 
     /**
-     * Recursively walks through the tree to collect all leaf node labels.
+     * Collects the labels of all leaf concepts below a node; a leaf shared by several parents is listed once.
      *
-     * @param item Current TreeItem in the traversal
+     * @param node Top of the hierarchy to collect from
      * @param list List to accumulate lowercase labels of leaf nodes
      */
-    private void collectLeafLabels(TreeItem<ANode> item, List<String> list) {
-        // Base case: if this item has no children, it's a leaf
-        if (item.getChildren().isEmpty()) {
-            // Make sure the node has a valid name before adding
-            if (item.getValue() != null && item.getValue().name() != null) {
-                list.add(item.getValue().name().toLowerCase());
-            }
-        } else {
-            // Recursive case: visit all children
-            for (TreeItem<ANode> child : item.getChildren()) {
-                collectLeafLabels(child, list);
+    private void collectLeafLabels(ANode node, List<String> list) {
+        for (ANode concept : node.subtree()) {
+            // A leaf has no children; make sure it has a valid name before adding
+            if (concept.children().isEmpty() && concept.name() != null) {
+                list.add(concept.name().toLowerCase());
             }
         }
     }
@@ -778,7 +844,7 @@ public class WindowPresenter {
             }
 
             // Perform the regex-based search in the TreeView
-            boolean success = searchHandler.search(regex);
+            boolean success = searchHandler.search(regex, true);
 
             if (success) {
                 // If matches found, select all matching nodes and notify user
@@ -839,7 +905,7 @@ public class WindowPresenter {
                         String hex = entry.getValue();              // e.g., "#FF0000"
 
                         // Try selecting matching nodes in the TreeView via the searchHandler
-                        boolean found = searchHandler.search(term);
+                        boolean found = searchHandler.search(term, true);
                         if (found) {
                             searchHandler.selectAll(term); // Select all matches if found
                         }
@@ -857,8 +923,12 @@ public class WindowPresenter {
                         }
                     }
 
-                    // Load the relevant 3D models for the selected file IDs if not already loaded
-                    modelInterface.loadAndDisplayModelsByFileIds(fileIdToColor.keySet());
+                    // Load the relevant 3D models for the selected file IDs if not already loaded,
+                    // and color them once the models loading in the background have arrived too
+                    modelInterface.loadAndDisplayModelsByFileIds(fileIdToColor.keySet(), () -> {
+                        modelInterface.applyColorsFromMap(fileIdToColor);
+                        refreshViewLayout();
+                    });
 
                     // Apply the selected color to each corresponding file ID
                     modelInterface.applyColorsFromMap(fileIdToColor);
@@ -890,33 +960,25 @@ public class WindowPresenter {
      * @return A list of TreeItems whose associated ANode name contains the term.
      */
     private List<TreeItem<ANode>> findMatchingTreeItems(String term) {
-        // Create a list to store matching nodes
-        List<TreeItem<ANode>> result = new ArrayList<>();
-
-        // Start recursive search from the root of the currently active tree
-        matchTreeItems(controller.getActiveTreeView().getRoot(), term, result);
-
-        // Return the list of matches
-        return result;
-    }
-
-    /**
-     * Recursively searches a TreeItem hierarchy to find all nodes whose names contain the search term.
-     *
-     * @param node   The current TreeItem node being visited.
-     * @param term   The lowercase search term.
-     * @param result The list where matching TreeItems are collected.
-     */
-    private void matchTreeItems(TreeItem<ANode> node, String term, List<TreeItem<ANode>> result) {
-        // Check if node value is non-null and name contains the search term (case-insensitive)
-        if (node.getValue() != null && node.getValue().name().toLowerCase().contains(term)) {
-            result.add(node); // Add matching node to result
+        TreeItem<ANode> root = controller.getActiveTreeView().getRoot();
+        if (root == null || root.getValue() == null) {
+            return new ArrayList<>();
         }
 
-        // Recursively check all child nodes
-        for (TreeItem<ANode> child : node.getChildren()) {
-            matchTreeItems(child, term, result);
+        // Match the concepts first, then create only the tree items leading to the matches
+        ANode top = root.getValue();
+        List<ANode> matches;
+        if (top.equals(top.ontology().root())) {
+            matches = top.ontology().nameIndex().findContaining(term); // tests only the candidates of the name index
+        } else {
+            matches = new ArrayList<>();
+            for (ANode node : top.subtree()) {
+                if (node.name().toLowerCase().contains(term)) {
+                    matches.add(node);
+                }
+            }
         }
+        return LazyTreeItem.materialize(root, matches);
     }
 
 //enable dark mode